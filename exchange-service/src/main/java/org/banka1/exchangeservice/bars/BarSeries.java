@@ -0,0 +1,152 @@
+package org.banka1.exchangeservice.bars;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Istorijski barovi (OHLCV) jednog simbola i intervala, po kolonama u nizovima primitivnih tipova, sortirani po vremenu.
+ * Prima barove novije od poslednjeg, a bar sa vremenom poslednjeg ga zamenjuje (poslednji bar moze biti
+ * nezavrsen kada se procita), pa je svaka sinhronizacija inkrementalna i ponovljiva.
+ */
+public class BarSeries {
+
+    private long[] times;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private long[] volume;
+    private int size;
+    private long syncedAt;
+
+    public BarSeries() {
+        this(16);
+    }
+
+    private BarSeries(int capacity) {
+        times = new long[capacity];
+        open = new double[capacity];
+        high = new double[capacity];
+        low = new double[capacity];
+        close = new double[capacity];
+        volume = new long[capacity];
+    }
+
+    /**
+     * Vraca true ako je bar dodat ili je promenio poslednji bar, a false za stariji ili isti bar.
+     */
+    public synchronized boolean append(long time, double open, double high, double low, double close, long volume) {
+        if (size > 0 && time < times[size - 1])
+            return false;
+
+        int index = size;
+        if (size > 0 && time == times[size - 1]) {
+            index = size - 1;
+            if (this.open[index] == open && this.high[index] == high && this.low[index] == low
+                    && this.close[index] == close && this.volume[index] == volume)
+                return false;
+        } else {
+            if (size == times.length)
+                grow();
+            size++;
+        }
+        times[index] = time;
+        this.open[index] = open;
+        this.high[index] = high;
+        this.low[index] = low;
+        this.close[index] = close;
+        this.volume[index] = volume;
+        return true;
+    }
+
+    /**
+     * Vreme poslednjeg bara ili null ako je serija prazna.
+     */
+    public synchronized Long lastTime() {
+        return size == 0 ? null : times[size - 1];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getSyncedAt() {
+        return syncedAt;
+    }
+
+    public synchronized void setSyncedAt(long syncedAt) {
+        this.syncedAt = syncedAt;
+    }
+
+    /**
+     * Najnovijih limit barova, od najnovijeg ka najstarijem, kao sto ih vraca flask.
+     */
+    public synchronized <T> List<T> newestFirst(int limit, BarMapper<T> mapper) {
+        int count = Math.min(limit, size);
+        List<T> bars = new ArrayList<>(count);
+        for (int i = size - 1; i >= size - count; i--)
+            bars.add(mapper.map(times[i], open[i], high[i], low[i], close[i], volume[i]));
+        return bars;
+    }
+
+    synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(syncedAt);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++)
+            out.writeLong(times[i]);
+        writeColumn(out, open);
+        writeColumn(out, high);
+        writeColumn(out, low);
+        writeColumn(out, close);
+        for (int i = 0; i < size; i++)
+            out.writeLong(volume[i]);
+    }
+
+    static BarSeries readFrom(DataInputStream in) throws IOException {
+        long syncedAt = in.readLong();
+        int size = in.readInt();
+        BarSeries series = new BarSeries(Math.max(size, 16));
+        for (int i = 0; i < size; i++)
+            series.times[i] = in.readLong();
+        readColumn(in, series.open, size);
+        readColumn(in, series.high, size);
+        readColumn(in, series.low, size);
+        readColumn(in, series.close, size);
+        for (int i = 0; i < size; i++)
+            series.volume[i] = in.readLong();
+        series.size = size;
+        series.syncedAt = syncedAt;
+        return series;
+    }
+
+    private void writeColumn(DataOutputStream out, double[] column) throws IOException {
+        for (int i = 0; i < size; i++)
+            out.writeDouble(column[i]);
+    }
+
+    private static void readColumn(DataInputStream in, double[] column, int size) throws IOException {
+        for (int i = 0; i < size; i++)
+            column[i] = in.readDouble();
+    }
+
+    private void grow() {
+        int capacity = times.length * 2;
+        times = Arrays.copyOf(times, capacity);
+        open = Arrays.copyOf(open, capacity);
+        high = Arrays.copyOf(high, capacity);
+        low = Arrays.copyOf(low, capacity);
+        close = Arrays.copyOf(close, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+    }
+
+    @FunctionalInterface
+    public interface BarMapper<T> {
+
+        T map(long time, double open, double high, double low, double close, long volume);
+
+    }
+}
@@ -0,0 +1,83 @@
+package org.banka1.exchangeservice.bars;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lokalno skladiste istorijskih barova, jedna datoteka po (vrsta, simbol, interval).
+ * Datoteka je checkpoint serije: upisuje se cela u privremenu datoteku pa atomski zamenjuje staru,
+ * tako da se posle pada sinhronizacija nastavlja od poslednjeg sacuvanog bara.
+ * Checkpoint-i jedne serije (backfill i zahtevi) se izvrsavaju jedan po jedan, pa noviji upis uvek ostaje poslednji.
+ */
+@Component
+@Slf4j
+public class BarStore {
+
+    private static final int MAGIC = 0x42415253;
+
+    private final Path directory;
+    private final Map<String, BarSeries> series = new ConcurrentHashMap<>();
+
+    public BarStore(@Value("${market.bars.dir:bars}") String directory) throws IOException {
+        this.directory = Paths.get(directory);
+        Files.createDirectories(this.directory);
+    }
+
+    public BarSeries series(String kind, String symbol, Enum<?> interval) {
+        return series.computeIfAbsent(key(kind, symbol, interval), this::load);
+    }
+
+    public void checkpoint(String kind, String symbol, Enum<?> interval) throws IOException {
+        String key = key(kind, symbol, interval);
+        BarSeries barSeries = series.get(key);
+        if (barSeries == null)
+            return;
+
+        Path target = path(key);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        synchronized (barSeries) {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                barSeries.writeTo(out);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private BarSeries load(String key) {
+        Path path = path(key);
+        if (!Files.exists(path))
+            return new BarSeries();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("unknown file format");
+            return BarSeries.readFrom(in);
+        } catch (IOException e) {
+            // ostecena serija se ucitava ispocetka sledecom sinhronizacijom
+            log.warn("Bar series {} could not be read, starting empty: {}", path, e.getMessage());
+            return new BarSeries();
+        }
+    }
+
+    private Path path(String key) {
+        return directory.resolve(key.replaceAll("[^A-Za-z0-9_.-]", "_") + ".bars");
+    }
+
+    private static String key(String kind, String symbol, Enum<?> interval) {
+        return kind + "-" + symbol + "-" + interval.name();
+    }
+}
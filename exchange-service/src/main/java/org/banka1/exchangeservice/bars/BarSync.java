@@ -0,0 +1,244 @@
+package org.banka1.exchangeservice.bars;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.banka1.exchangeservice.clients.MarketDataClient;
+import org.banka1.exchangeservice.domains.dtos.forex.ForexResponseTimeSeriesFlask;
+import org.banka1.exchangeservice.domains.dtos.forex.TimeSeriesForexEnum;
+import org.banka1.exchangeservice.domains.dtos.listing.BarDtoFlask;
+import org.banka1.exchangeservice.domains.dtos.stock.StockDtoFlask;
+import org.banka1.exchangeservice.domains.dtos.stock.StockResponseDtoFlask;
+import org.banka1.exchangeservice.domains.dtos.stock.TimeSeriesStockEnum;
+import org.banka1.exchangeservice.domains.entities.Forex;
+import org.banka1.exchangeservice.domains.entities.Stock;
+import org.banka1.exchangeservice.domains.exceptions.InternalServerError;
+import org.banka1.exchangeservice.repositories.ForexRepository;
+import org.banka1.exchangeservice.repositories.StockRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inkrementalna sinhronizacija lokalnog skladista barova sa flask servisom: trazi se samo ono sto je novije
+ * od poslednjeg sacuvanog bara (parametar since), a serija se posle svakog uspesnog poziva cuva kao checkpoint.
+ * Backfill obilazi sve hartije i preskace serije koje su sinhronizovane u poslednjem intervalu,
+ * pa se prekinut backfill posle restarta nastavlja tamo gde je stao.
+ * Zahtev za seriju sinhronizuje je najvise jednom po intervalu perioda (market.bars.sync-interval.five-min, hour,
+ * daily, weekly, monthly), a vraca najnovijih market.bars.response-size barova, koliko je vracao i flask.
+ */
+@Component
+@Slf4j
+public class BarSync {
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final BarStore barStore;
+    private final StockRepository stockRepository;
+    private final ForexRepository forexRepository;
+    private final MarketDataClient marketDataClient;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+    // poslednji pokusaj po seriji, pa ni neuspela sinhronizacija ne ide ka flask-u cesce od intervala
+    private final Map<BarSeries, Long> attemptedAt = new ConcurrentHashMap<>();
+
+    @Value("${market.bars.backfill.enabled:true}")
+    private boolean backfillEnabled;
+    @Value("${market.bars.backfill.intervals:DAILY}")
+    private List<String> backfillIntervals;
+    @Value("${market.bars.backfill.interval-ms:3600000}")
+    private long backfillIntervalMs;
+    @Value("${market.bars.response-size:100}")
+    private int responseSize;
+
+    public BarSync(BarStore barStore, StockRepository stockRepository, ForexRepository forexRepository,
+                   MarketDataClient marketDataClient, MeterRegistry meterRegistry, Environment environment) {
+        this.barStore = barStore;
+        this.stockRepository = stockRepository;
+        this.forexRepository = forexRepository;
+        this.marketDataClient = marketDataClient;
+        this.meterRegistry = meterRegistry;
+        this.environment = environment;
+    }
+
+    /**
+     * Dovlaci nove barove i vraca koliko ih je dodato. Ako flask nije dostupan, a serija vec postoji,
+     * greska se samo loguje i ostaje sacuvana serija.
+     */
+    public int syncStock(String symbol, TimeSeriesStockEnum timeSeries) throws IOException, InterruptedException {
+        return sync("stock", symbol, timeSeries, since -> marketDataClient.fetchStockBars(symbol, timeSeries, since));
+    }
+
+    public int syncForex(String fromCurrency, String toCurrency, TimeSeriesForexEnum timeSeries) throws IOException, InterruptedException {
+        return sync("forex", fromCurrency + "/" + toCurrency, timeSeries,
+                since -> marketDataClient.fetchForexBars(fromCurrency, toCurrency, timeSeries, since));
+    }
+
+    /**
+     * Serija iz lokalnog skladista, prethodno sinhronizovana ako je od poslednjeg pokusaja proslo vise od intervala perioda.
+     */
+    public StockResponseDtoFlask stockTimeSeries(String symbol, TimeSeriesStockEnum timeSeries) throws IOException, InterruptedException {
+        BarSeries series = barStore.series("stock", symbol, timeSeries);
+        if (claimSync(series, timeSeries))
+            syncStock(symbol, timeSeries);
+
+        Long lastTime = series.lastTime();
+        List<StockDtoFlask> bars = series.newestFirst(responseSize, (time, open, high, low, close, volume) ->
+                new StockDtoFlask(new Date(time), open, high, low, close, volume));
+        return new StockResponseDtoFlask(symbol, lastTime == null ? null : new Date(lastTime), bars);
+    }
+
+    public ForexResponseTimeSeriesFlask forexTimeSeries(String fromCurrency, String toCurrency, TimeSeriesForexEnum timeSeries)
+            throws IOException, InterruptedException {
+        boolean intraday = MarketDataClient.isIntraday(timeSeries);
+        BarSeries series = barStore.series("forex", fromCurrency + "/" + toCurrency, timeSeries);
+        if (claimSync(series, timeSeries))
+            syncForex(fromCurrency, toCurrency, timeSeries);
+
+        Long lastTime = series.lastTime();
+        List<ForexResponseTimeSeriesFlask.ForexTimeSeriesFlask> bars = series.newestFirst(responseSize, (time, open, high, low, close, volume) ->
+                new ForexResponseTimeSeriesFlask.ForexTimeSeriesFlask(format(time, intraday), open, close, high, low));
+        return new ForexResponseTimeSeriesFlask(fromCurrency, toCurrency, lastTime == null ? null : format(lastTime, intraday), bars);
+    }
+
+    @Scheduled(initialDelayString = "${market.bars.backfill.initial-delay-ms:60000}",
+            fixedDelayString = "${market.bars.backfill.interval-ms:3600000}")
+    public void backfill() {
+        if (!backfillEnabled)
+            return;
+
+        long syncedBefore = System.currentTimeMillis() - backfillIntervalMs;
+        for (String interval : backfillIntervals) {
+            TimeSeriesStockEnum stockTimeSeries = TimeSeriesStockEnum.valueOf(interval);
+            for (Stock stock : stockRepository.findAll()) {
+                if (barStore.series("stock", stock.getSymbol(), stockTimeSeries).getSyncedAt() > syncedBefore)
+                    continue;
+                if (!backfillOne(() -> syncStock(stock.getSymbol(), stockTimeSeries), stock.getSymbol()))
+                    return;
+            }
+
+            TimeSeriesForexEnum forexTimeSeries = TimeSeriesForexEnum.valueOf(interval);
+            for (Forex forex : forexRepository.findAll()) {
+                if (barStore.series("forex", forex.getSymbol(), forexTimeSeries).getSyncedAt() > syncedBefore)
+                    continue;
+                String from = forex.getFromCurrency().getCurrencyCode();
+                String to = forex.getToCurrency().getCurrencyCode();
+                if (!backfillOne(() -> syncForex(from, to, forexTimeSeries), forex.getSymbol()))
+                    return;
+            }
+        }
+    }
+
+    private boolean backfillOne(SyncCall call, String symbol) {
+        try {
+            call.sync();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Backfill of {} failed: {}", symbol, e.getMessage());
+            return true;
+        }
+    }
+
+    // samo jedan od istovremenih zahteva dobija sinhronizaciju, ostali citaju sacuvanu seriju
+    private boolean claimSync(BarSeries series, Enum<?> interval) {
+        long now = System.currentTimeMillis();
+        long syncBefore = now - syncInterval(interval).toMillis();
+        if (series.getSyncedAt() > syncBefore) {
+            meterRegistry.counter("market.bars.sync.requests", "result", "fresh").increment();
+            return false;
+        }
+
+        Long[] previous = new Long[1];
+        attemptedAt.compute(series, (key, attempted) -> {
+            previous[0] = attempted;
+            return attempted != null && attempted > syncBefore ? attempted : now;
+        });
+        boolean claimed = previous[0] == null || previous[0] <= syncBefore;
+        meterRegistry.counter("market.bars.sync.requests", "result", claimed ? "synced" : "throttled").increment();
+        return claimed;
+    }
+
+    private Duration syncInterval(Enum<?> interval) {
+        String period = interval.name().toLowerCase().replace('_', '-');
+        Duration defaultInterval = switch (interval.name()) {
+            case "FIVE_MIN" -> Duration.ofMinutes(1);
+            case "HOUR" -> Duration.ofMinutes(5);
+            case "DAILY" -> Duration.ofHours(1);
+            case "WEEKLY" -> Duration.ofHours(6);
+            default -> Duration.ofHours(12);
+        };
+        return environment.getProperty("market.bars.sync-interval." + period, Duration.class, defaultInterval);
+    }
+
+    private int sync(String kind, String symbol, Enum<?> interval, BarFetch fetch) throws IOException, InterruptedException {
+        BarSeries series = barStore.series(kind, symbol, interval);
+        Long lastTime = series.lastTime();
+
+        List<BarDtoFlask> bars;
+        try {
+            bars = fetch.fetch(lastTime == null ? null : format(lastTime, MarketDataClient.isIntraday(interval)));
+        } catch (IOException | InternalServerError e) {
+            meterRegistry.counter("market.bars.sync.errors", "kind", kind).increment();
+            if (series.size() == 0) {
+                // bez sacuvane serije sledeci zahtev ponovo pokusava, umesto da ceka interval
+                attemptedAt.remove(series);
+                throw e;
+            }
+            log.warn("Bars of {} {} could not be synced, serving stored series: {}", symbol, interval, e.getMessage());
+            return 0;
+        }
+
+        // flask vraca barove od najnovijeg (ukljucujuci bar na since), a serija prima rastuce vreme i zamenjuje poslednji bar
+        int added = 0;
+        for (int i = bars.size() - 1; i >= 0; i--) {
+            BarDtoFlask bar = bars.get(i);
+            if (series.append(parse(bar.getDate()), bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(), bar.getVolume()))
+                added++;
+        }
+        series.setSyncedAt(System.currentTimeMillis());
+        barStore.checkpoint(kind, symbol, interval);
+
+        meterRegistry.counter("market.bars.synced", "kind", kind).increment(added);
+        return added;
+    }
+
+    static long parse(String date) {
+        LocalDateTime dateTime = date.length() > 10 ? LocalDateTime.parse(date, DATE_TIME) : LocalDate.parse(date, DATE).atStartOfDay();
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static String format(long time, boolean intraday) {
+        LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneOffset.UTC);
+        return intraday ? dateTime.format(DATE_TIME) : dateTime.format(DATE);
+    }
+
+    @FunctionalInterface
+    private interface BarFetch {
+
+        List<BarDtoFlask> fetch(String since) throws IOException, InterruptedException;
+
+    }
+
+    @FunctionalInterface
+    private interface SyncCall {
+
+        int sync() throws IOException, InterruptedException;
+
+    }
+}
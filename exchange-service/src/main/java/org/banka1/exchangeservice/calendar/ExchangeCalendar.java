@@ -0,0 +1,88 @@
+package org.banka1.exchangeservice.calendar;
+
+import lombok.extern.slf4j.Slf4j;
+import org.banka1.exchangeservice.domains.entities.Exchange;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.domains.entities.Stock;
+import org.banka1.exchangeservice.repositories.StockRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.DateTimeException;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Odgovara da li je trziste hartije trenutno otvoreno. Radno vreme berze (excTimeZone, excOpenTime, excCloseTime)
+ * se parsira jednom po berzi, a akcija se jednom vezuje za radno vreme svoje berze, pa je svaki sledeci upit
+ * jedno citanje iz mape. Akcija bez berze ili sa neispravnim radnim vremenom se smatra uvek otvorenom,
+ * a forex radi od nedelje do petka (market.forex.*).
+ */
+@Component
+@Slf4j
+public class ExchangeCalendar {
+
+    private final StockRepository stockRepository;
+    private final TradingHours forexHours;
+    private final Map<Long, TradingHours> exchangeHours = new ConcurrentHashMap<>();
+    private final Map<String, TradingHours> stockHours = new ConcurrentHashMap<>();
+    private volatile boolean stocksLoaded;
+
+    public ExchangeCalendar(StockRepository stockRepository,
+                            @Value("${market.forex.time-zone:America/New_York}") String forexTimeZone,
+                            @Value("${market.forex.open-time:17:00}") String forexOpenTime,
+                            @Value("${market.forex.close-time:17:00}") String forexCloseTime) {
+        this.stockRepository = stockRepository;
+        this.forexHours = TradingHours.weekly(ZoneId.of(forexTimeZone), LocalTime.parse(forexOpenTime), LocalTime.parse(forexCloseTime));
+    }
+
+    public boolean isOpen(ListingType listingType, String symbol) {
+        return isOpen(listingType, symbol, System.currentTimeMillis());
+    }
+
+    public boolean isOpen(ListingType listingType, String symbol, long nowMillis) {
+        return hours(listingType, symbol).isOpen(nowMillis);
+    }
+
+    public TradingHours hours(ListingType listingType, String symbol) {
+        if (listingType == ListingType.FOREX)
+            return forexHours;
+
+        if (!stocksLoaded)
+            loadStocks();
+        TradingHours hours = stockHours.get(symbol);
+        if (hours != null)
+            return hours;
+
+        // akcija dodata posle prvog ucitavanja
+        Stock stock = stockRepository.findBySymbol(symbol);
+        hours = stock == null ? TradingHours.ALWAYS_OPEN : hours(stock.getExchange());
+        stockHours.put(symbol, hours);
+        return hours;
+    }
+
+    private synchronized void loadStocks() {
+        if (stocksLoaded)
+            return;
+        stockRepository.findAll().forEach(stock -> stockHours.put(stock.getSymbol(), hours(stock.getExchange())));
+        stocksLoaded = true;
+    }
+
+    private TradingHours hours(Exchange exchange) {
+        if (exchange == null || exchange.getExcId() == null)
+            return TradingHours.ALWAYS_OPEN;
+        return exchangeHours.computeIfAbsent(exchange.getExcId(), id -> parse(exchange));
+    }
+
+    private static TradingHours parse(Exchange exchange) {
+        try {
+            return TradingHours.daily(ZoneId.of(exchange.getExcTimeZone().trim()), LocalTime.parse(exchange.getExcOpenTime().trim()),
+                    LocalTime.parse(exchange.getExcCloseTime().trim()));
+        } catch (DateTimeException | IllegalArgumentException | NullPointerException e) {
+            log.warn("Trading hours of exchange {} could not be parsed, treating it as always open: {}", exchange.getExcMicCode(), e.getMessage());
+            return TradingHours.ALWAYS_OPEN;
+        }
+    }
+}
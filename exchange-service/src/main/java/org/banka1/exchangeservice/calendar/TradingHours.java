@@ -0,0 +1,115 @@
+package org.banka1.exchangeservice.calendar;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Radno vreme jednog trzista. Uz odgovor se pamti i trenutak sledece promene (otvaranje ili zatvaranje),
+ * pa je provera do tog trenutka samo poredjenje dva broja, bez racunanja sa vremenskim zonama.
+ * Praznici se ne uzimaju u obzir.
+ */
+public class TradingHours {
+
+    public static final TradingHours ALWAYS_OPEN = new TradingHours(null, null, null, false);
+
+    private final ZoneId zone;
+    private final LocalTime open;
+    private final LocalTime close;
+    // forex radi neprekidno od nedelje u open do petka u close, ostala trzista radnim danima od open do close
+    private final boolean weekly;
+    private volatile State state = new State(false, Long.MIN_VALUE, Long.MIN_VALUE);
+
+    private TradingHours(ZoneId zone, LocalTime open, LocalTime close, boolean weekly) {
+        this.zone = zone;
+        this.open = open;
+        this.close = close;
+        this.weekly = weekly;
+    }
+
+    /**
+     * Radnim danima od open do close po lokalnom vremenu zone; close mora biti posle open.
+     */
+    public static TradingHours daily(ZoneId zone, LocalTime open, LocalTime close) {
+        if (!close.isAfter(open))
+            throw new IllegalArgumentException("close " + close + " is not after open " + open);
+        return new TradingHours(zone, open, close, false);
+    }
+
+    public static TradingHours weekly(ZoneId zone, LocalTime open, LocalTime close) {
+        return new TradingHours(zone, open, close, true);
+    }
+
+    public boolean isOpen(long nowMillis) {
+        if (zone == null)
+            return true;
+
+        State current = state;
+        if (nowMillis >= current.from && nowMillis < current.until)
+            return current.open;
+
+        current = compute(nowMillis);
+        state = current;
+        return current.open;
+    }
+
+    private State compute(long nowMillis) {
+        ZonedDateTime now = Instant.ofEpochMilli(nowMillis).atZone(zone);
+        boolean isOpen = weekly ? weeklyOpen(now) : dailyOpen(now);
+        ZonedDateTime next = weekly ? weeklyTransition(now, isOpen) : dailyTransition(now, isOpen);
+        return new State(isOpen, nowMillis, next.toInstant().toEpochMilli());
+    }
+
+    private boolean dailyOpen(ZonedDateTime now) {
+        LocalTime time = now.toLocalTime();
+        return isWeekday(now.getDayOfWeek()) && !time.isBefore(open) && time.isBefore(close);
+    }
+
+    private ZonedDateTime dailyTransition(ZonedDateTime now, boolean isOpen) {
+        if (isOpen)
+            return now.with(close);
+
+        ZonedDateTime next = now.with(open);
+        if (!next.isAfter(now))
+            next = next.plusDays(1);
+        while (!isWeekday(next.getDayOfWeek()))
+            next = next.plusDays(1);
+        return next;
+    }
+
+    private boolean weeklyOpen(ZonedDateTime now) {
+        LocalTime time = now.toLocalTime();
+        return switch (now.getDayOfWeek()) {
+            case SATURDAY -> false;
+            case SUNDAY -> !time.isBefore(open);
+            case FRIDAY -> time.isBefore(close);
+            default -> true;
+        };
+    }
+
+    private ZonedDateTime weeklyTransition(ZonedDateTime now, boolean isOpen) {
+        if (isOpen)
+            return now.with(TemporalAdjusters.nextOrSame(DayOfWeek.FRIDAY)).with(close);
+        return now.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY)).with(open);
+    }
+
+    private static boolean isWeekday(DayOfWeek day) {
+        return day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY;
+    }
+
+    private static class State {
+
+        private final boolean open;
+        private final long from;
+        private final long until;
+
+        private State(boolean open, long from, long until) {
+            this.open = open;
+            this.from = from;
+            this.until = until;
+        }
+    }
+}
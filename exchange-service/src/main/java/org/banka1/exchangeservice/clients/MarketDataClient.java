@@ -0,0 +1,279 @@
+package org.banka1.exchangeservice.clients;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.banka1.exchangeservice.domains.dtos.forex.ForexResponseExchangeFlask;
+import org.banka1.exchangeservice.domains.dtos.forex.TimeSeriesForexEnum;
+import org.banka1.exchangeservice.domains.dtos.listing.BarDtoFlask;
+import org.banka1.exchangeservice.domains.dtos.stock.StockDtoFlask;
+import org.banka1.exchangeservice.domains.dtos.stock.StockResponseDtoFlask;
+import org.banka1.exchangeservice.domains.dtos.stock.TimeSeriesStockEnum;
+import org.banka1.exchangeservice.domains.exceptions.InternalServerError;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Klijent za flask servis. Batch kotacije: jedan zahtev vraca poslednje kotacije za vise simbola (ili valutnih parova),
+ * a lista simbola se deli na delove od batch-size simbola, pa nijedan zahtev ne prelazi tu velicinu.
+ * Vremenske serije se traze samo od date vremenske oznake (since), za inkrementalnu sinhronizaciju barova.
+ */
+@Component
+@Slf4j
+public class MarketDataClient {
+
+    // poslednji dan i dan pre njega, dovoljno za cenu i promenu cene
+    private static final int QUOTE_BARS = 2;
+
+    private final String stockQuotesUrl;
+    private final String forexQuotesUrl;
+    private final String stockTimeSeriesUrl;
+    private final String stockTimeSeriesIntraDayUrl;
+    private final String forexTimeSeriesUrl;
+    private final String forexTimeSeriesIntraDayUrl;
+    @Getter
+    private final int batchSize;
+    private final Duration timeout;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final JavaType forexQuotesType;
+
+    public MarketDataClient(@Value("${flask.api.stock.quotes}") String stockQuotesUrl,
+                            @Value("${flask.api.forex.quotes}") String forexQuotesUrl,
+                            @Value("${flask.api.stock.timeseries}") String stockTimeSeriesUrl,
+                            @Value("${flask.api.stock.timeseries.intraday}") String stockTimeSeriesIntraDayUrl,
+                            @Value("${flask.api.forex.timeseries}") String forexTimeSeriesUrl,
+                            @Value("${flask.api.forex.timeseries.intraday}") String forexTimeSeriesIntraDayUrl,
+                            @Value("${flask.api.quotes.batch-size:50}") int batchSize,
+                            @Value("${flask.api.quotes.timeout:30s}") Duration timeout,
+                            ObjectMapper objectMapper) {
+        this.stockQuotesUrl = stockQuotesUrl;
+        this.forexQuotesUrl = forexQuotesUrl;
+        this.stockTimeSeriesUrl = stockTimeSeriesUrl;
+        this.stockTimeSeriesIntraDayUrl = stockTimeSeriesIntraDayUrl;
+        this.forexTimeSeriesUrl = forexTimeSeriesUrl;
+        this.forexTimeSeriesIntraDayUrl = forexTimeSeriesIntraDayUrl;
+        this.batchSize = batchSize;
+        this.timeout = timeout;
+        this.objectMapper = objectMapper.copy().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.httpClient = HttpClient.newHttpClient();
+        this.forexQuotesType = this.objectMapper.getTypeFactory().constructCollectionType(List.class, ForexResponseExchangeFlask.class);
+    }
+
+    /**
+     * Kotacije za sve simbole, deo po deo; deo koji ne uspe se loguje i preskace.
+     */
+    public Map<String, StockResponseDtoFlask> getStockQuotes(Collection<String> symbols) throws InterruptedException {
+        Map<String, StockResponseDtoFlask> quotes = new HashMap<>();
+        for (List<String> batch : partition(symbols)) {
+            try {
+                quotes.putAll(fetchStockQuotes(batch));
+            } catch (IOException | InternalServerError e) {
+                log.warn("Stock quotes for {} could not be fetched: {}", batch, e.getMessage());
+            }
+        }
+        return quotes;
+    }
+
+    public Map<String, ForexResponseExchangeFlask> getForexQuotes(Collection<String> pairs) throws InterruptedException {
+        Map<String, ForexResponseExchangeFlask> quotes = new HashMap<>();
+        for (List<String> batch : partition(pairs)) {
+            try {
+                quotes.putAll(fetchForexQuotes(batch));
+            } catch (IOException | InternalServerError e) {
+                log.warn("Forex quotes for {} could not be fetched: {}", batch, e.getMessage());
+            }
+        }
+        return quotes;
+    }
+
+    /**
+     * Jedan zahtev za najvise batch-size simbola; greska se propagira pozivaocu. Simboli bez kotacije nisu u mapi.
+     */
+    public Map<String, StockResponseDtoFlask> fetchStockQuotes(List<String> symbols) throws IOException, InterruptedException {
+        return send(stockQuotesUrl + "?symbols=" + join(symbols), this::readStockQuotes);
+    }
+
+    public Map<String, ForexResponseExchangeFlask> fetchForexQuotes(List<String> pairs) throws IOException, InterruptedException {
+        List<ForexResponseExchangeFlask> quotes = send(forexQuotesUrl + "?pairs=" + join(pairs),
+                body -> objectMapper.readValue(body, forexQuotesType));
+        return index(quotes, quote -> quote.getFromCurrency() + "/" + quote.getToCurrency());
+    }
+
+    /**
+     * Barovi serije od najnovijeg, zakljucno sa barom na since (null za celu seriju); greska se propagira pozivaocu.
+     */
+    public List<BarDtoFlask> fetchStockBars(String symbol, TimeSeriesStockEnum timeSeries, String since) throws IOException, InterruptedException {
+        String url = isIntraday(timeSeries)
+                ? stockTimeSeriesIntraDayUrl + "?symbol=" + symbol + "&interval=" + timeSeries.getValue()
+                : stockTimeSeriesUrl + "?symbol=" + symbol + "&time_series=" + timeSeries.getValue();
+        return send(withSince(url, since), this::readBars);
+    }
+
+    public List<BarDtoFlask> fetchForexBars(String fromCurrency, String toCurrency, TimeSeriesForexEnum timeSeries, String since)
+            throws IOException, InterruptedException {
+        boolean intraday = isIntraday(timeSeries);
+        String url = (intraday ? forexTimeSeriesIntraDayUrl : forexTimeSeriesUrl)
+                + "?from_currency=" + fromCurrency + "&to_currency=" + toCurrency
+                + (intraday ? "&interval=" : "&time_series=") + timeSeries.getValue();
+        return send(withSince(url, since), this::readBars);
+    }
+
+    public static boolean isIntraday(Enum<?> timeSeries) {
+        return timeSeries.name().equals("FIVE_MIN") || timeSeries.name().equals("HOUR");
+    }
+
+    private <T> T send(String url, BodyReader<T> reader) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(timeout)
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200)
+                throw new InternalServerError("market data request failed with status " + response.statusCode());
+
+            return reader.read(body);
+        }
+    }
+
+    /**
+     * Cita odgovor token po token direktno iz toka: za svaki simbol se vezuju samo prva dva dana serije
+     * (za cenu i promenu cene), a ostatak serije i nepoznata polja se preskacu bez pravljenja objekata.
+     */
+    private Map<String, StockResponseDtoFlask> readStockQuotes(InputStream body) throws IOException {
+        Map<String, StockResponseDtoFlask> quotes = new HashMap<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY)
+                throw new JsonParseException(parser, "expected an array of stock quotes");
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                StockResponseDtoFlask quote = new StockResponseDtoFlask();
+                quote.setTimeSeries(new ArrayList<>(QUOTE_BARS));
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    switch (field) {
+                        case "symbol" -> quote.setSymbol(parser.getValueAsString());
+                        case "time_series" -> readBars(parser, quote.getTimeSeries());
+                        default -> parser.skipChildren();
+                    }
+                }
+                // bez dva dana ne moze da se izracuna promena cene, pa se takva kotacija preskace
+                if (quote.getSymbol() != null && quote.getTimeSeries().size() == QUOTE_BARS)
+                    quotes.put(quote.getSymbol(), quote);
+            }
+        }
+        return quotes;
+    }
+
+    // odgovor vremenske serije je objekat sa nizom time_series; ostala polja se preskacu
+    private List<BarDtoFlask> readBars(InputStream body) throws IOException {
+        List<BarDtoFlask> bars = new ArrayList<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                return bars;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY && field.equals("time_series")) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT)
+                        bars.add(readBar(parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return bars;
+    }
+
+    private static BarDtoFlask readBar(JsonParser parser) throws IOException {
+        BarDtoFlask bar = new BarDtoFlask();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "date" -> bar.setDate(parser.getValueAsString());
+                case "open" -> bar.setOpen(parser.getValueAsDouble());
+                case "high" -> bar.setHigh(parser.getValueAsDouble());
+                case "low" -> bar.setLow(parser.getValueAsDouble());
+                case "close" -> bar.setClose(parser.getValueAsDouble());
+                case "volume" -> bar.setVolume(parser.getValueAsLong());
+                default -> parser.skipChildren();
+            }
+        }
+        return bar;
+    }
+
+    private void readBars(JsonParser parser, List<StockDtoFlask> bars) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            if (bars.size() < QUOTE_BARS)
+                bars.add(objectMapper.readValue(parser, StockDtoFlask.class));
+            else
+                parser.skipChildren();
+        }
+    }
+
+    private List<List<String>> partition(Collection<String> symbols) {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> batch = new ArrayList<>(batchSize);
+        for (String symbol : symbols) {
+            batch.add(symbol);
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty())
+            batches.add(batch);
+        return batches;
+    }
+
+    private static String withSince(String url, String since) {
+        return since == null ? url : url + "&since=" + URLEncoder.encode(since, StandardCharsets.UTF_8);
+    }
+
+    private static String join(List<String> symbols) {
+        return URLEncoder.encode(String.join(",", symbols), StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface BodyReader<T> {
+
+        T read(InputStream body) throws IOException;
+
+    }
+
+    private static <T> Map<String, T> index(List<T> quotes, Function<T, String> symbolOf) {
+        Map<String, T> bySymbol = new HashMap<>();
+        quotes.forEach(quote -> bySymbol.put(symbolOf.apply(quote), quote));
+        return bySymbol;
+    }
+}
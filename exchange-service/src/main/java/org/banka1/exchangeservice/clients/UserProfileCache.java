@@ -0,0 +1,95 @@
+package org.banka1.exchangeservice.clients;
+
+import org.banka1.exchangeservice.domains.dtos.user.UserDto;
+
+import java.time.Clock;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Kratkotrajni kes profila korisnika, kljuc je subject iz JWT-a.
+ * Velicina je ogranicena (izbacuje se najdavnije koriscen profil), a zapis vazi najvise ttl.
+ */
+public class UserProfileCache {
+
+    private final long ttlMillis;
+    private final int maxSize;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry> entries;
+
+    public UserProfileCache(long ttlMillis, int maxSize, Clock clock) {
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > UserProfileCache.this.maxSize;
+            }
+        };
+    }
+
+    public synchronized UserDto get(String subject) {
+        Entry entry = entries.get(subject);
+        if (entry == null)
+            return null;
+
+        if (entry.expiresAt <= clock.millis()) {
+            entries.remove(subject);
+            return null;
+        }
+        return entry.userDto;
+    }
+
+    public synchronized void put(String subject, UserDto userDto) {
+        if (maxSize > 0)
+            entries.put(subject, new Entry(userDto, clock.millis() + ttlMillis));
+    }
+
+    public synchronized void evict(Predicate<UserDto> predicate) {
+        entries.values().removeIf(entry -> predicate.test(entry.userDto));
+    }
+
+    /**
+     * Izbacuje profile koji zadovoljavaju owner i sve profile koji sa njima dele racun, jer promena stanja racuna
+     * vazi za sve njih. Profili bez racuna se ne vezuju jedni za druge, a ostatak kesa ostaje netaknut.
+     */
+    public synchronized void evictAccountOf(Predicate<UserDto> owner) {
+        Set<Long> accounts = new HashSet<>();
+        for (Entry entry : entries.values()) {
+            Long accountId = accountId(entry.userDto);
+            if (accountId != null && owner.test(entry.userDto))
+                accounts.add(accountId);
+        }
+
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            UserDto userDto = iterator.next().userDto;
+            if (owner.test(userDto) || accounts.contains(accountId(userDto)))
+                iterator.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static Long accountId(UserDto userDto) {
+        return userDto.getBankAccount() == null ? null : userDto.getBankAccount().getId();
+    }
+
+    private static class Entry {
+
+        private final UserDto userDto;
+        private final long expiresAt;
+
+        private Entry(UserDto userDto, long expiresAt) {
+            this.userDto = userDto;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
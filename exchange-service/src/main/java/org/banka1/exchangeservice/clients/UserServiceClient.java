@@ -0,0 +1,279 @@
+package org.banka1.exchangeservice.clients;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.banka1.exchangeservice.domains.dtos.user.FillSettlementDto;
+import org.banka1.exchangeservice.domains.dtos.user.FillSettlementResultDto;
+import org.banka1.exchangeservice.domains.dtos.user.UserDto;
+import org.banka1.exchangeservice.domains.dtos.user.UserListingDto;
+import org.banka1.exchangeservice.domains.dtos.user.UserListingKeyDto;
+import org.banka1.exchangeservice.domains.dtos.user.UserListingPositionDto;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.domains.exceptions.InternalServerError;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jedini klijent ka user servisu. Deli jedan HttpClient (keep-alive, HTTP/2 gde je moguce),
+ * ima timeout po endpoint-u, ogranicen broj istovremenih zahteva i meri latenciju i greske po endpoint-u.
+ * Profil korisnika se kratko kesira, a nase izmene limita i stanja racuna ga odmah izbacuju iz kesa.
+ */
+@Component
+@Slf4j
+public class UserServiceClient {
+
+    enum Endpoint {
+        MY_PROFILE("my-profile"),
+        USER_LISTINGS("user-listings"),
+        POSITION("position"),
+        POSITIONS("positions"),
+        REDUCE_DAILY_LIMIT("reduce-daily-limit"),
+        INCREASE_BALANCE("increase-balance"),
+        DECREASE_BALANCE("decrease-balance"),
+        SETTLE_FILLS("settle-fills");
+
+        private final String key;
+
+        Endpoint(String key) {
+            this.key = key;
+        }
+    }
+
+    private final String userServiceUrl;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore inFlight;
+    private final Map<Endpoint, Duration> timeouts = new EnumMap<>(Endpoint.class);
+    private final UserProfileCache profileCache;
+    private final byte[] jwtSecret;
+
+    public UserServiceClient(@Value("${user.service.endpoint}") String userServiceUrl,
+                             @Value("${user.service.client.connect-timeout:2s}") Duration connectTimeout,
+                             @Value("${user.service.client.max-in-flight:64}") int maxInFlight,
+                             @Value("${user.service.client.profile-cache.ttl:5s}") Duration profileCacheTtl,
+                             @Value("${user.service.client.profile-cache.max-size:1000}") int profileCacheMaxSize,
+                             @Value("${jwt.secret}") String jwtSecret,
+                             Environment environment, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.userServiceUrl = userServiceUrl;
+        this.objectMapper = objectMapper.copy().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.meterRegistry = meterRegistry;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.profileCache = new UserProfileCache(profileCacheTtl.toMillis(), profileCacheMaxSize, Clock.systemUTC());
+        this.jwtSecret = jwtSecret.getBytes(StandardCharsets.UTF_8);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .build();
+
+        Duration defaultTimeout = environment.getProperty("user.service.client.timeout.default", Duration.class, Duration.ofSeconds(5));
+        for (Endpoint endpoint : Endpoint.values()) {
+            timeouts.put(endpoint, environment.getProperty("user.service.client.timeout." + endpoint.key, Duration.class, defaultTimeout));
+        }
+
+        Gauge.builder("user.service.client.in.flight", inFlight, semaphore -> maxInFlight - semaphore.availablePermits())
+                .register(meterRegistry);
+        Gauge.builder("user.service.client.profile.cache.size", profileCache, UserProfileCache::size)
+                .register(meterRegistry);
+    }
+
+    public UserDto getMyProfile(String token) {
+        String subject = subjectOf(token);
+        if (subject != null) {
+            UserDto cached = profileCache.get(subject);
+            meterRegistry.counter("user.service.client.profile.cache", "result", cached == null ? "miss" : "hit").increment();
+            if (cached != null)
+                return cached;
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(userServiceUrl + "/users/my-profile"))
+                .header("Authorization", token)
+                .GET();
+        UserDto userDto = send(Endpoint.MY_PROFILE, request, objectMapper.constructType(UserDto.class));
+        if (subject != null && userDto != null)
+            profileCache.put(subject, userDto);
+        return userDto;
+    }
+
+    public List<UserListingDto> getUserListings(Long userId, String token) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(userServiceUrl + "/user-listings?userId=" + userId))
+                .header("Authorization", token)
+                .GET();
+        return send(Endpoint.USER_LISTINGS, request,
+                objectMapper.getTypeFactory().constructCollectionType(List.class, UserListingDto.class));
+    }
+
+    /**
+     * Jedna pozicija korisnika, ili null ako je korisnik nema.
+     */
+    public UserListingDto getPosition(Long userId, ListingType listingType, String symbol, String token) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(userServiceUrl + "/user-listings/position?userId=" + userId + "&listingType=" + listingType
+                        + "&symbol=" + URLEncoder.encode(symbol, StandardCharsets.UTF_8)))
+                .header("Authorization", token)
+                .GET();
+        return send(Endpoint.POSITION, request, objectMapper.constructType(UserListingDto.class), true);
+    }
+
+    public List<UserListingPositionDto> getPositions(List<UserListingKeyDto> keys, String token) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(userServiceUrl + "/user-listings/positions"))
+                .header("Authorization", token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(write(keys)));
+        return send(Endpoint.POSITIONS, request,
+                objectMapper.getTypeFactory().constructCollectionType(List.class, UserListingPositionDto.class));
+    }
+
+    public void reduceDailyLimit(Long userId, Double decreaseLimit, String token) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(userServiceUrl + "/users/reduce-daily-limit?userId=" + userId + "&decreaseLimit=" + decreaseLimit))
+                .header("Authorization", token)
+                .PUT(HttpRequest.BodyPublishers.noBody());
+        try {
+            send(Endpoint.REDUCE_DAILY_LIMIT, request, null);
+        } finally {
+            profileCache.evict(userDto -> userId.equals(userDto.getId()));
+        }
+    }
+
+    public void increaseBalance(Double increaseAccount, String token) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(userServiceUrl + "/users/increase-balance?increaseAccount=" + increaseAccount))
+                .header("Authorization", token)
+                .PUT(HttpRequest.BodyPublishers.noBody());
+        try {
+            send(Endpoint.INCREASE_BALANCE, request, null);
+        } finally {
+            evictAccountOf(token);
+        }
+    }
+
+    public void decreaseBalance(Double decreaseAccount, String token) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(userServiceUrl + "/users/decrease-balance?decreaseAccount=" + decreaseAccount))
+                .header("Authorization", token)
+                .PUT(HttpRequest.BodyPublishers.noBody());
+        try {
+            send(Endpoint.DECREASE_BALANCE, request, null);
+        } finally {
+            evictAccountOf(token);
+        }
+    }
+
+    /**
+     * Ishod po fill-u; user servis poravnava svakog korisnika posebno i preskace vec poravnate id-jeve.
+     */
+    public List<FillSettlementResultDto> settleFills(List<FillSettlementDto> fills, String token) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(userServiceUrl + "/user-listings/settle"))
+                .header("Authorization", token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(write(fills)));
+        try {
+            return send(Endpoint.SETTLE_FILLS, request,
+                    objectMapper.getTypeFactory().constructCollectionType(List.class, FillSettlementResultDto.class));
+        } finally {
+            fills.stream().map(FillSettlementDto::getUserId).distinct()
+                    .forEach(userId -> profileCache.evictAccountOf(userDto -> userId.equals(userDto.getId())));
+        }
+    }
+
+    private void evictAccountOf(String token) {
+        String subject = subjectOf(token);
+        profileCache.evictAccountOf(userDto -> subject != null && subject.equals(userDto.getEmail()));
+    }
+
+    // subject se cita samo iz tokena sa validnim potpisom, kao u CustomAuthorizationFilter-u
+    private String subjectOf(String token) {
+        if (token == null || !token.startsWith("Bearer "))
+            return null;
+        try {
+            return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token.substring("Bearer ".length())).getBody().getSubject();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private String write(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (IOException e) {
+            throw new InternalServerError("could not serialize request body: " + e.getMessage());
+        }
+    }
+
+    private <T> T send(Endpoint endpoint, HttpRequest.Builder requestBuilder, JavaType responseType) {
+        return send(endpoint, requestBuilder, responseType, false);
+    }
+
+    private <T> T send(Endpoint endpoint, HttpRequest.Builder requestBuilder, JavaType responseType, boolean notFoundAsNull) {
+        Duration timeout = timeouts.get(endpoint);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        boolean acquired = false;
+        try {
+            acquired = inFlight.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (!acquired) {
+                outcome = "rejected";
+                throw new InternalServerError("too many requests in flight to user service");
+            }
+
+            HttpResponse<String> response = httpClient.send(requestBuilder.timeout(timeout).build(), HttpResponse.BodyHandlers.ofString());
+            if (notFoundAsNull && response.statusCode() == 404) {
+                outcome = "not_found";
+                return null;
+            }
+            if (response.statusCode() / 100 != 2) {
+                outcome = "status_" + response.statusCode();
+                throw new InternalServerError("user service " + endpoint.key + " returned status " + response.statusCode());
+            }
+
+            return responseType == null ? null : objectMapper.readValue(response.body(), responseType);
+        } catch (HttpTimeoutException e) {
+            outcome = "timeout";
+            throw new InternalServerError("user service " + endpoint.key + " timed out");
+        } catch (IOException e) {
+            outcome = "io_error";
+            throw new InternalServerError("user service " + endpoint.key + " failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = "interrupted";
+            throw new InternalServerError("user service " + endpoint.key + " call was interrupted");
+        } finally {
+            if (acquired)
+                inFlight.release();
+
+            sample.stop(meterRegistry.timer("user.service.client.requests", "endpoint", endpoint.key, "outcome", outcome));
+            if (!outcome.equals("success") && !outcome.equals("not_found")) {
+                meterRegistry.counter("user.service.client.errors", "endpoint", endpoint.key, "outcome", outcome).increment();
+                log.warn("User service call {} failed with outcome {}", endpoint.key, outcome);
+            }
+        }
+    }
+}
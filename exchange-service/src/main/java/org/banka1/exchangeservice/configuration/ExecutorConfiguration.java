@@ -0,0 +1,76 @@
+package org.banka1.exchangeservice.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfiguration {
+
+    @Value("${order.executor.core-pool-size:8}")
+    private int orderCorePoolSize;
+
+    @Value("${order.executor.max-pool-size:16}")
+    private int orderMaxPoolSize;
+
+    @Value("${order.executor.queue-capacity:1000}")
+    private int orderQueueCapacity;
+
+    @Value("${market.refresh.concurrency:16}")
+    private int refreshConcurrency;
+
+    @Value("${market.revalidate.threads:2}")
+    private int revalidateThreads;
+
+    @Value("${market.revalidate.queue-capacity:100}")
+    private int revalidateQueueCapacity;
+
+    @Value("${market.stream.threads:4}")
+    private int streamThreads;
+
+    @Bean
+    public ThreadPoolTaskExecutor orderExecutor() {
+        ThreadPoolTaskExecutor threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+        threadPoolTaskExecutor.setCorePoolSize(orderCorePoolSize);
+        threadPoolTaskExecutor.setMaxPoolSize(orderMaxPoolSize);
+        threadPoolTaskExecutor.setQueueCapacity(orderQueueCapacity);
+        threadPoolTaskExecutor.setThreadNamePrefix("OrderExecutor-");
+        // kada se red napuni, nalog obradjuje nit koja ga je primila, sto usporava prijem umesto da ga odbije
+        threadPoolTaskExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return threadPoolTaskExecutor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor refreshExecutor() {
+        ThreadPoolTaskExecutor threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+        // broj niti je ujedno i najveci broj istovremenih poziva ka flask servisu
+        threadPoolTaskExecutor.setCorePoolSize(refreshConcurrency);
+        threadPoolTaskExecutor.setMaxPoolSize(refreshConcurrency);
+        threadPoolTaskExecutor.setThreadNamePrefix("QuoteRefresher-");
+        return threadPoolTaskExecutor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor revalidationExecutor() {
+        ThreadPoolTaskExecutor threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+        // revalidacija ceka na delove koji rade na refreshExecutor-u, pa ne sme da zauzima njegove niti
+        threadPoolTaskExecutor.setCorePoolSize(revalidateThreads);
+        threadPoolTaskExecutor.setMaxPoolSize(revalidateThreads);
+        threadPoolTaskExecutor.setQueueCapacity(revalidateQueueCapacity);
+        threadPoolTaskExecutor.setThreadNamePrefix("QuoteRevalidator-");
+        return threadPoolTaskExecutor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor streamExecutor() {
+        ThreadPoolTaskExecutor threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+        // u redu je najvise jedan zadatak po websocket konekciji, pa red ne raste sa brojem kotacija
+        threadPoolTaskExecutor.setCorePoolSize(streamThreads);
+        threadPoolTaskExecutor.setMaxPoolSize(streamThreads);
+        threadPoolTaskExecutor.setThreadNamePrefix("QuoteStream-");
+        return threadPoolTaskExecutor;
+    }
+}
@@ -0,0 +1,29 @@
+package org.banka1.exchangeservice.configuration;
+
+import org.banka1.exchangeservice.messaging.RingBufferTickTransport;
+import org.banka1.exchangeservice.services.OrderService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Kada je market.ticks.transport=in-process, potrosaci prstena predaju tick-ove direktno OrderService-u.
+ */
+@Configuration
+@ConditionalOnProperty(name = "market.ticks.transport", havingValue = "in-process")
+public class InProcessTickConfiguration {
+
+    private final RingBufferTickTransport ringBufferTickTransport;
+    private final OrderService orderService;
+
+    public InProcessTickConfiguration(RingBufferTickTransport ringBufferTickTransport, OrderService orderService) {
+        this.ringBufferTickTransport = ringBufferTickTransport;
+        this.orderService = orderService;
+    }
+
+    @PostConstruct
+    public void start() {
+        ringBufferTickTransport.start(orderService::receiveQuote);
+    }
+}
@@ -1,6 +1,10 @@
 package org.banka1.exchangeservice.configuration;
 
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.messaging.TickMessageConverter;
+import org.banka1.exchangeservice.messaging.TickPartitions;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
@@ -10,6 +14,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabbitMQConfiguration {
 
@@ -25,47 +32,55 @@ public class RabbitMQConfiguration {
     @Value("${rabbitmq.exchange.name}")
     private String exchange;
 
-    @Value("${rabbitmq.queue.forex.name}")
-    private String forexQueue;
-
-    @Value("${rabbitmq.queue.stock.name}")
-    private String stockQueue;
-
-    @Value("${rabbitmq.routing.forex.key}")
-    private String forexRoutingKey;
-
-    @Value("${rabbitmq.routing.stock.key}")
-    private String stockRoutingKey;
+    @Value("${rabbitmq.tick.prefetch:250}")
+    private int tickPrefetch;
 
-    @Bean
-    public Queue forexQueue(){
-        return new Queue(forexQueue);
-    }
+    @Value("${rabbitmq.tick.batch-size:100}")
+    private int tickBatchSize;
 
-    @Bean
-    public Queue stockQueue(){
-        return new Queue(stockQueue);
-    }
+    @Value("${rabbitmq.tick.receive-timeout-ms:100}")
+    private long tickReceiveTimeoutMs;
 
     @Bean
     public TopicExchange exchange(){
         return new TopicExchange(exchange);
     }
 
+    /**
+     * Po jedan red i binding za svaku particiju stock i forex tick-ova.
+     */
     @Bean
-    public Binding forexBinding(){
-        return BindingBuilder
-                .bind(forexQueue())
-                .to(exchange())
-                .with(forexRoutingKey);
+    public Declarables tickQueues(TickPartitions tickPartitions) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (ListingType listingType : ListingType.values()) {
+            for (int partition = 0; partition < tickPartitions.getPartitions(); partition++) {
+                Queue queue = new Queue(tickPartitions.queue(listingType, partition));
+                declarables.add(queue);
+                declarables.add(BindingBuilder.bind(queue).to(exchange()).with(tickPartitions.routingKey(listingType, partition)));
+            }
+        }
+        return new Declarables(declarables);
     }
 
+    /**
+     * Jedan potrosac po redu particije, da bi tick-ovi jednog simbola ostali u redosledu;
+     * prefetch odredjuje koliko poruka broker salje unapred svakom potrosacu. Poruke se predaju u paketima
+     * do batch-size poruka, a paket se zatvara i ranije ako nova poruka ne stigne za receive-timeout-ms.
+     */
     @Bean
-    public Binding stockBinding(){
-        return BindingBuilder
-                .bind(stockQueue())
-                .to(exchange())
-                .with(stockRoutingKey);
+    public SimpleRabbitListenerContainerFactory tickListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                             TickMessageConverter tickMessageConverter) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        factory.setPrefetchCount(Math.max(tickPrefetch, tickBatchSize));
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(tickBatchSize);
+        factory.setReceiveTimeout(tickReceiveTimeoutMs);
+        factory.setMessageConverter(tickMessageConverter);
+        return factory;
     }
 
     @Bean
@@ -73,6 +88,9 @@ public class RabbitMQConfiguration {
         CachingConnectionFactory cachingConnectionFactory = new CachingConnectionFactory(host);
         cachingConnectionFactory.setUsername(username);
         cachingConnectionFactory.setPassword(password);
+        // potvrde i vracene poruke za TickPublisher
+        cachingConnectionFactory.setPublisherConfirmType(CachingConnectionFactory.ConfirmType.CORRELATED);
+        cachingConnectionFactory.setPublisherReturns(true);
         return cachingConnectionFactory;
     }
 
@@ -0,0 +1,60 @@
+package org.banka1.exchangeservice.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.messaging.TickBatchListener;
+import org.banka1.exchangeservice.messaging.TickMessageConverter;
+import org.banka1.exchangeservice.messaging.TickPartitions;
+import org.banka1.exchangeservice.services.OrderService;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.rabbit.annotation.EnableRabbit;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registruje po jedan listener kontejner za svaki red particije (vidi TickPartitions);
+ * svaki kontejner predaje poruke u paketima TickBatchListener-u.
+ */
+@Configuration
+@ConditionalOnProperty(name = "market.ticks.transport", havingValue = "rabbitmq", matchIfMissing = true)
+@EnableRabbit
+public class TickListenerConfiguration implements RabbitListenerConfigurer {
+
+    private final OrderService orderService;
+    private final TickPartitions tickPartitions;
+    private final SimpleRabbitListenerContainerFactory tickListenerContainerFactory;
+    private final TickMessageConverter tickMessageConverter;
+    private final MeterRegistry meterRegistry;
+
+    public TickListenerConfiguration(OrderService orderService, TickPartitions tickPartitions,
+                                     @Qualifier("tickListenerContainerFactory") SimpleRabbitListenerContainerFactory tickListenerContainerFactory,
+                                     TickMessageConverter tickMessageConverter, MeterRegistry meterRegistry) {
+        this.orderService = orderService;
+        this.tickPartitions = tickPartitions;
+        this.tickListenerContainerFactory = tickListenerContainerFactory;
+        this.tickMessageConverter = tickMessageConverter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        for (int partition = 0; partition < tickPartitions.getPartitions(); partition++) {
+            for (ListingType listingType : ListingType.values())
+                register(registrar, listingType, partition,
+                        new TickBatchListener(listingType, orderService::receiveTick, tickMessageConverter, meterRegistry));
+        }
+    }
+
+    private void register(RabbitListenerEndpointRegistrar registrar, ListingType listingType, int partition, MessageListener listener) {
+        SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+        endpoint.setId(listingType.name().toLowerCase() + "-ticks-" + partition);
+        endpoint.setQueueNames(tickPartitions.queue(listingType, partition));
+        endpoint.setMessageListener(listener);
+        registrar.registerEndpoint(endpoint, tickListenerContainerFactory);
+    }
+}
@@ -0,0 +1,23 @@
+package org.banka1.exchangeservice.configuration;
+
+import org.banka1.exchangeservice.stream.QuoteStreamHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfiguration implements WebSocketConfigurer {
+
+    private final QuoteStreamHandler quoteStreamHandler;
+
+    public WebSocketConfiguration(QuoteStreamHandler quoteStreamHandler) {
+        this.quoteStreamHandler = quoteStreamHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(quoteStreamHandler, "/ws/quotes").setAllowedOriginPatterns("*");
+    }
+}
@@ -11,6 +11,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
+
 @CrossOrigin
 @RestController
 @RequestMapping("/api/orders")
@@ -32,8 +34,14 @@ public class  OrderController {
     }
 
     @PostMapping(value = "/make-order")
-    public ResponseEntity<?> makeOrder(@RequestHeader("Authorization") String token, @RequestBody OrderRequest orderRequest){
-        return ResponseEntity.ok(orderService.makeOrder(orderRequest, token));
+    public ResponseEntity<?> makeOrder(@RequestHeader("Authorization") String token, @RequestBody OrderRequest orderRequest,
+                                       @RequestAttribute("userId") Long userId, Principal principal){
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(orderService.makeOrder(orderRequest, userId, principal.getName(), token));
+    }
+
+    @GetMapping(value = "/status/{orderId}")
+    public ResponseEntity<?> getOrderStatus(@PathVariable Long orderId, @RequestAttribute("userId") Long userId){
+        return ResponseEntity.ok(orderService.getOrderStatus(orderId, userId));
     }
 
     @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_SUPERVISOR')")
@@ -0,0 +1,23 @@
+package org.banka1.exchangeservice.controllers;
+
+import lombok.AllArgsConstructor;
+import org.banka1.exchangeservice.refresh.RefreshScheduler;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/api/refresh")
+@AllArgsConstructor
+public class RefreshController {
+
+    private final RefreshScheduler refreshScheduler;
+
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_SUPERVISOR')")
+    @GetMapping(value = "/cadence", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getRefreshCadence() {
+        return ResponseEntity.ok(refreshScheduler.cadences());
+    }
+}
@@ -0,0 +1,21 @@
+package org.banka1.exchangeservice.domains.dtos.listing;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Bar vremenske serije iz flask servisa, isti za akcije i forex; forex barovi nemaju volume, pa ostaje 0.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BarDtoFlask {
+
+    private String date;
+    private double open;
+    private double high;
+    private double low;
+    private double close;
+    private long volume;
+}
@@ -0,0 +1,24 @@
+package org.banka1.exchangeservice.domains.dtos.listing;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Hartija iz liste zajedno sa vremenom poslednjeg osvezavanja; polja hartije se serijalizuju ravno, kao i ranije.
+ * stale znaci da je kotacija starija od dozvoljenog i da je osvezavanje zakazano u pozadini.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ListingFreshnessDto<T> {
+
+    @JsonUnwrapped
+    private T listing;
+    private LocalDateTime lastRefresh;
+    private boolean stale;
+
+}
@@ -0,0 +1,30 @@
+package org.banka1.exchangeservice.domains.dtos.listing;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+
+/**
+ * Trenutna ucestalost osvezavanja jednog simbola i signali od kojih je izracunata.
+ * priority je od 0 (osvezava se na market.refresh.max-interval) do 1 (na market.refresh.min-interval),
+ * a lastRefresh i nextRefresh su u milisekundama od epohe.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RefreshCadenceDto {
+
+    private ListingType listingType;
+    private String symbol;
+    private double priority;
+    private long intervalSeconds;
+    private long lastRefresh;
+    private long nextRefresh;
+    private boolean marketOpen;
+    private long openOrders;
+    private double views;
+    private double volatility;
+    private int subscribers;
+
+}
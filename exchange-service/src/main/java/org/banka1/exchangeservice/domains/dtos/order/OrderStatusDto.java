@@ -0,0 +1,21 @@
+package org.banka1.exchangeservice.domains.dtos.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.banka1.exchangeservice.domains.entities.OrderStatus;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderStatusDto {
+
+    private Long id;
+    private OrderStatus orderStatus;
+    private Integer remainingQuantity;
+    private Boolean done;
+    private Date lastModified;
+
+}
@@ -0,0 +1,22 @@
+package org.banka1.exchangeservice.domains.dtos.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+
+import java.util.List;
+
+/**
+ * Poruka klijenta na /ws/quotes, npr. {"action":"subscribe","listingType":"STOCK","symbols":["AAPL","MSFT"]}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class QuoteSubscriptionRequest {
+
+    private String action;
+    private ListingType listingType;
+    private List<String> symbols;
+
+}
@@ -0,0 +1,24 @@
+package org.banka1.exchangeservice.domains.dtos.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+
+import java.util.List;
+
+/**
+ * Odgovor na poruku klijenta: koji simboli su prihvaceni, a koji odbijeni (nepoznat simbol ili dostignut limit).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class QuoteSubscriptionResponse {
+
+    private String action;
+    private ListingType listingType;
+    private List<String> accepted;
+    private List<String> rejected;
+    private String message;
+
+}
@@ -0,0 +1,24 @@
+package org.banka1.exchangeservice.domains.dtos.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+
+/**
+ * Kotacija koja se salje pretplacenim klijentima; timestamp je u milisekundama od epohe.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class QuoteUpdateDto {
+
+    private ListingType listingType;
+    private String symbol;
+    private double last;
+    private double bid;
+    private double ask;
+    private long volume;
+    private long timestamp;
+
+}
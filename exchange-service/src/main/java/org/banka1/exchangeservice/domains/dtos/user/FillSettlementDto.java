@@ -0,0 +1,21 @@
+package org.banka1.exchangeservice.domains.dtos.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FillSettlementDto {
+
+    // id naloga i kolicina izvrsena pre ovog fill-a, pa ponovljeno poravnanje istog fill-a ima isti id
+    private String settlementId;
+    private Long userId;
+    private ListingType listingType;
+    private String symbol;
+    private int quantityDelta;
+    private double cashDelta;
+
+}
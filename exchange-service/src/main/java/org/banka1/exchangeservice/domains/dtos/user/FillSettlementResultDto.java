@@ -0,0 +1,19 @@
+package org.banka1.exchangeservice.domains.dtos.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ishod poravnanja jednog fill-a u user servisu. Za fill poravnat ranije quantityDelta je ona iz tog poravnanja.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FillSettlementResultDto {
+
+    private String settlementId;
+    private boolean settled;
+    private int quantityDelta;
+
+}
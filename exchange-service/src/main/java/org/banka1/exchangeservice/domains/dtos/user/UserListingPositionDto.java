@@ -0,0 +1,19 @@
+package org.banka1.exchangeservice.domains.dtos.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserListingPositionDto {
+
+    private Long userId;
+    private Long id;
+    private ListingType listingType;
+    private String symbol;
+    private int quantity;
+
+}
@@ -57,6 +57,10 @@ public class Order {
     @ColumnDefault("false")
     private Boolean done = false;
 
+    // stop i stop-limit nalog koji je aktiviran; tip naloga ostaje isti
+    @ColumnDefault("false")
+    private Boolean triggered = false;
+
     private Date lastModified;
 
 }
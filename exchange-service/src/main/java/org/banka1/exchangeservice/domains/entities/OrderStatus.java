@@ -2,6 +2,7 @@ package org.banka1.exchangeservice.domains.entities;
 
 public enum OrderStatus {
 
+    PENDING,
     APPROVED,
     REJECTED,
     ON_HOLD
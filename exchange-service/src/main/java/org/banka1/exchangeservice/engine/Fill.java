@@ -0,0 +1,15 @@
+package org.banka1.exchangeservice.engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.banka1.exchangeservice.domains.entities.Order;
+
+@Getter
+@AllArgsConstructor
+public class Fill {
+
+    private final Order order;
+    private final int quantity;
+    private final double price;
+
+}
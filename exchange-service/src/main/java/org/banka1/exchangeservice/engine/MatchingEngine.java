@@ -0,0 +1,97 @@
+package org.banka1.exchangeservice.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.domains.entities.Order;
+import org.banka1.exchangeservice.domains.entities.OrderStatus;
+import org.banka1.exchangeservice.repositories.OrderRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@Slf4j
+public class MatchingEngine {
+
+    private final OrderRepository orderRepository;
+    private final Map<String, OrderBook> books = new ConcurrentHashMap<>();
+
+    public MatchingEngine(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    public List<Fill> submit(Order order, double askPrice, double bidPrice, long liquidity) {
+        return getBook(order.getListingType(), order.getListingSymbol()).submit(order, askPrice, bidPrice, liquidity);
+    }
+
+    /**
+     * Ostavlja nalog u knjizi bez izvrsavanja, npr. kada je trziste zatvoreno; izvrsava ga prva kotacija posle otvaranja.
+     */
+    public void restore(Order order) {
+        getBook(order.getListingType(), order.getListingSymbol()).restore(order);
+    }
+
+    /**
+     * Ucitava knjigu simbola ako jos nije u memoriji. Poziva se pre nego sto se nalog odobri: kasnije ucitavanje
+     * bi iz baze vratilo drugu instancu istog naloga, pa bi knjiga odbila instancu koju pozivalac izvrsava.
+     */
+    public void load(ListingType listingType, String symbol) {
+        getBook(listingType, symbol);
+    }
+
+    public void cancel(Order order) {
+        OrderBook orderBook = books.get(key(order.getListingType(), order.getListingSymbol()));
+        if (orderBook != null)
+            orderBook.cancel(order.getId());
+    }
+
+    /**
+     * Upisuje fill-ove u knjigu tek posle uspesnog poravnanja. Svi fill-ovi jednog poziva su istog simbola.
+     */
+    public void apply(List<Fill> fills) {
+        if (fills.isEmpty())
+            return;
+        Order order = fills.get(0).getOrder();
+        getBook(order.getListingType(), order.getListingSymbol()).apply(fills);
+    }
+
+    public boolean contains(Order order) {
+        OrderBook orderBook = books.get(key(order.getListingType(), order.getListingSymbol()));
+        return orderBook != null && orderBook.contains(order.getId());
+    }
+
+    public List<Fill> onQuote(ListingType listingType, String symbol, double askPrice, double bidPrice, long liquidity) {
+        return getBook(listingType, symbol).match(askPrice, bidPrice, liquidity);
+    }
+
+    /**
+     * Stop nalozi simbola aktivirani od poslednjeg poziva, da bi se aktivacija upisala u journal.
+     */
+    public List<Order> takeTriggered(ListingType listingType, String symbol) {
+        OrderBook orderBook = books.get(key(listingType, symbol));
+        return orderBook == null ? List.of() : orderBook.takeTriggered();
+    }
+
+    private OrderBook getBook(ListingType listingType, String symbol) {
+        return books.computeIfAbsent(key(listingType, symbol), key -> loadBook(listingType, symbol));
+    }
+
+    // knjiga se puni iz baze samo prvi put kada se simbol pojavi, posle toga je stanje u memoriji
+    private OrderBook loadBook(ListingType listingType, String symbol) {
+        OrderBook orderBook = new OrderBook(listingType, symbol);
+        orderRepository.findAllByListingTypeAndListingSymbolAndDone(listingType, symbol, false).stream()
+                .filter(order -> order.getOrderStatus() == OrderStatus.APPROVED)
+                .sorted(Comparator.comparing(Order::getId))
+                .forEach(orderBook::restore);
+
+        log.info("Loaded order book for {} {} with {} open orders", listingType, symbol, orderBook.size());
+        return orderBook;
+    }
+
+    private static String key(ListingType listingType, String symbol) {
+        return listingType.name() + ":" + symbol;
+    }
+}
@@ -0,0 +1,225 @@
+package org.banka1.exchangeservice.engine;
+
+import lombok.Getter;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.domains.entities.Order;
+import org.banka1.exchangeservice.domains.entities.OrderAction;
+import org.banka1.exchangeservice.domains.entities.OrderType;
+
+import java.util.*;
+
+/**
+ * Knjiga naloga za jedan simbol. Nalozi koji cekaju su sortirani po ceni, pa po vremenu prijema,
+ * i izvrsavaju se protiv kotacije koja stigne sa berze (ask za BUY, bid za SELL).
+ * Likvidnost jedne kotacije se trosi redom, pa raniji nalog na boljoj ceni uvek ima prednost.
+ * submit i match samo planiraju fill-ove, a kolicine se smanjuju tek u apply, kada je poravnanje uspelo.
+ * Aktiviran stop nalog zadrzava svoj tip i dobija oznaku triggered, koju pozivalac preuzima kroz takeTriggered i perzistuje.
+ */
+public class OrderBook {
+
+    @Getter
+    private final ListingType listingType;
+    @Getter
+    private final String symbol;
+
+    private final NavigableMap<Double, Deque<Order>> bids = new TreeMap<>(Comparator.reverseOrder());
+    private final NavigableMap<Double, Deque<Order>> asks = new TreeMap<>();
+    private final TriggerIndex stops = new TriggerIndex();
+    private final Map<Long, Order> orders = new HashMap<>();
+    private final List<Order> newlyTriggered = new ArrayList<>();
+
+    public OrderBook(ListingType listingType, String symbol) {
+        this.listingType = listingType;
+        this.symbol = symbol;
+    }
+
+    /**
+     * Prima nov nalog i ostavlja ga u knjizi, a vraca fill koji kotacija odmah dostize.
+     */
+    public synchronized List<Fill> submit(Order order, double askPrice, double bidPrice, long liquidity) {
+        if (orders.putIfAbsent(order.getId(), order) != null)
+            return Collections.emptyList();
+
+        if (isWaitingStop(order)) {
+            if (!isTriggered(order, askPrice, bidPrice)) {
+                stops.add(order);
+                return Collections.emptyList();
+            }
+            trigger(order);
+        }
+
+        List<Fill> fills = new ArrayList<>();
+        if (isMarketable(order, askPrice, bidPrice)) {
+            double price = order.getOrderAction() == OrderAction.BUY ? askPrice : bidPrice;
+            int quantity = fillQuantity(order, liquidity);
+            if (quantity > 0)
+                fills.add(new Fill(order, quantity, price));
+        }
+
+        rest(order);
+        return fills;
+    }
+
+    /**
+     * Vraca nalog u knjigu bez izvrsavanja, koristi se pri ucitavanju otvorenih naloga iz baze.
+     * Vec aktiviran stop nalog se vraca na svoju stranu knjige, a ne u indeks stop naloga.
+     */
+    public synchronized void restore(Order order) {
+        if (orders.putIfAbsent(order.getId(), order) != null)
+            return;
+
+        if (isWaitingStop(order))
+            stops.add(order);
+        else
+            rest(order);
+    }
+
+    public synchronized boolean cancel(Long orderId) {
+        Order order = orders.remove(orderId);
+        if (order == null)
+            return false;
+
+        if (isWaitingStop(order) && stops.remove(order))
+            return true;
+
+        removeResting(order);
+        return true;
+    }
+
+    /**
+     * Upisuje poravnate fill-ove: smanjuje preostale kolicine i uklanja izvrsene naloge iz knjige.
+     * Fill-ovi koji nisu poravnati se ne upisuju, pa ih sledeca kotacija ponovo nalazi.
+     */
+    public synchronized void apply(List<Fill> fills) {
+        for (Fill fill : fills) {
+            Order order = fill.getOrder();
+            order.setRemainingQuantity(order.getRemainingQuantity() - fill.getQuantity());
+            if (order.getRemainingQuantity() == 0) {
+                order.setDone(true);
+                if (orders.remove(order.getId(), order))
+                    removeResting(order);
+            }
+        }
+    }
+
+    /**
+     * Izvrsava sve naloge koje nova kotacija dostize, po prioritetu cena pa vreme.
+     * Obilaze se samo nivoi koji se ukrstaju sa kotacijom.
+     */
+    public synchronized List<Fill> match(double askPrice, double bidPrice, long liquidity) {
+        triggerStops(askPrice, bidPrice);
+
+        List<Fill> fills = new ArrayList<>();
+        matchSide(bids, askPrice, liquidity, fills);
+        matchSide(asks, bidPrice, liquidity, fills);
+        return fills;
+    }
+
+    /**
+     * Stop nalozi aktivirani od poslednjeg poziva.
+     */
+    public synchronized List<Order> takeTriggered() {
+        if (newlyTriggered.isEmpty())
+            return Collections.emptyList();
+        List<Order> taken = new ArrayList<>(newlyTriggered);
+        newlyTriggered.clear();
+        return taken;
+    }
+
+    public synchronized int size() {
+        return orders.size();
+    }
+
+    public synchronized int pendingStops() {
+        return stops.size();
+    }
+
+    public synchronized boolean contains(Long orderId) {
+        return orders.containsKey(orderId);
+    }
+
+    private void matchSide(NavigableMap<Double, Deque<Order>> side, double price, long liquidity, List<Fill> fills) {
+        // za bids je komparator obrnut, pa headMap u oba slucaja vraca nivoe koji se ukrstaju sa cenom
+        Iterator<Map.Entry<Double, Deque<Order>>> levels = side.headMap(price, true).entrySet().iterator();
+        while (levels.hasNext() && liquidity > 0) {
+            Iterator<Order> iterator = levels.next().getValue().iterator();
+            while (iterator.hasNext() && liquidity > 0) {
+                Order order = iterator.next();
+                int quantity = fillQuantity(order, liquidity);
+                if (quantity == 0)
+                    continue;
+
+                fills.add(new Fill(order, quantity, price));
+                liquidity -= quantity;
+            }
+        }
+    }
+
+    private void triggerStops(double askPrice, double bidPrice) {
+        for (Order order : stops.trigger(askPrice, bidPrice)) {
+            trigger(order);
+            rest(order);
+        }
+    }
+
+    private void rest(Order order) {
+        side(order).computeIfAbsent(restingPrice(order), price -> new ArrayDeque<>()).addLast(order);
+    }
+
+    private void removeResting(Order order) {
+        NavigableMap<Double, Deque<Order>> side = side(order);
+        Double price = restingPrice(order);
+        Deque<Order> level = side.get(price);
+        if (level != null) {
+            level.remove(order);
+            if (level.isEmpty())
+                side.remove(price);
+        }
+    }
+
+    private NavigableMap<Double, Deque<Order>> side(Order order) {
+        return order.getOrderAction() == OrderAction.BUY ? bids : asks;
+    }
+
+    private static int fillQuantity(Order order, long liquidity) {
+        int quantity = (int) Math.min(order.getRemainingQuantity(), liquidity);
+        if (order.isAllOrNone() && quantity < order.getRemainingQuantity())
+            return 0;
+        return quantity;
+    }
+
+    private static Double restingPrice(Order order) {
+        if (isMarket(order))
+            return order.getOrderAction() == OrderAction.BUY ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+        return order.getLimitValue();
+    }
+
+    private static boolean isWaitingStop(Order order) {
+        return (order.getOrderType() == OrderType.STOP_ORDER || order.getOrderType() == OrderType.STOP_LIMIT_ORDER)
+                && !Boolean.TRUE.equals(order.getTriggered());
+    }
+
+    // stop nalog posle aktivacije se izvrsava kao market, a stop-limit ostaje da ceka na svom limitu
+    private static boolean isMarket(Order order) {
+        return order.getOrderType() == OrderType.MARKET_ORDER || order.getOrderType() == OrderType.STOP_ORDER;
+    }
+
+    private static boolean isTriggered(Order order, double askPrice, double bidPrice) {
+        if (order.getOrderAction() == OrderAction.BUY)
+            return order.getStopValue() < askPrice;
+        return order.getStopValue() > bidPrice;
+    }
+
+    private void trigger(Order order) {
+        order.setTriggered(true);
+        newlyTriggered.add(order);
+    }
+
+    private static boolean isMarketable(Order order, double askPrice, double bidPrice) {
+        if (isMarket(order))
+            return true;
+        if (order.getOrderAction() == OrderAction.BUY)
+            return askPrice <= order.getLimitValue();
+        return bidPrice >= order.getLimitValue();
+    }
+}
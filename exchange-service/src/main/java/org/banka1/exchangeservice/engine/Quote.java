@@ -0,0 +1,19 @@
+package org.banka1.exchangeservice.engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Nepromenljiva kotacija jednog simbola; zamenjuje se cela, pa citaoci nikad ne vide delimicno azuriranu cenu.
+ */
+@Getter
+@AllArgsConstructor
+public class Quote {
+
+    private final double last;
+    private final double bid;
+    private final double ask;
+    private final long volume;
+    private final long timestamp;
+
+}
@@ -0,0 +1,97 @@
+package org.banka1.exchangeservice.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.banka1.exchangeservice.domains.entities.Forex;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.domains.entities.Stock;
+import org.banka1.exchangeservice.domains.exceptions.NotFoundExceptions;
+import org.banka1.exchangeservice.repositories.ForexRepository;
+import org.banka1.exchangeservice.repositories.StockRepository;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Poslednja kotacija za svaki simbol, u memoriji celog procesa. Pune je refresh metode StockService-a
+ * i ForexService-a, a sve cene za naloge i opcije se citaju odavde umesto iz baze.
+ * Baza se cita samo kada simbol jos nije u snapshot-u (npr. odmah posle pokretanja).
+ */
+@Component
+@Slf4j
+public class QuoteSnapshot {
+
+    private final StockRepository stockRepository;
+    private final ForexRepository forexRepository;
+    private final Map<String, Quote> quotes = new ConcurrentHashMap<>();
+
+    public QuoteSnapshot(StockRepository stockRepository, ForexRepository forexRepository) {
+        this.stockRepository = stockRepository;
+        this.forexRepository = forexRepository;
+    }
+
+    /**
+     * Zamenjuje kotaciju hartije i vraca novu, ili null ako hartija jos nema cenu.
+     */
+    public Quote update(Stock stock) {
+        if (stock.getSymbol() == null || stock.getPrice() == null)
+            return null;
+
+        long volume = stock.getVolume() == null ? 0 : stock.getVolume();
+        Quote quote = new Quote(stock.getPrice(), stock.getPrice(), stock.getPrice(), volume, timestamp(stock.getLastRefresh()));
+        quotes.put(key(ListingType.STOCK, stock.getSymbol()), quote);
+        return quote;
+    }
+
+    public Quote update(Forex forex) {
+        if (forex.getSymbol() == null || forex.getExchangeRate() == null)
+            return null;
+
+        double rate = forex.getExchangeRate();
+        double bid = forex.getBidPrice() == null ? rate : forex.getBidPrice();
+        double ask = forex.getAskPrice() == null ? rate : forex.getAskPrice();
+        Quote quote = new Quote(rate, bid, ask, 0, timestamp(forex.getLastRefresh()));
+        quotes.put(key(ListingType.FOREX, forex.getSymbol()), quote);
+        return quote;
+    }
+
+    public Quote get(ListingType listingType, String symbol) {
+        Quote quote = quotes.get(key(listingType, symbol));
+        if (quote == null)
+            quote = load(listingType, symbol);
+        if (quote == null)
+            throw new NotFoundExceptions("no quote for " + listingType + " " + symbol);
+        return quote;
+    }
+
+    public int size() {
+        return quotes.size();
+    }
+
+    private Quote load(ListingType listingType, String symbol) {
+        if (listingType == ListingType.STOCK) {
+            Stock stock = stockRepository.findBySymbol(symbol);
+            if (stock != null)
+                update(stock);
+        } else if (listingType == ListingType.FOREX) {
+            Forex forex = forexRepository.findBySymbol(symbol);
+            if (forex != null)
+                update(forex);
+        }
+
+        log.debug("Quote for {} {} loaded from database", listingType, symbol);
+        return quotes.get(key(listingType, symbol));
+    }
+
+    private static long timestamp(LocalDateTime lastRefresh) {
+        if (lastRefresh == null)
+            return System.currentTimeMillis();
+        return lastRefresh.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static String key(ListingType listingType, String symbol) {
+        return listingType.name() + ":" + symbol;
+    }
+}
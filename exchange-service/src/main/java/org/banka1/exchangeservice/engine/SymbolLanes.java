@@ -0,0 +1,156 @@
+package org.banka1.exchangeservice.engine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Fiksan broj jednonitnih traka; svaki simbol uvek ide na istu traku (po hash-u), pa se tick-ovi i
+ * admin akcije za jedan simbol izvrsavaju redom bez zakljucavanja, a razliciti simboli paralelno.
+ * Posao ne sme da ceka na drugi posao iste trake jer bi se traka zaglavila.
+ * Red trake je ogranicen (order.lanes.queue-capacity): kad je pun, pozivalac ceka na mesto u redu, pa se
+ * zagusenje prenosi na izvor tick-ova umesto da red raste bez granice. Tick-ovi idu kroz executeLatest,
+ * gde u redu stoji najvise jedan posao po simbolu i izvrsava se sa najnovijom kotacijom.
+ */
+@Component
+@Slf4j
+public class SymbolLanes {
+
+    private final ThreadPoolExecutor[] lanes;
+    private final Map<String, Latest> latest = new ConcurrentHashMap<>();
+    private final Counter blocked;
+    private final Counter conflated;
+
+    public SymbolLanes(@Value("${order.lanes.count:0}") int laneCount,
+                       @Value("${order.lanes.queue-capacity:10000}") int queueCapacity,
+                       MeterRegistry meterRegistry) {
+        int count = laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors();
+        this.blocked = meterRegistry.counter("order.lanes.blocked");
+        this.conflated = meterRegistry.counter("order.lanes.conflated");
+        this.lanes = new ThreadPoolExecutor[count];
+        for (int i = 0; i < count; i++) {
+            String name = "OrderLane-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueCapacity),
+                    runnable -> new Thread(runnable, name), waitForSpace());
+            Gauge.builder("order.lanes.queue.depth", lanes[i], lane -> lane.getQueue().size())
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+
+        Gauge.builder("order.lanes.count", lanes, array -> array.length).register(meterRegistry);
+        log.info("Started {} order lanes", count);
+    }
+
+    public CompletableFuture<Void> execute(ListingType listingType, String symbol, Runnable task) {
+        return CompletableFuture.runAsync(logged(listingType, symbol, task), lane(listingType, symbol));
+    }
+
+    /**
+     * Posao tick-a: ako za simbol vec ceka posao, samo mu se zamenjuje zadatak novijim i vraca se isti future,
+     * pa zastareli tick-ovi ne zauzimaju red.
+     */
+    public CompletableFuture<Void> executeLatest(ListingType listingType, String symbol, Runnable task) {
+        String key = listingType.name() + ":" + symbol;
+        Latest created = new Latest(task);
+        Latest queued = latest.compute(key, (k, current) -> {
+            if (current == null)
+                return created;
+            current.task = task;
+            return current;
+        });
+        if (queued != created) {
+            conflated.increment();
+            return queued.future;
+        }
+
+        try {
+            execute(listingType, symbol, () -> {
+                // posle uklanjanja novi tick pravi nov posao, pa je procitani zadatak poslednji za ovaj
+                latest.remove(key, created);
+                created.task.run();
+            }).whenComplete((result, e) -> {
+                if (e != null)
+                    created.future.completeExceptionally(e);
+                else
+                    created.future.complete(null);
+            });
+        } catch (RejectedExecutionException e) {
+            latest.remove(key, created);
+            created.future.completeExceptionally(e);
+        }
+        return created.future;
+    }
+
+    public <T> CompletableFuture<T> submit(ListingType listingType, String symbol, Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, lane(listingType, symbol));
+    }
+
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    int laneOf(ListingType listingType, String symbol) {
+        return Math.floorMod((listingType.name() + ":" + symbol).hashCode(), lanes.length);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes)
+            lane.shutdown();
+    }
+
+    private ThreadPoolExecutor lane(ListingType listingType, String symbol) {
+        return lanes[laneOf(listingType, symbol)];
+    }
+
+    private RejectedExecutionHandler waitForSpace() {
+        return (runnable, executor) -> {
+            if (executor.isShutdown())
+                throw new RejectedExecutionException("order lane is shut down");
+            blocked.increment();
+            try {
+                executor.getQueue().put(runnable);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("interrupted while waiting for the order lane", e);
+            }
+        };
+    }
+
+    // greska jednog posla ne sme da prekine traku, a kod execute niko ne ceka rezultat
+    private static Runnable logged(ListingType listingType, String symbol, Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Lane task for {} {} failed", listingType, symbol, e);
+                throw e;
+            }
+        };
+    }
+
+    private static class Latest {
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private volatile Runnable task;
+
+        private Latest(Runnable task) {
+            this.task = task;
+        }
+    }
+}
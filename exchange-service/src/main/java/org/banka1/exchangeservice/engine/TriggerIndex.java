@@ -0,0 +1,67 @@
+package org.banka1.exchangeservice.engine;
+
+import org.banka1.exchangeservice.domains.entities.Order;
+import org.banka1.exchangeservice.domains.entities.OrderAction;
+
+import java.util.*;
+
+/**
+ * Indeks neaktiviranih stop i stop-limit naloga, sortiran po stopValue.
+ * Kotacija bira samo naloge ciji je prag predjen, pa nalozi koji miruju ne kostaju nista.
+ * Aktivirani stop-limit nalozi odlaze u knjigu, gde su sortirani po limitValue.
+ */
+public class TriggerIndex {
+
+    // BUY stop se aktivira kada ask predje iznad praga, SELL stop kada bid padne ispod praga
+    private final NavigableMap<Double, Deque<Order>> buyStops = new TreeMap<>();
+    private final NavigableMap<Double, Deque<Order>> sellStops = new TreeMap<>();
+    private int size;
+
+    public void add(Order order) {
+        stops(order).computeIfAbsent(order.getStopValue(), stopValue -> new ArrayDeque<>()).addLast(order);
+        size++;
+    }
+
+    public boolean remove(Order order) {
+        NavigableMap<Double, Deque<Order>> stops = stops(order);
+        Deque<Order> level = stops.get(order.getStopValue());
+        if (level == null || !level.remove(order))
+            return false;
+
+        if (level.isEmpty())
+            stops.remove(order.getStopValue());
+        size--;
+        return true;
+    }
+
+    /**
+     * Vadi iz indeksa sve naloge koje kotacija aktivira, u O(log n + k).
+     */
+    public List<Order> trigger(double askPrice, double bidPrice) {
+        NavigableMap<Double, Deque<Order>> triggeredBuys = buyStops.headMap(askPrice, false);
+        NavigableMap<Double, Deque<Order>> triggeredSells = sellStops.tailMap(bidPrice, false);
+        if (triggeredBuys.isEmpty() && triggeredSells.isEmpty())
+            return Collections.emptyList();
+
+        List<Order> triggered = new ArrayList<>();
+        drain(triggeredBuys, triggered);
+        drain(triggeredSells.descendingMap(), triggered);
+        return triggered;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void drain(NavigableMap<Double, Deque<Order>> levels, List<Order> triggered) {
+        for (Deque<Order> level : levels.values()) {
+            triggered.addAll(level);
+            size -= level.size();
+        }
+        levels.clear();
+    }
+
+    private NavigableMap<Double, Deque<Order>> stops(Order order) {
+        return order.getOrderAction() == OrderAction.BUY ? buyStops : sellStops;
+    }
+}
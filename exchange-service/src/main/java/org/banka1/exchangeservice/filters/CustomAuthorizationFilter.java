@@ -35,6 +35,9 @@ public class CustomAuthorizationFilter extends OncePerRequestFilter {
             filterChain.doFilter(request, response);
         } else {
             String authorizationHeader = request.getHeader(AUTHORIZATION);
+            // browser ne moze da postavi header pri websocket handshake-u, pa se token tada salje kao parametar
+            if (authorizationHeader == null && request.getServletPath().startsWith("/ws/") && request.getParameter("access_token") != null)
+                authorizationHeader = "Bearer " + request.getParameter("access_token");
             if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")){
                 try {
                     String token = authorizationHeader.substring("Bearer ".length());
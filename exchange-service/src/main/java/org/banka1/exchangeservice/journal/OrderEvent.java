@@ -0,0 +1,42 @@
+package org.banka1.exchangeservice.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.banka1.exchangeservice.domains.entities.Order;
+import org.banka1.exchangeservice.domains.entities.OrderStatus;
+
+/**
+ * Jedan zapis u journal-u: stanje naloga posle prelaza (status, preostala kolicina, done, triggered).
+ */
+@Getter
+@AllArgsConstructor
+public class OrderEvent {
+
+    private final OrderEventType type;
+    private final long orderId;
+    private final OrderStatus orderStatus;
+    private final int remainingQuantity;
+    private final boolean done;
+    private final boolean triggered;
+    private final long timestamp;
+
+    public static OrderEvent of(OrderEventType type, Order order) {
+        return new OrderEvent(type, order.getId(), order.getOrderStatus(),
+                order.getRemainingQuantity() == null ? 0 : order.getRemainingQuantity(),
+                Boolean.TRUE.equals(order.getDone()), Boolean.TRUE.equals(order.getTriggered()), System.currentTimeMillis());
+    }
+
+    public boolean differsFrom(Order order) {
+        return order.getOrderStatus() != orderStatus
+                || order.getRemainingQuantity() == null || order.getRemainingQuantity() != remainingQuantity
+                || Boolean.TRUE.equals(order.getDone()) != done
+                || Boolean.TRUE.equals(order.getTriggered()) != triggered;
+    }
+
+    public void applyTo(Order order) {
+        order.setOrderStatus(orderStatus);
+        order.setRemainingQuantity(remainingQuantity);
+        order.setDone(done);
+        order.setTriggered(triggered);
+    }
+}
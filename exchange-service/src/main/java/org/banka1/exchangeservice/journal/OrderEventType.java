@@ -0,0 +1,11 @@
+package org.banka1.exchangeservice.journal;
+
+public enum OrderEventType {
+    PLACED,
+    APPROVED,
+    ON_HOLD,
+    REJECTED,
+    PARTIALLY_FILLED,
+    DONE,
+    TRIGGERED
+}
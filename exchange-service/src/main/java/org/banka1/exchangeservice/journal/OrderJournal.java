@@ -0,0 +1,259 @@
+package org.banka1.exchangeservice.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.banka1.exchangeservice.domains.entities.OrderStatus;
+import org.banka1.exchangeservice.domains.exceptions.InternalServerError;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal prelaza naloga u memory-mapped segmentima fiksne velicine.
+ * Zapis je [duzina][tip, id, status, preostalo, oznake, vreme][crc32]; nula na mestu duzine oznacava kraj segmenta.
+ * Bajt oznaka nosi done (bit 0) i triggered (bit 1), pa stari zapisi sa done 0/1 ostaju citljivi.
+ * Upis je samo kopiranje bajtova u mapiranu memoriju, a force() na disk ide periodicno i pri rotaciji segmenta.
+ * Checkpoint oznacava poziciju do koje je sve vec u bazi: replay krece od nje, a stariji segmenti se premestaju u archive.
+ */
+@Component
+@Slf4j
+public class OrderJournal {
+
+    static final int PAYLOAD_SIZE = 1 + 8 + 1 + 4 + 1 + 8;
+    static final int RECORD_SIZE = 4 + PAYLOAD_SIZE + 4;
+
+    private static final int DONE = 1;
+    private static final int TRIGGERED = 2;
+
+    private static final OrderEventType[] TYPES = OrderEventType.values();
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final Path directory;
+    private final Path archive;
+    private final Path checkpointFile;
+    private final int segmentSize;
+    private final CRC32 crc = new CRC32();
+
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+    private boolean dirty;
+    private long checkpoint;
+
+    public OrderJournal(@Value("${order.journal.dir:journal}") String directory,
+                        @Value("${order.journal.segment-size:67108864}") int segmentSize) throws IOException {
+        this.directory = Paths.get(directory);
+        this.archive = this.directory.resolve("archive");
+        this.checkpointFile = this.directory.resolve("checkpoint");
+        this.segmentSize = segmentSize;
+        Files.createDirectories(this.directory);
+        this.checkpoint = readCheckpoint();
+        openLastSegment();
+    }
+
+    public synchronized void append(OrderEvent event) {
+        if (segment.remaining() < RECORD_SIZE + 4)
+            roll();
+
+        int start = segment.position();
+        segment.position(start + 4);
+        segment.put((byte) event.getType().ordinal());
+        segment.putLong(event.getOrderId());
+        segment.put((byte) (event.getOrderStatus() == null ? -1 : event.getOrderStatus().ordinal()));
+        segment.putInt(event.getRemainingQuantity());
+        segment.put((byte) ((event.isDone() ? DONE : 0) | (event.isTriggered() ? TRIGGERED : 0)));
+        segment.putLong(event.getTimestamp());
+        segment.putInt(checksum(segment, start + 4));
+        // duzina se upisuje poslednja, pa citac nikad ne vidi zapis koji nije do kraja upisan
+        segment.putInt(start, PAYLOAD_SIZE);
+        dirty = true;
+    }
+
+    /**
+     * Cita segmente od checkpoint-a i vraca poslednje stanje svakog naloga izmenjenog posle njega.
+     */
+    public synchronized Map<Long, OrderEvent> replay() {
+        Map<Long, OrderEvent> latest = new LinkedHashMap<>();
+        forEach(event -> latest.put(event.getOrderId(), event));
+        return latest;
+    }
+
+    public synchronized void forEach(Consumer<OrderEvent> consumer) {
+        int checkpointSegment = segmentOf(checkpoint);
+        for (Path path : segments()) {
+            int index = indexOf(path);
+            if (index < checkpointSegment)
+                continue;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (index == checkpointSegment)
+                    buffer.position(offsetOf(checkpoint));
+                OrderEvent event;
+                while ((event = read(buffer)) != null)
+                    consumer.accept(event);
+            } catch (IOException e) {
+                throw new InternalServerError("could not read order journal segment " + path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Pozicija iza poslednjeg upisanog zapisa: segment u gornjih 32 bita, offset u donjih.
+     */
+    public synchronized long position() {
+        return (long) segmentIndex << 32 | segment.position();
+    }
+
+    /**
+     * Belezi da su svi zapisi pre date pozicije u bazi i arhivira segmente koji su ceo pre nje.
+     * Checkpoint fajl se menja atomicnim move-om, pa posle pada ostaje ili stari ili novi.
+     */
+    public synchronized void checkpoint(long position) {
+        if (position <= checkpoint)
+            return;
+
+        try {
+            Path temporary = directory.resolve("checkpoint.tmp");
+            Files.writeString(temporary, segmentOf(position) + " " + offsetOf(position));
+            Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            checkpoint = position;
+
+            for (Path path : segments()) {
+                if (indexOf(path) >= segmentOf(position))
+                    break;
+                Files.createDirectories(archive);
+                Files.move(path, archive.resolve(path.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // bez checkpoint-a replay samo krece od ranije pozicije, pa greska ne gubi podatke
+            log.warn("Could not checkpoint order journal: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.journal.fsync-interval-ms:100}")
+    public synchronized void flush() {
+        if (dirty) {
+            segment.force();
+            dirty = false;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        flush();
+    }
+
+    private OrderEvent read(MappedByteBuffer buffer) {
+        if (buffer.remaining() < RECORD_SIZE)
+            return null;
+
+        int start = buffer.position();
+        if (buffer.getInt(start) != PAYLOAD_SIZE)
+            return null;
+        if (buffer.getInt(start + 4 + PAYLOAD_SIZE) != checksum(buffer, start + 4)) {
+            log.warn("Order journal record at {} has a bad checksum, replay stops there", start);
+            return null;
+        }
+
+        buffer.position(start + 4);
+        OrderEventType type = TYPES[buffer.get()];
+        long orderId = buffer.getLong();
+        byte status = buffer.get();
+        int remainingQuantity = buffer.getInt();
+        byte flags = buffer.get();
+        long timestamp = buffer.getLong();
+        buffer.position(start + RECORD_SIZE);
+        return new OrderEvent(type, orderId, status < 0 ? null : STATUSES[status], remainingQuantity,
+                (flags & DONE) != 0, (flags & TRIGGERED) != 0, timestamp);
+    }
+
+    private int checksum(MappedByteBuffer buffer, int offset) {
+        crc.reset();
+        crc.update(buffer.slice(offset, PAYLOAD_SIZE));
+        return (int) crc.getValue();
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointFile))
+            return 0;
+
+        String[] parts = Files.readString(checkpointFile).trim().split(" ");
+        return (long) Integer.parseInt(parts[0]) << 32 | Integer.parseInt(parts[1]);
+    }
+
+    private void openLastSegment() throws IOException {
+        List<Path> segments = segments();
+        if (segments.isEmpty()) {
+            map(1);
+            return;
+        }
+
+        Path last = segments.get(segments.size() - 1);
+        map(indexOf(last));
+        while (read(segment) != null) {
+            // pozicionira upis iza poslednjeg ispravnog zapisa
+        }
+        log.info("Order journal opened at segment {} offset {}", segmentIndex, segment.position());
+    }
+
+    private void roll() {
+        try {
+            segment.force();
+            map(segmentIndex + 1);
+        } catch (IOException e) {
+            throw new InternalServerError("could not roll order journal: " + e.getMessage());
+        }
+    }
+
+    private void map(int index) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve(name(index)),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segmentIndex = index;
+    }
+
+    private List<Path> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>();
+            files.filter(path -> path.getFileName().toString().matches("orders-\\d{8}\\.journal"))
+                    .sorted()
+                    .forEach(segments::add);
+            return segments;
+        } catch (IOException e) {
+            throw new InternalServerError("could not list order journal segments: " + e.getMessage());
+        }
+    }
+
+    private static int segmentOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    private static int indexOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring("orders-".length(), name.length() - ".journal".length()));
+    }
+
+    private static String name(int index) {
+        return String.format("orders-%08d.journal", index);
+    }
+}
@@ -0,0 +1,132 @@
+package org.banka1.exchangeservice.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.banka1.exchangeservice.domains.entities.Order;
+import org.banka1.exchangeservice.repositories.OrderRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Svaki prelaz naloga se odmah upisuje u journal, a red u bazi se azurira naknadno:
+ * izmenjeni nalozi se skupljaju (poslednje stanje pobedjuje) i cuvaju jednim saveAll-om.
+ * Pri pokretanju se journal ponovo prolazi i baza dovodi u stanje iz journal-a,
+ * pa se izmene koje nisu stigle do baze pre pada ne gube.
+ * Posle uspesnog upisa u bazu journal dobija checkpoint, pa replay prolazi samo izmene posle poslednjeg flush-a.
+ */
+@Component
+@Slf4j
+public class OrderStateWriter {
+
+    private final OrderJournal orderJournal;
+    private final OrderRepository orderRepository;
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+
+    public OrderStateWriter(OrderJournal orderJournal, OrderRepository orderRepository) {
+        this.orderJournal = orderJournal;
+        this.orderRepository = orderRepository;
+    }
+
+    /**
+     * Novi nalog se cuva odmah jer mu baza dodeljuje id, a prelaz se belezi u journal.
+     */
+    public void place(Order order) {
+        orderRepository.save(order);
+        orderJournal.append(OrderEvent.of(OrderEventType.PLACED, order));
+    }
+
+    /**
+     * Pending zapis se upisuje pre journal-a, pa svaki zapis pre pozicije koju flush uzme ima svoj (ili noviji) Pending.
+     */
+    public void record(OrderEventType type, Order order) {
+        OrderEvent event = OrderEvent.of(type, order);
+        pending.put(order.getId(), new Pending(order, event, order.getLastModified()));
+        orderJournal.append(event);
+    }
+
+    public void recordFill(Order order) {
+        record(Boolean.TRUE.equals(order.getDone()) ? OrderEventType.DONE : OrderEventType.PARTIALLY_FILLED, order);
+    }
+
+    /**
+     * Nalog ciji prelaz jos nije upisan u bazu, ili null.
+     */
+    public Order pending(Long orderId) {
+        Pending entry = pending.get(orderId);
+        return entry == null ? null : entry.order;
+    }
+
+    @Scheduled(fixedDelayString = "${order.journal.db-flush-interval-ms:200}")
+    public void flush() {
+        // pozicija se uzima pre Pending zapisa, pa je sve pre nje ili u ovom flush-u ili u nekom ranijem
+        long position = orderJournal.position();
+        if (pending.isEmpty()) {
+            orderJournal.checkpoint(position);
+            return;
+        }
+
+        Map<Long, Pending> entries = new HashMap<>(pending);
+
+        // u bazu ide snimak stanja iz trenutka prelaza, a ne instanca koju trake i dalje menjaju
+        List<Order> rows = new ArrayList<>();
+        orderRepository.findAllById(entries.keySet()).forEach(row -> {
+            Pending entry = entries.get(row.getId());
+            entry.event.applyTo(row);
+            row.setLastModified(entry.lastModified);
+            rows.add(row);
+        });
+        orderRepository.saveAll(rows);
+
+        // nalog koji je u medjuvremenu ponovo izmenjen ima nov Pending zapis i ostaje za sledeci flush
+        entries.forEach(pending::remove);
+        orderJournal.checkpoint(position);
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    @PostConstruct
+    public void recover() {
+        long position = orderJournal.position();
+        Map<Long, OrderEvent> latest = orderJournal.replay();
+        if (latest.isEmpty())
+            return;
+
+        List<Order> repaired = new ArrayList<>();
+        orderRepository.findAllById(latest.keySet()).forEach(order -> {
+            OrderEvent event = latest.get(order.getId());
+            if (event.differsFrom(order)) {
+                event.applyTo(order);
+                repaired.add(order);
+            }
+        });
+
+        if (!repaired.isEmpty())
+            orderRepository.saveAll(repaired);
+        orderJournal.checkpoint(position);
+        log.info("Replayed order journal: {} orders, {} rows brought up to date", latest.size(), repaired.size());
+    }
+
+    private static class Pending {
+
+        private final Order order;
+        private final OrderEvent event;
+        private final Date lastModified;
+
+        private Pending(Order order, OrderEvent event, Date lastModified) {
+            this.order = order;
+            this.event = event;
+            this.lastModified = lastModified;
+        }
+    }
+}
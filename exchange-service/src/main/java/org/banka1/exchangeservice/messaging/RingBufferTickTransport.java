@@ -0,0 +1,184 @@
+package org.banka1.exchangeservice.messaging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.engine.Quote;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prenos tick-ova u istom JVM-u, bez brokera: prsten od market.ticks.ring.size unapred napravljenih slotova.
+ * Jedan pisac u isto vreme (publish je synchronized) upisuje tick u sledeci slot i pomera cursor;
+ * po jedan potrosac za svaku particiju (TickPartitions) cita sve slotove redom i obradjuje simbole svoje particije,
+ * pa tick-ovi jednog simbola ostaju u redosledu. Pisac ne pregazi slot koji najsporiji potrosac jos nije procitao,
+ * vec ceka (market.ticks.ring.stalls), pa spor potrosac usporava osvezavanje umesto da se tick-ovi gube.
+ * Slotovi se ponovo koriste, pa publish i obrada ne prave nove objekte.
+ * Metrike: market.ticks.received{type}, market.ticks.ring.backlog (objavljeni a jos neprocitani slotovi)
+ * i market.ticks.ring.stalls.
+ */
+@Component
+@ConditionalOnProperty(name = "market.ticks.transport", havingValue = "in-process")
+@Slf4j
+public class RingBufferTickTransport implements TickTransport {
+
+    private static final long IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final TickPartitions tickPartitions;
+    private final Slot[] slots;
+    private final int mask;
+    // poslednja objavljena sekvenca; upis u volatile cursor objavljuje i sadrzaj slota potrosacima
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final AtomicLong[] consumed;
+    private final Counter[] received;
+    private final Counter stalls;
+    private Thread[] consumers;
+    private volatile boolean running;
+
+    public RingBufferTickTransport(TickPartitions tickPartitions, MeterRegistry meterRegistry,
+                                   @Value("${market.ticks.ring.size:4096}") int size) {
+        if (size < 2 || Integer.bitCount(size) != 1)
+            throw new IllegalArgumentException("market.ticks.ring.size must be a power of two");
+
+        this.tickPartitions = tickPartitions;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++)
+            slots[i] = new Slot();
+        this.mask = size - 1;
+        this.consumed = new AtomicLong[tickPartitions.getPartitions()];
+        for (int i = 0; i < consumed.length; i++)
+            consumed[i] = new AtomicLong(-1);
+
+        this.received = new Counter[ListingType.values().length];
+        for (ListingType listingType : ListingType.values())
+            received[listingType.ordinal()] = meterRegistry.counter("market.ticks.received", "type", listingType.name().toLowerCase());
+        this.stalls = meterRegistry.counter("market.ticks.ring.stalls");
+        Gauge.builder("market.ticks.ring.backlog", this, RingBufferTickTransport::backlog).register(meterRegistry);
+    }
+
+    /**
+     * Pokrece po jednog potrosaca za svaku particiju; do tada se tick-ovi ne primaju.
+     */
+    public synchronized void start(TickHandler handler) {
+        if (consumers != null)
+            throw new IllegalStateException("tick transport is already started");
+
+        running = true;
+        consumers = new Thread[consumed.length];
+        for (int partition = 0; partition < consumers.length; partition++) {
+            int consumerPartition = partition;
+            consumers[partition] = new Thread(() -> consume(consumerPartition, handler), "TickConsumer-" + partition);
+            consumers[partition].setDaemon(true);
+            consumers[partition].start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread[] started;
+        synchronized (this) {
+            started = consumers;
+        }
+        if (started == null)
+            return;
+        for (Thread consumer : started)
+            consumer.join(TimeUnit.SECONDS.toMillis(1));
+    }
+
+    @Override
+    public synchronized void publish(ListingType listingType, String symbol, Quote quote) {
+        if (!running) {
+            log.warn("Tick for {} dropped, tick transport is not running", symbol);
+            return;
+        }
+
+        long next = cursor.get() + 1;
+        if (!awaitCapacity(next))
+            return;
+
+        Slot slot = slots[(int) (next & mask)];
+        slot.listingType = listingType;
+        slot.symbol = symbol;
+        slot.quote = quote;
+        cursor.set(next);
+    }
+
+    @Override
+    public void flush() {
+        // tick je vidljiv potrosacima cim ga publish upise
+    }
+
+    /**
+     * Ceka da najsporiji potrosac procita slot koji bi sekvenca next pregazila.
+     */
+    private boolean awaitCapacity(long next) {
+        long wrapPoint = next - slots.length;
+        if (minimumConsumed() >= wrapPoint)
+            return true;
+
+        stalls.increment();
+        while (minimumConsumed() < wrapPoint) {
+            if (!running)
+                return false;
+            LockSupport.parkNanos(IDLE_NANOS);
+        }
+        return true;
+    }
+
+    private void consume(int partition, TickHandler handler) {
+        AtomicLong sequence = consumed[partition];
+        long next = sequence.get() + 1;
+        while (running) {
+            long available = cursor.get();
+            if (available < next) {
+                LockSupport.parkNanos(IDLE_NANOS);
+                continue;
+            }
+
+            for (; next <= available; next++) {
+                Slot slot = slots[(int) (next & mask)];
+                if (tickPartitions.partitionOf(slot.symbol) == partition)
+                    handle(handler, slot);
+            }
+            // tek sada pisac sme da ponovo koristi procitane slotove
+            sequence.set(available);
+        }
+    }
+
+    private void handle(TickHandler handler, Slot slot) {
+        received[slot.listingType.ordinal()].increment();
+        try {
+            handler.onTick(slot.listingType, slot.symbol, slot.quote);
+        } catch (RuntimeException e) {
+            log.warn("Tick for {} could not be processed: {}", slot.symbol, e.getMessage());
+        }
+    }
+
+    private long minimumConsumed() {
+        long minimum = Long.MAX_VALUE;
+        for (AtomicLong sequence : consumed)
+            minimum = Math.min(minimum, sequence.get());
+        return minimum;
+    }
+
+    private long backlog() {
+        return cursor.get() - minimumConsumed();
+    }
+
+    private static class Slot {
+
+        private ListingType listingType;
+        private String symbol;
+        private Quote quote;
+
+    }
+}
@@ -0,0 +1,19 @@
+package org.banka1.exchangeservice.messaging;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.engine.Quote;
+
+/**
+ * Poruka sa kotacijom jednog simbola koja se salje na razmenu umesto celog Stock/Forex entiteta.
+ */
+@Getter
+@AllArgsConstructor
+public class Tick {
+
+    private final ListingType listingType;
+    private final String symbol;
+    private final Quote quote;
+
+}
@@ -0,0 +1,90 @@
+package org.banka1.exchangeservice.messaging;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.springframework.amqp.core.BatchMessageListener;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Prima tick-ove jedne particije u paketima i za svaki simbol obradjuje samo poslednji tick iz paketa;
+ * raniji tick-ovi istog simbola su vec zastareli i ne pokrecu proveru naloga. Poruke jedne particije
+ * stizu redom, pa je poslednja u paketu i najnovija.
+ * Paket se potvrdjuje tek kada su svi njegovi tick-ovi obradjeni na trakama simbola, pa se sledeci paket ne
+ * preuzima dok traje obrada prethodnog i zastareli tick-ovi ostaju u redu brokera, gde ih sledeci paket sazima.
+ * Metrike: market.ticks.received, market.ticks.conflated (odbaceni zastareli tick-ovi), market.ticks.batch.size
+ * i market.ticks.lag (starost najstarijeg tick-a u paketu, od slanja do obrade).
+ */
+@Slf4j
+public class TickBatchListener implements BatchMessageListener {
+
+    private final ListingType listingType;
+    private final Function<Tick, CompletableFuture<?>> receiver;
+    private final TickMessageConverter tickMessageConverter;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary batchSize;
+    private final Timer lag;
+
+    public TickBatchListener(ListingType listingType, Function<Tick, CompletableFuture<?>> receiver, TickMessageConverter tickMessageConverter,
+                             MeterRegistry meterRegistry) {
+        this.listingType = listingType;
+        this.receiver = receiver;
+        this.tickMessageConverter = tickMessageConverter;
+        this.meterRegistry = meterRegistry;
+        String name = listingType.name().toLowerCase();
+        this.batchSize = DistributionSummary.builder("market.ticks.batch.size").tag("type", name).register(meterRegistry);
+        this.lag = Timer.builder("market.ticks.lag").tag("type", name).register(meterRegistry);
+    }
+
+    @Override
+    public void onMessageBatch(List<Message> messages) {
+        Map<String, Tick> latest = new LinkedHashMap<>();
+        Date oldest = null;
+        for (Message message : messages) {
+            Date timestamp = message.getMessageProperties().getTimestamp();
+            if (timestamp != null && (oldest == null || timestamp.before(oldest)))
+                oldest = timestamp;
+
+            Tick tick = convert(message);
+            if (tick != null)
+                latest.put(tick.getSymbol(), tick);
+        }
+
+        String name = listingType.name().toLowerCase();
+        batchSize.record(messages.size());
+        meterRegistry.counter("market.ticks.received", "type", name).increment(messages.size());
+        meterRegistry.counter("market.ticks.conflated", "type", name).increment(messages.size() - latest.size());
+        if (oldest != null)
+            lag.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - oldest.getTime())));
+
+        CompletableFuture<?>[] processed = latest.values().stream().map(receiver).toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(processed).join();
+        } catch (CompletionException e) {
+            // neuspela obrada jednog simbola ne vraca paket u red, sledeci tick ionako nosi noviju kotaciju
+            log.warn("Processing of {} ticks failed: {}", listingType, e.getMessage());
+        }
+    }
+
+    // neispravna poruka se preskace, da ne bi oborila ceo paket
+    private Tick convert(Message message) {
+        try {
+            return tickMessageConverter.fromMessage(message);
+        } catch (MessageConversionException e) {
+            log.warn("Skipping {} tick that could not be read: {}", listingType, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.banka1.exchangeservice.messaging;
+
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.engine.Quote;
+
+@FunctionalInterface
+public interface TickHandler {
+
+    void onTick(ListingType listingType, String symbol, Quote quote);
+
+}
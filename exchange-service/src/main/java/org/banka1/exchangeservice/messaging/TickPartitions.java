@@ -0,0 +1,52 @@
+package org.banka1.exchangeservice.messaging;
+
+import lombok.Getter;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Raspodela tick-ova na particije: svaka vrsta hartije ima rabbitmq.tick.partitions redova (stock_queue.0, ...),
+ * a simbol uvek ide u istu particiju po hash-u. Svaki red ima tacno jednog potrosaca, pa tick-ovi jednog simbola
+ * stizu redom, a particije se obradjuju paralelno.
+ */
+@Component
+public class TickPartitions {
+
+    @Getter
+    private final int partitions;
+    private final String stockQueue;
+    private final String forexQueue;
+    private final String stockRoutingKey;
+    private final String forexRoutingKey;
+
+    public TickPartitions(@Value("${rabbitmq.tick.partitions:4}") int partitions,
+                          @Value("${rabbitmq.queue.stock.name}") String stockQueue,
+                          @Value("${rabbitmq.queue.forex.name}") String forexQueue,
+                          @Value("${rabbitmq.routing.stock.key}") String stockRoutingKey,
+                          @Value("${rabbitmq.routing.forex.key}") String forexRoutingKey) {
+        if (partitions < 1)
+            throw new IllegalArgumentException("rabbitmq.tick.partitions must be at least 1");
+        this.partitions = partitions;
+        this.stockQueue = stockQueue;
+        this.forexQueue = forexQueue;
+        this.stockRoutingKey = stockRoutingKey;
+        this.forexRoutingKey = forexRoutingKey;
+    }
+
+    public int partitionOf(String symbol) {
+        return Math.floorMod(symbol.hashCode(), partitions);
+    }
+
+    public String routingKey(ListingType listingType, String symbol) {
+        return routingKey(listingType, partitionOf(symbol));
+    }
+
+    public String routingKey(ListingType listingType, int partition) {
+        return (listingType == ListingType.STOCK ? stockRoutingKey : forexRoutingKey) + "." + partition;
+    }
+
+    public String queue(ListingType listingType, int partition) {
+        return (listingType == ListingType.STOCK ? stockQueue : forexQueue) + "." + partition;
+    }
+}
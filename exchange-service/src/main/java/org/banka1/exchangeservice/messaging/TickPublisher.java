@@ -0,0 +1,217 @@
+package org.banka1.exchangeservice.messaging;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.engine.Quote;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.batch.MessageBatch;
+import org.springframework.amqp.rabbit.batch.SimpleBatchingStrategy;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Salje osvezene kotacije na razmenu kao binarne tick-ove (TickMessageConverter), u paketima po particiji.
+ * publish samo stavlja tick u bafer, gde noviji tick istog simbola zamenjuje stariji. flush (na kraju osvezavanja,
+ * na svakih rabbitmq.tick.publish.linger-ms i kad se bafer napuni) pakuje tick-ove jedne particije u poruke
+ * od najvise batch-size tick-ova (SimpleBatchingStrategy, kontejner potrosaca ih sam raspakuje) i salje ih
+ * sa publisher confirm-om, bez cekanja na potvrdu.
+ * Paket koji broker odbije, vrati kao neisporuciv ili ne potvrdi za confirm-timeout-ms salje se ponovo, ali samo
+ * tick-ovi simbola za koje u medjuvremenu nije stigao noviji, i najvise max-attempts puta.
+ * Metrike: market.ticks.publish.batches{result}, market.ticks.publish.confirm (kasnjenje potvrde),
+ * market.ticks.publish.unconfirmed (poslati a jos nepotvrdjeni paketi) i market.ticks.publish.dropped.
+ */
+@Component
+@ConditionalOnProperty(name = "market.ticks.transport", havingValue = "rabbitmq", matchIfMissing = true)
+@Slf4j
+public class TickPublisher implements TickTransport {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final TickPartitions tickPartitions;
+    private final TickMessageConverter tickMessageConverter;
+    private final MeterRegistry meterRegistry;
+    private final String exchange;
+    private final int batchSize;
+    private final long confirmTimeoutMs;
+    private final int maxAttempts;
+    private final Timer confirmLatency;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Pending> buffer = new ConcurrentHashMap<>();
+    // redni broj poslednjeg tick-a po simbolu, da ponovljeno slanje ne pregazi noviju kotaciju
+    private final Map<String, Long> latest = new ConcurrentHashMap<>();
+    private final Map<String, Batch> unconfirmed = new ConcurrentHashMap<>();
+
+    public TickPublisher(RabbitTemplate rabbitTemplate, TickPartitions tickPartitions, TickMessageConverter tickMessageConverter,
+                         MeterRegistry meterRegistry,
+                         @Value("${rabbitmq.exchange.name}") String exchange,
+                         @Value("${rabbitmq.tick.batch-size:100}") int batchSize,
+                         @Value("${rabbitmq.tick.publish.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+                         @Value("${rabbitmq.tick.publish.max-attempts:3}") int maxAttempts) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.tickPartitions = tickPartitions;
+        this.tickMessageConverter = tickMessageConverter;
+        this.meterRegistry = meterRegistry;
+        this.exchange = exchange;
+        this.batchSize = batchSize;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.confirmLatency = meterRegistry.timer("market.ticks.publish.confirm");
+        Gauge.builder("market.ticks.publish.unconfirmed", unconfirmed, Map::size).register(meterRegistry);
+
+        rabbitTemplate.setMandatory(true);
+        rabbitTemplate.setConfirmCallback(this::confirm);
+        rabbitTemplate.setReturnsCallback(returned -> log.warn("Tick batch returned by the broker for {}: {}",
+                returned.getRoutingKey(), returned.getReplyText()));
+    }
+
+    @Override
+    public void publish(ListingType listingType, String symbol, Quote quote) {
+        String key = listingType.name() + ":" + symbol;
+        long seq = sequence.incrementAndGet();
+        latest.put(key, seq);
+        buffer.put(key, new Pending(key, new Tick(listingType, symbol, quote), seq, 1));
+        if (buffer.size() >= batchSize * tickPartitions.getPartitions())
+            flush();
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${rabbitmq.tick.publish.linger-ms:200}")
+    public synchronized void flush() {
+        expireUnconfirmed(System.currentTimeMillis());
+        if (buffer.isEmpty())
+            return;
+
+        Map<String, List<Pending>> byRoutingKey = new HashMap<>();
+        for (Map.Entry<String, Pending> entry : buffer.entrySet()) {
+            // tick koji je u medjuvremenu zamenjen novijim ostaje za sledeci flush
+            Pending pending = entry.getValue();
+            if (!buffer.remove(entry.getKey(), pending))
+                continue;
+            Tick tick = pending.tick;
+            byRoutingKey.computeIfAbsent(tickPartitions.routingKey(tick.getListingType(), tick.getSymbol()), k -> new ArrayList<>())
+                    .add(pending);
+        }
+        byRoutingKey.forEach(this::send);
+    }
+
+    /**
+     * Tick-ovi jedne particije idu u poruke od najvise batch-size tick-ova.
+     */
+    private void send(String routingKey, List<Pending> ticks) {
+        SimpleBatchingStrategy batchingStrategy = new SimpleBatchingStrategy(batchSize, Integer.MAX_VALUE, 0);
+        Date now = new Date();
+        List<Pending> batch = new ArrayList<>();
+        for (Pending pending : ticks) {
+            MessageProperties properties = new MessageProperties();
+            // vreme slanja, iz kog potrosac racuna kasnjenje (market.ticks.lag)
+            properties.setTimestamp(now);
+            batch.add(pending);
+            MessageBatch full = batchingStrategy.addToBatch(exchange, routingKey, tickMessageConverter.toMessage(pending.tick, properties));
+            if (full != null) {
+                send(full, batch);
+                batch = new ArrayList<>();
+            }
+        }
+        for (MessageBatch rest : batchingStrategy.releaseBatches())
+            send(rest, batch);
+    }
+
+    private void send(MessageBatch messageBatch, List<Pending> ticks) {
+        String id = Long.toString(sequence.incrementAndGet());
+        unconfirmed.put(id, new Batch(ticks, System.nanoTime(), System.currentTimeMillis()));
+        try {
+            rabbitTemplate.send(messageBatch.getExchange(), messageBatch.getRoutingKey(), messageBatch.getMessage(),
+                    new CorrelationData(id));
+        } catch (AmqpException e) {
+            log.warn("Tick batch for {} could not be sent: {}", messageBatch.getRoutingKey(), e.getMessage());
+            if (unconfirmed.remove(id) != null)
+                retry(ticks, "failed");
+        }
+    }
+
+    private void confirm(CorrelationData correlationData, boolean ack, String cause) {
+        if (correlationData == null)
+            return;
+        // paket kome je vec isteklo vreme za potvrdu je ponovo poslat, pa se kasna potvrda zanemaruje
+        Batch batch = unconfirmed.remove(correlationData.getId());
+        if (batch == null)
+            return;
+
+        confirmLatency.record(System.nanoTime() - batch.sentAtNanos, TimeUnit.NANOSECONDS);
+        if (!ack) {
+            log.warn("Tick batch {} was not confirmed: {}", correlationData.getId(), cause);
+            retry(batch.ticks, "nacked");
+        } else if (correlationData.getReturned() != null) {
+            retry(batch.ticks, "returned");
+        } else {
+            meterRegistry.counter("market.ticks.publish.batches", "result", "confirmed").increment();
+        }
+    }
+
+    private void expireUnconfirmed(long now) {
+        unconfirmed.forEach((id, batch) -> {
+            if (batch.sentAtMillis + confirmTimeoutMs < now && unconfirmed.remove(id, batch))
+                retry(batch.ticks, "timeout");
+        });
+    }
+
+    /**
+     * Vraca tick-ove u bafer za sledeci flush; putIfAbsent ne dira tick koji je za simbol stigao u medjuvremenu.
+     */
+    private void retry(List<Pending> ticks, String result) {
+        meterRegistry.counter("market.ticks.publish.batches", "result", result).increment();
+        for (Pending pending : ticks) {
+            if (!Long.valueOf(pending.seq).equals(latest.get(pending.key)))
+                continue;
+            if (pending.attempt >= maxAttempts) {
+                meterRegistry.counter("market.ticks.publish.dropped").increment();
+                continue;
+            }
+            buffer.putIfAbsent(pending.key, new Pending(pending.key, pending.tick, pending.seq, pending.attempt + 1));
+        }
+    }
+
+    private static class Pending {
+
+        private final String key;
+        private final Tick tick;
+        private final long seq;
+        private final int attempt;
+
+        private Pending(String key, Tick tick, long seq, int attempt) {
+            this.key = key;
+            this.tick = tick;
+            this.seq = seq;
+            this.attempt = attempt;
+        }
+    }
+
+    private static class Batch {
+
+        private final List<Pending> ticks;
+        private final long sentAtNanos;
+        private final long sentAtMillis;
+
+        private Batch(List<Pending> ticks, long sentAtNanos, long sentAtMillis) {
+            this.ticks = ticks;
+            this.sentAtNanos = sentAtNanos;
+            this.sentAtMillis = sentAtMillis;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.banka1.exchangeservice.messaging;
+
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.engine.Quote;
+
+/**
+ * Prenos tick-ova od osvezavanja kotacija do OrderService-a. Bira se sa market.ticks.transport:
+ * rabbitmq (TickPublisher, za vise instanci servisa) ili in-process (RingBufferTickTransport, u istom JVM-u).
+ */
+public interface TickTransport {
+
+    void publish(ListingType listingType, String symbol, Quote quote);
+
+    /**
+     * Salje tick-ove koji cekaju u baferu, ako ih transport baferuje.
+     */
+    void flush();
+
+}
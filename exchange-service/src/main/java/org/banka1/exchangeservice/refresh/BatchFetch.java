@@ -0,0 +1,14 @@
+package org.banka1.exchangeservice.refresh;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dohvata kotacije za vise simbola odjednom, mapirane po simbolu; simbol bez kotacije se izostavlja.
+ */
+@FunctionalInterface
+public interface BatchFetch<Q> {
+
+    Map<String, Q> fetch(List<String> symbols) throws Exception;
+
+}
@@ -0,0 +1,216 @@
+package org.banka1.exchangeservice.refresh;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Osvezava listu stavki paralelno na refreshExecutor-u (ogranicen broj niti) i vraca one koje su izmenjene,
+ * da bi ih pozivalac sacuvao jednim saveAll-om. Greska jednog simbola se loguje i ne prekida ostale,
+ * a novo pokretanje istog osvezavanja se preskace dok prethodno ne zavrsi (ili ga, za revalidaciju, saceka).
+ * Stavka se smatra izmenjenom samo ako se neka vrednost iz fingerprint-a pomerila vise od epsilon-a (relativno).
+ */
+@Component
+@Slf4j
+public class QuoteRefresher {
+
+    private final Executor refreshExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Duration timeout;
+    private final double epsilon;
+    private final Map<String, Semaphore> running = new ConcurrentHashMap<>();
+
+    public QuoteRefresher(@Qualifier("refreshExecutor") Executor refreshExecutor, MeterRegistry meterRegistry,
+                          @Value("${market.refresh.timeout:50s}") Duration timeout,
+                          @Value("${market.refresh.epsilon:0.000001}") double epsilon) {
+        this.refreshExecutor = refreshExecutor;
+        this.meterRegistry = meterRegistry;
+        this.timeout = timeout;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * Kotacije se dohvataju jednim zahtevom po delu od batchSize stavki, a onda primenjuju na svaku stavku.
+     * Stavka bez kotacije u odgovoru se preskace, a neuspeo zahtev obara samo stavke svog dela.
+     * Delovi kojima istekne vreme se ne prekidaju, ali posle isteka ne pocinju zahtev i ne menjaju stavke,
+     * a sledece pokretanje istog imena ceka dok se i oni ne zavrse.
+     * Ako je osvezavanje istog imena u toku, pokretanje se preskace, a sa waitForRunning ga ceka.
+     */
+    public <T, Q> RefreshResult<T> refresh(String name, List<T> items, Function<T, String> symbolOf,
+                                           Function<T, double[]> fingerprintOf, int batchSize,
+                                           BatchFetch<Q> fetch, BiConsumer<T, Q> apply, boolean waitForRunning) {
+        Semaphore guard = running.computeIfAbsent(name, key -> new Semaphore(1));
+        if (!acquire(guard, waitForRunning)) {
+            log.warn("Refresh of {} is still running, skipping this run", name);
+            meterRegistry.counter("market.refresh.skipped", "name", name).increment();
+            return RefreshResult.empty();
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<List<T>> batches = partition(items, batchSize);
+        List<CompletableFuture<List<Outcome>>> futures = new ArrayList<>(batches.size());
+        AtomicBoolean cancelled = new AtomicBoolean();
+        try {
+            for (List<T> batch : batches)
+                futures.add(CompletableFuture.supplyAsync(() ->
+                        refreshBatch(name, batch, cancelled, symbolOf, fingerprintOf, fetch, apply), refreshExecutor));
+            return collect(name, batches, futures, cancelled);
+        } catch (RuntimeException e) {
+            cancelled.set(true);
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer("market.refresh.duration", "name", name));
+            // guard se oslobadja tek kada zavrse svi delovi ovog pokretanja, i oni kojima je isteklo vreme
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).whenComplete((result, e) -> guard.release());
+        }
+    }
+
+    private static boolean acquire(Semaphore guard, boolean wait) {
+        if (!wait)
+            return guard.tryAcquire();
+        try {
+            guard.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private <T> RefreshResult<T> collect(String name, List<List<T>> batches, List<CompletableFuture<List<Outcome>>> futures,
+                                         AtomicBoolean cancelled) {
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Refresh of {} did not finish in {}, unfinished symbols are skipped", name, timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Refresh of {} failed", name, e);
+        }
+        cancelled.set(true);
+
+        List<T> updated = new ArrayList<>();
+        List<T> unchanged = new ArrayList<>();
+        int timedOut = 0;
+        for (int i = 0; i < batches.size(); i++) {
+            List<T> batch = batches.get(i);
+            CompletableFuture<List<Outcome>> future = futures.get(i);
+            if (!future.isDone()) {
+                timedOut += batch.size();
+                continue;
+            }
+            if (future.isCompletedExceptionally())
+                continue;
+
+            List<Outcome> outcomes = future.join();
+            for (int j = 0; j < batch.size(); j++) {
+                if (outcomes.get(j) == Outcome.UPDATED)
+                    updated.add(batch.get(j));
+                else if (outcomes.get(j) == Outcome.UNCHANGED)
+                    unchanged.add(batch.get(j));
+            }
+        }
+
+        meterRegistry.counter("market.refresh.symbols", "name", name, "outcome", "updated").increment(updated.size());
+        meterRegistry.counter("market.refresh.symbols", "name", name, "outcome", "timed_out").increment(timedOut);
+        meterRegistry.counter("market.refresh.suppressed", "name", name).increment(unchanged.size());
+        if (!unchanged.isEmpty())
+            log.debug("Refresh of {} suppressed {} unchanged quotes", name, unchanged.size());
+        return new RefreshResult<>(updated, unchanged);
+    }
+
+    boolean changed(double[] before, double[] after) {
+        for (int i = 0; i < before.length; i++) {
+            double a = before[i];
+            double b = after[i];
+            if (Double.isNaN(a) || Double.isNaN(b)) {
+                if (Double.isNaN(a) != Double.isNaN(b))
+                    return true;
+                continue;
+            }
+            if (Math.abs(a - b) > epsilon * Math.max(Math.abs(a), Math.abs(b)))
+                return true;
+        }
+        return false;
+    }
+
+    private <T, Q> List<Outcome> refreshBatch(String name, List<T> batch, AtomicBoolean cancelled, Function<T, String> symbolOf,
+                                              Function<T, double[]> fingerprintOf, BatchFetch<Q> fetch, BiConsumer<T, Q> apply) {
+        if (cancelled.get())
+            return Collections.nCopies(batch.size(), Outcome.SKIPPED);
+
+        List<String> symbols = batch.stream().map(symbolOf).toList();
+        Map<String, Q> quotes;
+        try {
+            quotes = fetch.fetch(symbols);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.nCopies(batch.size(), Outcome.FAILED);
+        } catch (Exception e) {
+            log.warn("Refresh of {} {} failed: {}", name, symbols, e.getMessage());
+            meterRegistry.counter("market.refresh.symbols", "name", name, "outcome", "failed").increment(batch.size());
+            return Collections.nCopies(batch.size(), Outcome.FAILED);
+        }
+
+        List<Outcome> outcomes = new ArrayList<>(batch.size());
+        for (T item : batch) {
+            // pokretanju kome je isteklo vreme se stavke vise ne menjaju, pozivalac ih ne cuva
+            Q quote = cancelled.get() ? null : quotes.get(symbolOf.apply(item));
+            outcomes.add(quote == null ? Outcome.SKIPPED : applyOne(name, item, quote, symbolOf, fingerprintOf, apply));
+        }
+        return outcomes;
+    }
+
+    private <T, Q> Outcome applyOne(String name, T item, Q quote, Function<T, String> symbolOf,
+                                    Function<T, double[]> fingerprintOf, BiConsumer<T, Q> apply) {
+        try {
+            double[] before = fingerprintOf.apply(item);
+            apply.accept(item, quote);
+            return changed(before, fingerprintOf.apply(item)) ? Outcome.UPDATED : Outcome.UNCHANGED;
+        } catch (RuntimeException e) {
+            log.warn("Refresh of {} {} failed: {}", name, symbolOf.apply(item), e.getMessage());
+            meterRegistry.counter("market.refresh.symbols", "name", name, "outcome", "failed").increment();
+            return Outcome.FAILED;
+        }
+    }
+
+    private static <T> List<List<T>> partition(List<T> items, int batchSize) {
+        List<List<T>> batches = new ArrayList<>((items.size() + batchSize - 1) / batchSize);
+        for (int i = 0; i < items.size(); i += batchSize)
+            batches.add(items.subList(i, Math.min(i + batchSize, items.size())));
+        return batches;
+    }
+
+    /**
+     * Vrednost koja nedostaje (null) se pretvara u NaN, da bi se i prelaz null -> vrednost video kao promena.
+     */
+    public static double value(Number number) {
+        return number == null ? Double.NaN : number.doubleValue();
+    }
+
+    private enum Outcome {
+        UPDATED,
+        UNCHANGED,
+        SKIPPED,
+        FAILED
+    }
+}
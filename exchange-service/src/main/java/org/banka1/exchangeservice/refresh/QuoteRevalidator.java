@@ -0,0 +1,90 @@
+package org.banka1.exchangeservice.refresh;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Osvezavanje zastarelih kotacija van niti zahteva (stale-while-revalidate): citanje odmah vraca sacuvane podatke,
+ * a zastareli simboli se zakazuju na revalidationExecutor-u. Simbol koji je vec zakazan se ne zakazuje ponovo,
+ * koliko god citalaca da ga trazi, dok se njegovo osvezavanje ne zavrsi. Samo osvezavanje se deli na delove
+ * na refreshExecutor-u, pa revalidacija koja ih ceka ne sme da radi na njemu.
+ */
+@Component
+@Slf4j
+public class QuoteRevalidator {
+
+    private final Executor revalidationExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Duration maxAge;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    public QuoteRevalidator(@Qualifier("revalidationExecutor") Executor revalidationExecutor, MeterRegistry meterRegistry,
+                            @Value("${market.quotes.max-age:15m}") Duration maxAge) {
+        this.revalidationExecutor = revalidationExecutor;
+        this.meterRegistry = meterRegistry;
+        this.maxAge = maxAge;
+        Gauge.builder("market.revalidate.pending", pending, Set::size).register(meterRegistry);
+    }
+
+    public boolean isStale(LocalDateTime lastRefresh) {
+        return lastRefresh == null || lastRefresh.isBefore(LocalDateTime.now().minus(maxAge));
+    }
+
+    /**
+     * Zakazuje osvezavanje simbola datih stavki i vraca koliko ih je zaista zakazano.
+     */
+    public <T> int revalidate(String name, List<T> items, Function<T, String> symbolOf, Consumer<List<String>> refresh) {
+        List<String> claimed = new ArrayList<>();
+        for (T item : items) {
+            String symbol = symbolOf.apply(item);
+            if (pending.add(key(name, symbol)))
+                claimed.add(symbol);
+        }
+
+        meterRegistry.counter("market.revalidate.deduplicated", "name", name).increment(items.size() - claimed.size());
+        if (claimed.isEmpty())
+            return 0;
+
+        try {
+            revalidationExecutor.execute(() -> {
+                try {
+                    refresh.accept(claimed);
+                } catch (RuntimeException e) {
+                    log.warn("Revalidation of {} {} failed: {}", name, claimed, e.getMessage());
+                } finally {
+                    release(name, claimed);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Revalidation of {} {} was rejected", name, claimed);
+            release(name, claimed);
+            return 0;
+        }
+
+        meterRegistry.counter("market.revalidate.queued", "name", name).increment(claimed.size());
+        return claimed.size();
+    }
+
+    private void release(String name, List<String> symbols) {
+        symbols.forEach(symbol -> pending.remove(key(name, symbol)));
+    }
+
+    private static String key(String name, String symbol) {
+        return name + ":" + symbol;
+    }
+}
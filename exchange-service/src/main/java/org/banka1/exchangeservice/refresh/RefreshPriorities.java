@@ -0,0 +1,83 @@
+package org.banka1.exchangeservice.refresh;
+
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Signali po simbolu na osnovu kojih RefreshScheduler bira ucestalost osvezavanja: broj pregleda, koji opada
+ * sa poluzivotom market.refresh.view-half-life, i volatilnost kao eksponencijalni prosek relativne promene cene
+ * izmedju dva osvezavanja.
+ */
+@Component
+public class RefreshPriorities {
+
+    private final long viewHalfLifeMs;
+    private final double volatilityAlpha;
+    private final Map<String, Signals> signals = new ConcurrentHashMap<>();
+
+    public RefreshPriorities(@Value("${market.refresh.view-half-life:10m}") Duration viewHalfLife,
+                             @Value("${market.refresh.volatility-alpha:0.2}") double volatilityAlpha) {
+        this.viewHalfLifeMs = viewHalfLife.toMillis();
+        this.volatilityAlpha = volatilityAlpha;
+    }
+
+    public void recordView(ListingType listingType, String symbol) {
+        signals(listingType, symbol).view(System.currentTimeMillis());
+    }
+
+    public void recordPrice(ListingType listingType, String symbol, double price) {
+        signals(listingType, symbol).price(price);
+    }
+
+    public double views(ListingType listingType, String symbol) {
+        Signals symbolSignals = signals.get(key(listingType, symbol));
+        return symbolSignals == null ? 0 : symbolSignals.views(System.currentTimeMillis());
+    }
+
+    public double volatility(ListingType listingType, String symbol) {
+        Signals symbolSignals = signals.get(key(listingType, symbol));
+        return symbolSignals == null ? 0 : symbolSignals.volatility();
+    }
+
+    private Signals signals(ListingType listingType, String symbol) {
+        return signals.computeIfAbsent(key(listingType, symbol), key -> new Signals());
+    }
+
+    private static String key(ListingType listingType, String symbol) {
+        return listingType.name() + ":" + symbol;
+    }
+
+    private class Signals {
+
+        private double views;
+        private long viewsAt;
+        private double lastPrice;
+        private double volatility;
+
+        synchronized void view(long now) {
+            views = views(now) + 1;
+            viewsAt = now;
+        }
+
+        synchronized double views(long now) {
+            if (views == 0)
+                return 0;
+            return views * Math.pow(0.5, (double) (now - viewsAt) / viewHalfLifeMs);
+        }
+
+        synchronized void price(double price) {
+            if (lastPrice > 0)
+                volatility = volatilityAlpha * Math.abs(price - lastPrice) / lastPrice + (1 - volatilityAlpha) * volatility;
+            lastPrice = price;
+        }
+
+        synchronized double volatility() {
+            return volatility;
+        }
+    }
+}
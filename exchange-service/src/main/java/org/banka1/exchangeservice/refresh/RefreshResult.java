@@ -0,0 +1,22 @@
+package org.banka1.exchangeservice.refresh;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ishod jednog osvezavanja: stavke cija se kotacija stvarno promenila i stavke koje su stigle bez promene.
+ */
+@Getter
+@AllArgsConstructor
+public class RefreshResult<T> {
+
+    private final List<T> updated;
+    private final List<T> unchanged;
+
+    public static <T> RefreshResult<T> empty() {
+        return new RefreshResult<>(Collections.emptyList(), Collections.emptyList());
+    }
+}
@@ -0,0 +1,225 @@
+package org.banka1.exchangeservice.refresh;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.banka1.exchangeservice.calendar.ExchangeCalendar;
+import org.banka1.exchangeservice.domains.dtos.listing.RefreshCadenceDto;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.repositories.ForexRepository;
+import org.banka1.exchangeservice.repositories.OrderRepository;
+import org.banka1.exchangeservice.repositories.StockRepository;
+import org.banka1.exchangeservice.services.ForexService;
+import org.banka1.exchangeservice.services.StockService;
+import org.banka1.exchangeservice.stream.QuoteStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Osvezava svaki simbol svojim tempom umesto svih odjednom svakog minuta. Prioritet simbola (0 do 1) je najveci
+ * od udela otvorenih naloga, pregleda i volatilnosti u odnosu na pragove market.refresh.hot.*, a simbol sa
+ * websocket pretplatnikom ima najveci prioritet. Interval ide od market.refresh.max-interval (prioritet 0)
+ * do market.refresh.min-interval (prioritet 1). Raspored se proverava na svaki tick, a prvo osvezavanje novog
+ * simbola je pomereno za deo intervala (niz zlatnog preseka po redosledu pojavljivanja), pa se osvezavanja
+ * ravnomerno rasporedjuju kroz ceo interval umesto da krenu sva u istoj sekundi. Dok je trziste simbola zatvoreno
+ * simbol se ne osvezava, a pri otvaranju se osvezi jednom odmah i zatim nastavlja svojim intervalom.
+ */
+@Component
+@Slf4j
+public class RefreshScheduler {
+
+    private static final double GOLDEN_RATIO_FRACTION = 0.6180339887498949;
+
+    private final StockService stockService;
+    private final ForexService forexService;
+    private final StockRepository stockRepository;
+    private final ForexRepository forexRepository;
+    private final OrderRepository orderRepository;
+    private final QuoteStream quoteStream;
+    private final RefreshPriorities refreshPriorities;
+    private final ExchangeCalendar exchangeCalendar;
+    private final MeterRegistry meterRegistry;
+    private final long minIntervalMs;
+    private final long maxIntervalMs;
+    private final long hotOpenOrders;
+    private final double hotViews;
+    private final double hotVolatility;
+    private final Map<String, Cadence> cadences = new ConcurrentHashMap<>();
+    private final AtomicLong arrivals = new AtomicLong();
+
+    public RefreshScheduler(StockService stockService, ForexService forexService, StockRepository stockRepository,
+                            ForexRepository forexRepository, OrderRepository orderRepository, QuoteStream quoteStream,
+                            RefreshPriorities refreshPriorities, ExchangeCalendar exchangeCalendar, MeterRegistry meterRegistry,
+                            @Value("${market.refresh.min-interval:15s}") Duration minInterval,
+                            @Value("${market.refresh.max-interval:5m}") Duration maxInterval,
+                            @Value("${market.refresh.hot.open-orders:5}") long hotOpenOrders,
+                            @Value("${market.refresh.hot.views:20}") double hotViews,
+                            @Value("${market.refresh.hot.volatility:0.01}") double hotVolatility) {
+        this.stockService = stockService;
+        this.forexService = forexService;
+        this.stockRepository = stockRepository;
+        this.forexRepository = forexRepository;
+        this.orderRepository = orderRepository;
+        this.quoteStream = quoteStream;
+        this.refreshPriorities = refreshPriorities;
+        this.exchangeCalendar = exchangeCalendar;
+        this.meterRegistry = meterRegistry;
+        this.minIntervalMs = minInterval.toMillis();
+        this.maxIntervalMs = maxInterval.toMillis();
+        this.hotOpenOrders = hotOpenOrders;
+        this.hotViews = hotViews;
+        this.hotVolatility = hotVolatility;
+    }
+
+    @Scheduled(fixedDelayString = "${market.refresh.tick-ms:5000}", initialDelayString = "${market.refresh.tick-ms:5000}")
+    public void tick() {
+        tick(System.currentTimeMillis());
+    }
+
+    void tick(long now) {
+        List<String> stocks = due(ListingType.STOCK, stockRepository.findAllSymbols(), now);
+        List<String> forexes = due(ListingType.FOREX, forexRepository.findAllSymbols(), now);
+        refresh("stock", stocks, stockService::refreshStockData);
+        refresh("forex", forexes, forexService::refreshForexData);
+    }
+
+    /**
+     * Trenutna ucestalost osvezavanja svih simbola, od najviseg prioriteta.
+     */
+    public List<RefreshCadenceDto> cadences() {
+        return cadences.values().stream()
+                .map(Cadence::toDto)
+                .sorted(Comparator.comparingDouble(RefreshCadenceDto::getPriority).reversed()
+                        .thenComparing(RefreshCadenceDto::getSymbol))
+                .toList();
+    }
+
+    private List<String> due(ListingType listingType, List<String> symbols, long now) {
+        Map<String, Long> openOrders = openOrders(listingType);
+        Set<String> keys = new HashSet<>();
+        List<String> due = new ArrayList<>();
+        for (String symbol : symbols) {
+            String key = key(listingType, symbol);
+            keys.add(key);
+            Cadence cadence = cadences.computeIfAbsent(key, k -> new Cadence(listingType, symbol, phase()));
+            if (cadence.update(openOrders.getOrDefault(symbol, 0L), refreshPriorities.views(listingType, symbol),
+                    refreshPriorities.volatility(listingType, symbol), quoteStream.subscribers(listingType, symbol),
+                    exchangeCalendar.isOpen(listingType, symbol, now), now))
+                due.add(symbol);
+        }
+        // simboli koji vise ne postoje se brisu iz rasporeda
+        cadences.keySet().removeIf(key -> key.startsWith(listingType.name() + ":") && !keys.contains(key));
+        return due;
+    }
+
+    private Map<String, Long> openOrders(ListingType listingType) {
+        Map<String, Long> openOrders = new HashMap<>();
+        orderRepository.countOpenOrdersBySymbol(listingType).forEach(count -> openOrders.put(count.getSymbol(), count.getCount()));
+        return openOrders;
+    }
+
+    private void refresh(String name, List<String> symbols, Consumer<List<String>> refresh) {
+        if (symbols.isEmpty())
+            return;
+
+        meterRegistry.counter("market.refresh.scheduled", "name", name).increment(symbols.size());
+        try {
+            refresh.accept(symbols);
+        } catch (RuntimeException e) {
+            log.error("Scheduled refresh of {} {} symbols failed", symbols.size(), name, e);
+        }
+    }
+
+    // k-ti novi simbol dobija razlomljeni deo k * 0.618..., niz koji je ravnomerno rasporedjen za bilo koji broj simbola
+    private double phase() {
+        double phase = arrivals.getAndIncrement() * GOLDEN_RATIO_FRACTION;
+        return phase - Math.floor(phase);
+    }
+
+    private double priority(long openOrders, double views, double volatility, int subscribers) {
+        if (subscribers > 0)
+            return 1;
+        double priority = Math.max(ratio(openOrders, hotOpenOrders), ratio(views, hotViews));
+        return Math.max(priority, ratio(volatility, hotVolatility));
+    }
+
+    private static double ratio(double value, double hot) {
+        return hot <= 0 ? 0 : Math.min(1, value / hot);
+    }
+
+    private static String key(ListingType listingType, String symbol) {
+        return listingType.name() + ":" + symbol;
+    }
+
+    private class Cadence {
+
+        private final ListingType listingType;
+        private final String symbol;
+        private final double phase;
+        private long openOrders;
+        private double views;
+        private double volatility;
+        private int subscribers;
+        private double priority;
+        private long intervalMs;
+        private long lastRefresh = -1;
+        private boolean marketOpen = true;
+        private boolean missedRefresh;
+
+        private Cadence(ListingType listingType, String symbol, double phase) {
+            this.listingType = listingType;
+            this.symbol = symbol;
+            this.phase = phase;
+        }
+
+        /**
+         * Racuna novi interval i vraca true ako je simbol na redu za osvezavanje.
+         */
+        synchronized boolean update(long openOrders, double views, double volatility, int subscribers, boolean marketOpen, long now) {
+            this.openOrders = openOrders;
+            this.views = views;
+            this.volatility = volatility;
+            this.subscribers = subscribers;
+            this.priority = priority(openOrders, views, volatility, subscribers);
+            this.intervalMs = maxIntervalMs - Math.round(priority * (maxIntervalMs - minIntervalMs));
+            this.marketOpen = marketOpen;
+
+            if (!marketOpen) {
+                missedRefresh = true;
+                return false;
+            }
+            // prvi tick posle otvaranja (ili simbol koji se prvi put vidi dok je trziste bilo zatvoreno)
+            if (missedRefresh) {
+                missedRefresh = false;
+                lastRefresh = now;
+                return true;
+            }
+
+            // novi simbol se ponasa kao da je osvezen pre svog dela intervala
+            if (lastRefresh < 0)
+                lastRefresh = now - Math.round(phase * intervalMs);
+            if (lastRefresh + intervalMs > now)
+                return false;
+
+            lastRefresh = now;
+            return true;
+        }
+
+        synchronized RefreshCadenceDto toDto() {
+            return new RefreshCadenceDto(listingType, symbol, priority, intervalMs / 1000, lastRefresh, lastRefresh + intervalMs,
+                    marketOpen, openOrders, views, volatility, subscribers);
+        }
+    }
+}
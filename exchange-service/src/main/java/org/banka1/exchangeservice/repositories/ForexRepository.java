@@ -3,13 +3,28 @@ package org.banka1.exchangeservice.repositories;
 import org.banka1.exchangeservice.domains.entities.Forex;
 import org.springframework.data.domain.Page;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ForexRepository extends JpaRepository<Forex, Long>, QuerydslPredicateExecutor<Forex> {
     Forex findBySymbol(String symbol);
+    List<Forex> findAllBySymbolIn(Collection<String> symbols);
+
+    @Query("select f.symbol from Forex f")
+    List<String> findAllSymbols();
+
+    @Modifying
+    @Transactional
+    @Query("update Forex f set f.lastRefresh = :lastRefresh where f.id in :ids")
+    int touchLastRefresh(@Param("ids") Collection<Long> ids, @Param("lastRefresh") LocalDateTime lastRefresh);
 }
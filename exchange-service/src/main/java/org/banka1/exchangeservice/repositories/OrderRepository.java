@@ -4,7 +4,9 @@ import org.banka1.exchangeservice.domains.entities.ListingType;
 import org.banka1.exchangeservice.domains.entities.Order;
 import org.banka1.exchangeservice.domains.entities.OrderStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,4 +16,16 @@ public interface OrderRepository extends JpaRepository<Order, Long>, QuerydslPre
 
     List<Order> findAllByListingTypeAndListingSymbolAndDone(ListingType type, String symbol, Boolean done);
 
+    @Query("select o.listingSymbol as symbol, count(o) as count from Order o "
+            + "where o.listingType = :listingType and o.done = false group by o.listingSymbol")
+    List<OpenOrderCount> countOpenOrdersBySymbol(@Param("listingType") ListingType listingType);
+
+    interface OpenOrderCount {
+
+        String getSymbol();
+
+        long getCount();
+
+    }
+
 }
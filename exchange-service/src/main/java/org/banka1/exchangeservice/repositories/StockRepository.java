@@ -4,11 +4,28 @@ import org.banka1.exchangeservice.domains.entities.Stock;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface StockRepository extends JpaRepository<Stock, Long> {
     Page<Stock> getAllBySymbolContainsIgnoreCase(String symbol, Pageable pageable);
     Stock findBySymbol(String symbol);
+    List<Stock> findAllBySymbolIn(Collection<String> symbols);
     boolean existsStockBySymbol(String symbol);
+
+    @Query("select s.symbol from Stock s")
+    List<String> findAllSymbols();
+
+    @Modifying
+    @Transactional
+    @Query("update Stock s set s.lastRefresh = :lastRefresh where s.id in :ids")
+    int touchLastRefresh(@Param("ids") Collection<Long> ids, @Param("lastRefresh") LocalDateTime lastRefresh);
 }
@@ -1,41 +1,41 @@
 package org.banka1.exchangeservice.services;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.databind.json.JsonMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
+import org.banka1.exchangeservice.bars.BarSync;
+import org.banka1.exchangeservice.clients.MarketDataClient;
 import org.banka1.exchangeservice.domains.dtos.forex.ForexFilterRequest;
+import org.banka1.exchangeservice.domains.dtos.listing.ListingFreshnessDto;
 import org.banka1.exchangeservice.domains.dtos.forex.ForexResponseExchangeFlask;
 import org.banka1.exchangeservice.domains.dtos.forex.ForexResponseTimeSeriesFlask;
 import org.banka1.exchangeservice.domains.dtos.forex.TimeSeriesForexEnum;
 import org.banka1.exchangeservice.domains.entities.Currency;
 import org.banka1.exchangeservice.domains.entities.Forex;
+import org.banka1.exchangeservice.domains.entities.ListingType;
 import org.banka1.exchangeservice.domains.mappers.ForexMapper;
+import org.banka1.exchangeservice.engine.Quote;
+import org.banka1.exchangeservice.engine.QuoteSnapshot;
+import org.banka1.exchangeservice.messaging.TickTransport;
+import org.banka1.exchangeservice.refresh.QuoteRefresher;
+import org.banka1.exchangeservice.refresh.QuoteRevalidator;
+import org.banka1.exchangeservice.refresh.RefreshPriorities;
+import org.banka1.exchangeservice.refresh.RefreshResult;
 import org.banka1.exchangeservice.repositories.CurrencyRepository;
 import org.banka1.exchangeservice.repositories.ForexRepository;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.banka1.exchangeservice.stream.QuoteStream;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.ResourceUtils;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -49,94 +49,104 @@ public class ForexService {
     private final ForexRepository forexRepository;
     private final CurrencyRepository currencyRepository;
 
-    private final ObjectMapper objectMapper;
+    private final QuoteSnapshot quoteSnapshot;
+    private final QuoteRefresher quoteRefresher;
+    private final MarketDataClient marketDataClient;
+    private final QuoteRevalidator quoteRevalidator;
+    private final BarSync barSync;
+    private final QuoteStream quoteStream;
+    private final RefreshPriorities refreshPriorities;
 
-    @Value("${flask.api.forex.exchange}")
-    private String baseForexUrl;
-    @Value("${flask.api.forex.timeseries}")
-    private String baseForexTimeSeriesUrl;
-    @Value("${flask.api.forex.timeseries.intraday}")
-    private String baseForexTimeSeriesIntraDayUrl;
-
-    private final RabbitTemplate rabbitTemplate;
-    @Value("${rabbitmq.exchange.name}")
-    private String exchange;
-    @Value("${rabbitmq.routing.forex.key}")
-    private String routingKey;
+    private final TickTransport tickTransport;
 
     public ForexService(ForexRepository forexRepository, CurrencyRepository currencyRepository,
-                        @Autowired RabbitTemplate rabbitTemplate, @Autowired ObjectMapper objectMapper) {
+                        TickTransport tickTransport, QuoteSnapshot quoteSnapshot,
+                        QuoteRefresher quoteRefresher, MarketDataClient marketDataClient, QuoteRevalidator quoteRevalidator,
+                        BarSync barSync, QuoteStream quoteStream,
+                        RefreshPriorities refreshPriorities) {
         this.forexRepository = forexRepository;
         this.currencyRepository = currencyRepository;
-        this.rabbitTemplate = rabbitTemplate;
-        this.objectMapper = objectMapper;
+        this.tickTransport = tickTransport;
+        this.quoteSnapshot = quoteSnapshot;
+        this.quoteRefresher = quoteRefresher;
+        this.marketDataClient = marketDataClient;
+        this.quoteRevalidator = quoteRevalidator;
+        this.barSync = barSync;
+        this.quoteStream = quoteStream;
+        this.refreshPriorities = refreshPriorities;
     }
 
-    public Page<Forex> getForexes(Integer page, Integer size, ForexFilterRequest forexFilterRequest){
+    public Page<ListingFreshnessDto<Forex>> getForexes(Integer page, Integer size, ForexFilterRequest forexFilterRequest){
         Page<Forex> forexes = forexRepository.findAll(forexFilterRequest.getPredicate(), PageRequest.of(page,size));
-        updateForexes(forexes.getContent());
-        return forexes;
+        // odgovor se ne ceka na flask, zastareli redovi se osvezavaju u pozadini
+        forexes.forEach(forex -> refreshPriorities.recordView(ListingType.FOREX, forex.getSymbol()));
+        List<Forex> staleForexes = forexes.getContent().stream().filter(forex -> quoteRevalidator.isStale(forex.getLastRefresh())).toList();
+        quoteRevalidator.revalidate("forex", staleForexes, Forex::getSymbol, this::revalidateForexes);
+        return forexes.map(forex -> new ListingFreshnessDto<>(forex, forex.getLastRefresh(), quoteRevalidator.isStale(forex.getLastRefresh())));
     }
 
     public ForexResponseTimeSeriesFlask getForexByTimeSeries(String fromCurrency, String toCurrency, TimeSeriesForexEnum timeSeries) {
-        String url= switch (timeSeries) {
-            case FIVE_MIN, HOUR ->
-                    baseForexTimeSeriesIntraDayUrl + "?from_currency=" + fromCurrency + "&to_currency=" + toCurrency + "&interval=" + timeSeries.getValue();
-            case DAILY, WEEKLY, MONTHLY ->
-                    baseForexTimeSeriesUrl + "?from_currency=" + fromCurrency + "&to_currency=" + toCurrency + "&time_series=" + timeSeries.getValue();
-        };
-
+        refreshPriorities.recordView(ListingType.FOREX, fromCurrency + "/" + toCurrency);
         try {
-            return getForexFromFlask(url, ForexResponseTimeSeriesFlask.class);
+            // serija se sinhronizuje sa flask-om najvise jednom po intervalu perioda, a uvek se cita iz lokalnog skladista
+            return barSync.forexTimeSeries(fromCurrency, toCurrency, timeSeries);
         } catch (IOException | InterruptedException e) {
             throw new RuntimeException(e);
         }
     }
 
-    public void updateForexes(List<Forex> forexesToUpdate) {
-        LocalDateTime now = LocalDateTime.now();
-
-        List<Forex> updatedForexesToSave = new ArrayList<>();
-        forexesToUpdate.forEach(forex -> {
-            Duration duration = Duration.between(forex.getLastRefresh(), now);
-            if(duration.toMinutes() > 15) {
-                String url = baseForexUrl + "?from_currency=" + forex.getFromCurrency().getCurrencyCode() + "&to_currency=" + forex.getToCurrency().getCurrencyCode();
-                try {
-                    ForexResponseExchangeFlask forexResponseExchangeFlask = getForexFromFlask(url, ForexResponseExchangeFlask.class);
-                    forex.setLastRefresh(now);
-                    ForexMapper.INSTANCE.updateForexFromForexResponseExchangeFlask(forex, forexResponseExchangeFlask);
-                } catch (IOException | InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
-
-                updatedForexesToSave.add(forex);
-            }
+    /**
+     * Osvezava kotacije datih simbola; koje simbole i kada odlucuje RefreshScheduler.
+     */
+    public void refreshForexData(Collection<String> symbols) {
+        refreshForexData(symbols, false);
+    }
+
+    /**
+     * Osvezava zastarele redove iz liste. Ako je osvezavanje u toku, revalidacija ga ceka umesto da se preskoci,
+     * jer su simboli vec zakazani i niko drugi ih nece osveziti.
+     */
+    void revalidateForexes(List<String> symbols) {
+        refreshForexData(symbols, true);
+    }
 
+    private void refreshForexData(Collection<String> symbols, boolean waitForRunning) {
+        RefreshResult<Forex> result = quoteRefresher.refresh("forex", forexRepository.findAllBySymbolIn(symbols), Forex::getSymbol, this::fingerprint,
+                marketDataClient.getBatchSize(), marketDataClient::fetchForexQuotes, this::updateForexFromFlask, waitForRunning);
+
+        // nepromenjene kotacije se ne cuvaju i ne salju, samo im se pomera vreme osvezavanja
+        if (!result.getUnchanged().isEmpty())
+            forexRepository.touchLastRefresh(result.getUnchanged().stream().map(Forex::getId).toList(), LocalDateTime.now());
+        if (result.getUpdated().isEmpty())
+            return;
+
+        forexRepository.saveAll(result.getUpdated());
+        result.getUpdated().forEach(forex -> {
+            Quote quote = publish(forex);
+            if (quote != null)
+                tickTransport.publish(ListingType.FOREX, forex.getSymbol(), quote);
         });
+        // tick-ovi ovog osvezavanja se salju odmah, bez cekanja sledeceg flush-a
+        tickTransport.flush();
+    }
 
-        if(!updatedForexesToSave.isEmpty()) {
-            forexRepository.saveAll(updatedForexesToSave);
-        }
+    private Quote publish(Forex forex) {
+        Quote quote = quoteSnapshot.update(forex);
+        if (quote == null)
+            return null;
+        refreshPriorities.recordPrice(ListingType.FOREX, forex.getSymbol(), quote.getLast());
+        quoteStream.publish(ListingType.FOREX, forex.getSymbol(), quote);
+        return quote;
     }
 
-    @Scheduled(cron = "0 0/1 * * * *")
-    public void refreshForexData() {
-        List<Forex> forexes = forexRepository.findAll();
-
-        forexes.forEach(forex ->{
-            String url = baseForexUrl + "?from_currency=" + forex.getFromCurrency().getCurrencyCode() + "&to_currency=" + forex.getToCurrency().getCurrencyCode();
-            try {
-                ForexResponseExchangeFlask forexResponseExchangeFlask = getForexFromFlask(url, ForexResponseExchangeFlask.class);
-                if(forexResponseExchangeFlask != null){
-                    forex.setLastRefresh(LocalDateTime.now());
-                    ForexMapper.INSTANCE.updateForexFromForexResponseExchangeFlask(forex, forexResponseExchangeFlask);
-                    forexRepository.save(forex);
-                    rabbitTemplate.convertAndSend(exchange, routingKey, forex);
-                }
-            } catch (IOException | InterruptedException e) {
-                throw new RuntimeException(e);
-            }
-        });
+    private void updateForexFromFlask(Forex forex, ForexResponseExchangeFlask forexResponseExchangeFlask) {
+        forex.setLastRefresh(LocalDateTime.now());
+        ForexMapper.INSTANCE.updateForexFromForexResponseExchangeFlask(forex, forexResponseExchangeFlask);
+    }
+
+    private double[] fingerprint(Forex forex) {
+        return new double[] { QuoteRefresher.value(forex.getExchangeRate()), QuoteRefresher.value(forex.getBidPrice()),
+                QuoteRefresher.value(forex.getAskPrice()) };
     }
 
     public void loadForex() throws Exception {
@@ -156,38 +166,28 @@ public class ForexService {
         Map<String, Currency> currencyMap = currencyRepository.findAll().stream()
                 .collect(Collectors.toMap(Currency::getCurrencyCode, Function.identity()));
 
+        Map<String, ForexResponseExchangeFlask> quotes = marketDataClient.getForexQuotes(csvRecords.stream()
+                .map(record -> record.get("from") + "/" + record.get("to"))
+                .toList());
+
         for(CSVRecord record: csvRecords) {
             String from = record.get("from");
             String to = record.get("to");
-
-            String url = baseForexUrl + "?from_currency=" + from + "&to_currency=" + to;
-            ForexResponseExchangeFlask forexResponseExchangeFlask = getForexFromFlask(url, ForexResponseExchangeFlask.class);
+            ForexResponseExchangeFlask forexResponseExchangeFlask = quotes.get(from + "/" + to);
+            if (forexResponseExchangeFlask == null)
+                continue;
 
             Forex forex = new Forex();
             forex.setFromCurrency(currencyMap.get(from));
             forex.setToCurrency(currencyMap.get(to));
             forex.setSymbol(from + "/" + to);
-            forex.setLastRefresh(LocalDateTime.now());
-            ForexMapper.INSTANCE.updateForexFromForexResponseExchangeFlask(forex, forexResponseExchangeFlask);
+            updateForexFromFlask(forex, forexResponseExchangeFlask);
 
             forexesToSave.add(forex);
         }
 
         forexRepository.saveAll(forexesToSave);
-    }
-
-    private <T> T getForexFromFlask(String url, Class<T> clazz) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .method("GET", HttpRequest.BodyPublishers.noBody())
-                .build();
-        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() != 200)
-            return null;
-
-        String jsonForex = response.body();
-        return objectMapper.readValue(jsonForex, clazz);
+        forexesToSave.forEach(quoteSnapshot::update);
     }
 
 }
@@ -8,8 +8,10 @@ import org.banka1.exchangeservice.domains.dtos.option.Response;
 import org.banka1.exchangeservice.domains.dtos.user.UserDto;
 import org.banka1.exchangeservice.domains.entities.Option;
 import org.banka1.exchangeservice.domains.entities.OptionType;
-import org.banka1.exchangeservice.domains.entities.Stock;
+import org.banka1.exchangeservice.domains.entities.ListingType;
 import org.banka1.exchangeservice.domains.mappers.OptionMapper;
+import org.banka1.exchangeservice.engine.Quote;
+import org.banka1.exchangeservice.engine.QuoteSnapshot;
 import org.banka1.exchangeservice.repositories.OptionRepository;
 import org.banka1.exchangeservice.repositories.StockRepository;
 import org.springframework.stereotype.Service;
@@ -33,11 +35,13 @@ public class OptionService {
 
     private final OptionRepository optionRepository;
     private final StockRepository stockRepository;
+    private final QuoteSnapshot quoteSnapshot;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public OptionService(OptionRepository optionRepository, StockRepository stockRepository) {
+    public OptionService(OptionRepository optionRepository, StockRepository stockRepository, QuoteSnapshot quoteSnapshot) {
         this.optionRepository = optionRepository;
         this.stockRepository = stockRepository;
+        this.quoteSnapshot = quoteSnapshot;
     }
 
     public void loadOptions(){
@@ -98,11 +102,11 @@ public class OptionService {
         List<Option> options = new ArrayList<>();
         optionIterable.forEach(options::add);
 
-        Stock stock = stockRepository.findBySymbol(optionFilterRequest.getSymbol());
+        Quote quote = quoteSnapshot.get(ListingType.STOCK, optionFilterRequest.getSymbol());
         options.forEach(o -> {
-           o.setAsk(stock.getPrice());
-           o.setBid(stock.getPrice());
-           o.setPrice(stock.getPrice());
+           o.setAsk(quote.getAsk());
+           o.setBid(quote.getBid());
+           o.setPrice(quote.getLast());
         });
 
         Map<OptionDto, List<Option>> optionMap = options.stream()
@@ -1,102 +1,149 @@
 package org.banka1.exchangeservice.services;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import lombok.extern.slf4j.Slf4j;
+import org.banka1.exchangeservice.calendar.ExchangeCalendar;
+import org.banka1.exchangeservice.clients.UserServiceClient;
 import org.banka1.exchangeservice.domains.dtos.option.BetDto;
 import org.banka1.exchangeservice.domains.dtos.option.OptionDto;
 import org.banka1.exchangeservice.domains.dtos.order.OrderFilterRequest;
 import org.banka1.exchangeservice.domains.dtos.order.OrderRequest;
+import org.banka1.exchangeservice.domains.dtos.order.OrderStatusDto;
+import org.banka1.exchangeservice.domains.dtos.user.FillSettlementDto;
+import org.banka1.exchangeservice.domains.dtos.user.FillSettlementResultDto;
 import org.banka1.exchangeservice.domains.dtos.user.Position;
 import org.banka1.exchangeservice.domains.dtos.user.UserDto;
-import org.banka1.exchangeservice.domains.dtos.user.UserListingCreateDto;
 import org.banka1.exchangeservice.domains.dtos.user.UserListingDto;
 import org.banka1.exchangeservice.domains.entities.*;
 import org.banka1.exchangeservice.domains.exceptions.BadRequestException;
+import org.banka1.exchangeservice.domains.exceptions.ForbiddenException;
 import org.banka1.exchangeservice.domains.exceptions.NotFoundExceptions;
 import org.banka1.exchangeservice.domains.mappers.OrderMapper;
-import org.banka1.exchangeservice.repositories.ForexRepository;
+import org.banka1.exchangeservice.engine.Fill;
+import org.banka1.exchangeservice.engine.MatchingEngine;
+import org.banka1.exchangeservice.engine.Quote;
+import org.banka1.exchangeservice.engine.QuoteSnapshot;
+import org.banka1.exchangeservice.engine.SymbolLanes;
+import org.banka1.exchangeservice.journal.OrderEventType;
+import org.banka1.exchangeservice.journal.OrderStateWriter;
+import org.banka1.exchangeservice.messaging.Tick;
 import org.banka1.exchangeservice.repositories.OptionBetRepository;
 import org.banka1.exchangeservice.repositories.OptionRepository;
 import org.banka1.exchangeservice.repositories.OrderRepository;
-import org.banka1.exchangeservice.repositories.StockRepository;
 import org.banka1.exchangeservice.utils.JwtUtil;
 import org.springframework.amqp.core.Message;
-import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Stream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class OrderService {
 
     private final OrderRepository orderRepository;
-    private final ForexRepository forexRepository;
-    private final StockRepository stockRepository;
     private final OptionBetRepository optionBetRepository;
     private final OptionRepository optionRepository;
-    private final ObjectMapper objectMapper = new ObjectMapper();
 
     private final ForexService forexService;
     private final StockService stockService;
+    private final MatchingEngine matchingEngine;
+    private final QuoteSnapshot quoteSnapshot;
+    private final SymbolLanes symbolLanes;
+    private final OrderStateWriter orderStateWriter;
+    private final Executor orderExecutor;
+    private final UserServiceClient userServiceClient;
+    private final ExchangeCalendar exchangeCalendar;
 
     private final JwtUtil jwtUtil;
 
-    @Value("${user.service.endpoint}")
-    private String userServiceUrl;
-
     @Value("${jwt.secret}")
     private String SECRET_KEY;
 
 
-    public OrderService(OrderRepository orderRepository, ForexRepository forexRepository,
-                        StockRepository stockRepository, OptionBetRepository optionBetRepository, OptionRepository optionRepository, ForexService forexService,
-                        StockService stockService, JwtUtil jwtUtil) {
+    public OrderService(OrderRepository orderRepository, OptionBetRepository optionBetRepository, OptionRepository optionRepository, ForexService forexService,
+                        StockService stockService, MatchingEngine matchingEngine, QuoteSnapshot quoteSnapshot, SymbolLanes symbolLanes, OrderStateWriter orderStateWriter, @Qualifier("orderExecutor") Executor orderExecutor,
+                        UserServiceClient userServiceClient, ExchangeCalendar exchangeCalendar, JwtUtil jwtUtil) {
 
         this.orderRepository = orderRepository;
-        this.forexRepository = forexRepository;
-        this.stockRepository = stockRepository;
         this.optionBetRepository = optionBetRepository;
         this.optionRepository = optionRepository;
         this.forexService = forexService;
         this.stockService = stockService;
+        this.matchingEngine = matchingEngine;
+        this.quoteSnapshot = quoteSnapshot;
+        this.symbolLanes = symbolLanes;
+        this.orderStateWriter = orderStateWriter;
+        this.orderExecutor = orderExecutor;
+        this.userServiceClient = userServiceClient;
+        this.exchangeCalendar = exchangeCalendar;
         this.jwtUtil = jwtUtil;
     }
 
-    public Order makeOrder(OrderRequest orderRequest, String token) {
-        UserDto userDto = getUserDtoFromUserService(token);
-        Double expectedPrice = calculateThePrice(orderRequest.getListingType(),orderRequest.getSymbol(),orderRequest.getQuantity());
-
+    /**
+     * Nalog se cuva odmah sa statusom PENDING i vraca klijentu, a provera korisnika i izvrsavanje
+     * se rade na orderExecutor-u. Profil i pozicija korisnika se dohvataju paralelno,
+     * a odobren nalog se izvrsava na traci svog simbola.
+     */
+    public OrderStatusDto makeOrder(OrderRequest orderRequest, Long userId, String email, String token) {
         Order order = new Order();
-        order.setEmail(userDto.getEmail());
-        order.setUserId(userDto.getId());
-        order.setExpectedPrice(expectedPrice);
+        order.setEmail(email);
+        order.setUserId(userId);
+        order.setExpectedPrice(calculateThePrice(orderRequest.getListingType(), orderRequest.getSymbol(), orderRequest.getQuantity()));
         order.setRemainingQuantity(orderRequest.getQuantity());
         order.setLastModified(new Date());
+        order.setOrderStatus(OrderStatus.PENDING);
         OrderMapper.INSTANCE.updateOrderFromOrderRequest(order, orderRequest);
+        orderStateWriter.place(order);
+        OrderStatusDto pending = toOrderStatusDto(order);
+
+        CompletableFuture<UserDto> userDtoFuture = CompletableFuture
+                .supplyAsync(() -> getUserDtoFromUserService(token), orderExecutor);
+        CompletableFuture<UserListingDto> userListingFuture = CompletableFuture
+                .supplyAsync(() -> getUserListing(userId, order.getListingType(), order.getListingSymbol()), orderExecutor);
+
+        userDtoFuture.thenCombineAsync(userListingFuture, (userDto, userListingDto) -> processOrder(order, userDto, userListingDto, token), orderExecutor)
+                .thenCompose(approved -> approved
+                        ? symbolLanes.execute(order.getListingType(), order.getListingSymbol(), () -> executeOrder(order))
+                        : CompletableFuture.completedFuture(null))
+                .exceptionally(e -> {
+                    log.error("Processing of order {} failed", order.getId(), e);
+                    // nalog koji je vec u knjizi ili izvrsen zadrzava status, odbija se samo ako do knjige nije stigao
+                    if (Boolean.TRUE.equals(order.getDone()) || matchingEngine.contains(order))
+                        return null;
+                    order.setOrderStatus(OrderStatus.REJECTED);
+                    order.setLastModified(new Date());
+                    orderStateWriter.record(OrderEventType.REJECTED, order);
+                    return null;
+                });
+
+        return pending;
+    }
+
+    private boolean processOrder(Order order, UserDto userDto, UserListingDto userListingDto, String token) {
+        Double expectedPrice = order.getExpectedPrice();
+        // knjiga se ucitava pre nego sto nalog postane APPROVED, da je ucitavanje ne bi vratilo iz baze
+        matchingEngine.load(order.getListingType(), order.getListingSymbol());
 
         if(userDto.getBankAccount().getAccountBalance() < expectedPrice) {
             order.setOrderStatus(OrderStatus.REJECTED);
         }
-        else if(userDto.getBankAccount().getDailyLimit() - expectedPrice < 0) {
+        else if(userDto.getDailyLimit() - expectedPrice < 0) {
             order.setOrderStatus(OrderStatus.ON_HOLD);
         }
         else {
             order.setOrderStatus(OrderStatus.APPROVED);
         }
 
-        UserListingDto userListingDto = getUserListing(order.getUserId(), order.getListingType(), order.getListingSymbol(), token);
         if ((userListingDto == null || userListingDto.getQuantity() < order.getQuantity())
                 && order.getOrderAction() == OrderAction.SELL) {
             order.setOrderStatus(OrderStatus.REJECTED);
@@ -106,215 +153,191 @@ public class OrderService {
             reduceDailyLimitForUser(token, userDto.getId(), expectedPrice);
         }
 
-        orderRepository.save(order);
-        if(order.getOrderStatus().equals(OrderStatus.APPROVED))
-            mockExecutionOfOrder(order, token);
+        order.setLastModified(new Date());
+        orderStateWriter.record(OrderEventType.valueOf(order.getOrderStatus().name()), order);
+        return order.getOrderStatus().equals(OrderStatus.APPROVED);
+    }
 
-        return order;
+    public OrderStatusDto getOrderStatus(Long orderId, Long userId) {
+        Order order = findOrder(orderId);
+        if (!order.getUserId().equals(userId))
+            throw new ForbiddenException("order belongs to another user");
+
+        return toOrderStatusDto(order);
+    }
+
+    // nalog ciji prelaz jos nije upisan u bazu se cita iz journal writer-a, da status ne bi kasnio
+    private Order findOrder(Long orderId) {
+        Order order = orderStateWriter.pending(orderId);
+        if (order != null)
+            return order;
+        return orderRepository.findById(orderId).orElseThrow(() -> new NotFoundExceptions("order not found"));
+    }
+
+    private OrderStatusDto toOrderStatusDto(Order order) {
+        return new OrderStatusDto(order.getId(), order.getOrderStatus(), order.getRemainingQuantity(), order.getDone(), order.getLastModified());
     }
 
     public Double calculateThePrice(ListingType listingType, String symbol, Integer quantity){
-        if(listingType.equals(ListingType.FOREX)){
-         Forex forex = forexRepository.findBySymbol(symbol);
-         return forex.getExchangeRate() * quantity;
-        } else if (listingType.equals(ListingType.STOCK)) {
-            Stock stock = stockRepository.findBySymbol(symbol);
-            return stock.getPrice() * quantity;
-        }
+        if(listingType.equals(ListingType.FOREX) || listingType.equals(ListingType.STOCK))
+            return quoteSnapshot.get(listingType, symbol).getLast() * quantity;
         return 0.0;
     }
 
     public UserDto getUserDtoFromUserService(String token){
-        String url = userServiceUrl + "/users/my-profile";
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", token)
-                .method("GET", HttpRequest.BodyPublishers.noBody())
-                .build();
-
-        UserDto userDto = null;
-        try {
-            HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
-            userDto = objectMapper.readValue(response.body(), UserDto.class);
-        }catch (Exception e){
-            e.printStackTrace();
-        }
-
-        return userDto;
+        return userServiceClient.getMyProfile(token);
     }
 
     public void reduceDailyLimitForUser(String token,Long userId, Double decreaseLimit){
-        String url = userServiceUrl + "/users/reduce-daily-limit?userId=" + userId + "&decreaseLimit=" + decreaseLimit;
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", token)
-                .method("PUT", HttpRequest.BodyPublishers.noBody())
-                .build();
-
-        try {
-            HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
-        }catch (Exception e){
-            e.printStackTrace();
-        }
+        userServiceClient.reduceDailyLimit(userId, decreaseLimit, token);
     }
 
-    public void mockExecutionOfOrder(Order order, String token) {
-        UserListingDto userListingDto = getUserListing(order.getUserId(), order.getListingType(), order.getListingSymbol(), token);
-        if(userListingDto == null) {
-            UserListingCreateDto userListingCreateDto = new UserListingCreateDto();
-            userListingCreateDto.setSymbol(order.getListingSymbol());
-            userListingCreateDto.setQuantity(0);
-            userListingCreateDto.setListingType(order.getListingType());
-
-            try {
-                String body = objectMapper.writeValueAsString(userListingCreateDto);
-                String url = userServiceUrl + "/user-listings/create?userId=" + order.getUserId();
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(url))
-                        .header("Authorization", token)
-                        .header("Content-Type", "application/json")
-                        .method("POST", HttpRequest.BodyPublishers.ofString(body))
-                        .build();
-
-                HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
-                String jsonUserListing = response.body();
-                userListingDto = objectMapper.readValue(jsonUserListing, UserListingDto.class);
-
-            } catch (IOException | InterruptedException e) {
-                throw new RuntimeException(e);
-            }
+    public void executeOrder(Order order) {
+        // van radnog vremena nalog ceka u knjizi, i market nalog se izvrsava tek na kotaciji posle otvaranja
+        if (!exchangeCalendar.isOpen(order.getListingType(), order.getListingSymbol())) {
+            matchingEngine.restore(order);
+            return;
         }
 
-        Long listingId = userListingDto.getId();
-        Random random = new Random();
-        int quantity = random.nextInt(order.getRemainingQuantity() + 1);
-        if (order.isAllOrNone() && quantity != order.getQuantity())
-            return;
+        Quote quote = quoteSnapshot.get(order.getListingType(), order.getListingSymbol());
+        long liquidity = order.getListingType() == ListingType.STOCK && quote.getVolume() > 0 ? quote.getVolume() : Long.MAX_VALUE;
 
-        double askPrice = 0;
-        double bidPrice = 0;
-        if (order.getListingType() == ListingType.FOREX) {
-            Forex forex = forexRepository.findBySymbol(order.getListingSymbol());
-            askPrice = forex.getAskPrice();
-            bidPrice = forex.getBidPrice();
-        } else if (order.getListingType() == ListingType.STOCK) {
-            Stock stock = stockRepository.findBySymbol(order.getListingSymbol());
-            askPrice = stock.getPrice();
-            bidPrice = stock.getPrice();
-        }
+        List<Fill> fills = matchingEngine.submit(order, quote.getAsk(), quote.getBid(), liquidity);
+        recordTriggered(order.getListingType(), order.getListingSymbol());
+        settleFills(fills);
+    }
 
-        switch (order.getOrderType()) {
-            case STOP_ORDER -> {
-                if ((order.getOrderAction() == OrderAction.BUY && order.getStopValue() < askPrice)
-                        || (order.getOrderAction() == OrderAction.SELL && order.getStopValue() > bidPrice)) {
-                    order.setOrderType(OrderType.MARKET_ORDER);
-                }
-                else {
-                    return;
-                }
-            }
-            case LIMIT_ORDER -> {
-                if ((order.getOrderAction() == OrderAction.BUY && askPrice > order.getLimitValue())
-                        || (order.getOrderAction() == OrderAction.SELL && bidPrice < order.getLimitValue())) {
-                    return;
-                }
-            }
-            case STOP_LIMIT_ORDER -> {
-                if ((order.getOrderAction() == OrderAction.BUY && order.getStopValue() > askPrice)
-                        || (order.getOrderAction() == OrderAction.SELL && order.getStopValue() < bidPrice)
-                        || ((order.getOrderAction() == OrderAction.BUY && askPrice > order.getLimitValue())
-                        || (order.getOrderAction() == OrderAction.SELL && bidPrice < order.getLimitValue()))) {
-                    return;
-                }
-            }
-        }
+    // aktivacija stop naloga se upisuje pre poravnanja, pa posle restarta nalog ne ceka ponovo na stop cenu
+    private void recordTriggered(ListingType listingType, String symbol) {
+        Date now = new Date();
+        matchingEngine.takeTriggered(listingType, symbol).forEach(order -> {
+            order.setLastModified(now);
+            orderStateWriter.record(OrderEventType.TRIGGERED, order);
+        });
+    }
 
-        int newQuantity;
-        if(order.getOrderAction() == OrderAction.BUY) {
-            newQuantity = quantity + userListingDto.getQuantity();
-        } else {
-            newQuantity = userListingDto.getQuantity() - quantity;
+    /**
+     * Salje sve fill-ove jednog tick-a user servisu u jednom pozivu, kao promene kolicine i stanja racuna.
+     * Poravnanje je servisni poziv, pa ide sa admin tokenom exchange servisa, a ne sa tokenom korisnika.
+     * Fill-ovi se upisuju u knjigu i bazu tek kada user servis potvrdi poravnanje. Ako poravnanje ne uspe,
+     * nalozi ostaju u knjizi nepromenjeni i sledeca kotacija ih ponovo izvrsava.
+     */
+    public void settleFills(List<Fill> fills) {
+        if (fills.isEmpty())
+            return;
+
+        // id poravnanja je id naloga i kolicina izvrsena pre fill-a; knjiga se menja tek posle poravnanja,
+        // pa fill ponovljen posle timeout-a dobija isti id i user servis ga ne knjizi dvaput
+        List<FillSettlementDto> settlements = new ArrayList<>();
+        Map<Order, Integer> filledBefore = new HashMap<>();
+        for (Fill fill : fills) {
+            Order order = fill.getOrder();
+            int sign = order.getOrderAction() == OrderAction.BUY ? 1 : -1;
+            int before = filledBefore.merge(order, fill.getQuantity(), Integer::sum) - fill.getQuantity()
+                    + order.getQuantity() - order.getRemainingQuantity();
+            settlements.add(new FillSettlementDto(order.getId() + ":" + before, order.getUserId(), order.getListingType(),
+                    order.getListingSymbol(), sign * fill.getQuantity(), -sign * fill.getPrice() * fill.getQuantity()));
         }
 
-        order.setRemainingQuantity(order.getRemainingQuantity() - quantity);
-        if(order.getRemainingQuantity() == 0)
-            order.setDone(true);
-
-        Double accountBalanceToUpdate = calculateThePrice(order.getListingType(), order.getListingSymbol(), quantity);
-        String urlBankAccount;
-        if(order.getOrderAction() == OrderAction.BUY)
-            urlBankAccount = userServiceUrl + "/users/decrease-balance?decreaseAccount=" + accountBalanceToUpdate;
-        else
-            urlBankAccount = userServiceUrl + "/users/increase-balance?increaseAccount=" + accountBalanceToUpdate;
-
-        updateBankAccountBalance(token, urlBankAccount);
-
-        String url = userServiceUrl + "/user-listings/update/" + listingId + "?newQuantity=" + newQuantity;
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", token)
-                .header("Content-Type", "application/json")
-                .method("PUT", HttpRequest.BodyPublishers.ofString("")) // mozda treba mozda ne treba
-                .build();
+        List<FillSettlementResultDto> results;
         try {
-            HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
-            userListingDto = objectMapper.readValue(response.body(), UserListingDto.class);
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
+            results = userServiceClient.settleFills(settlements, serviceToken());
+        } catch (RuntimeException e) {
+            log.warn("Settlement of {} fills failed, orders stay in the book: {}", fills.size(), e.getMessage());
+            return;
         }
 
-        order.setLastModified(new Date());
-        orderRepository.save(order);
-    }
+        // primenjuju se samo poravnati fill-ovi, sa kolicinom koju je user servis zaista knjizio
+        Map<String, FillSettlementResultDto> resultsById = results.stream()
+                .collect(Collectors.toMap(FillSettlementResultDto::getSettlementId, Function.identity(), (first, second) -> first));
+        List<Fill> settled = new ArrayList<>();
+        Set<Order> orders = new LinkedHashSet<>();
+        for (int i = 0; i < fills.size(); i++) {
+            Fill fill = fills.get(i);
+            FillSettlementResultDto result = resultsById.get(settlements.get(i).getSettlementId());
+            if (result == null || !result.isSettled())
+                continue;
+            int quantity = Math.abs(result.getQuantityDelta());
+            settled.add(quantity == fill.getQuantity() ? fill : new Fill(fill.getOrder(), quantity, fill.getPrice()));
+            orders.add(fill.getOrder());
+        }
+        if (settled.size() < fills.size())
+            log.warn("Settlement of {} of {} fills failed, their orders stay in the book", fills.size() - settled.size(), fills.size());
+        if (settled.isEmpty())
+            return;
+        matchingEngine.apply(settled);
 
-    @RabbitListener(queues = "${rabbitmq.queue.forex.name}")
-    public void receiveForex(Forex forex) {
-        receive(ListingType.FOREX, forex.getSymbol());
+        Date now = new Date();
+        orders.forEach(order -> {
+            order.setLastModified(now);
+            orderStateWriter.recordFill(order);
+        });
     }
 
-    @RabbitListener(queues = "${rabbitmq.queue.stock.name}")
-    public void receiveStock(Stock stock) {
-        receive(ListingType.STOCK, stock.getSymbol());
+    /**
+     * Tick-ovi stizu iz redova particija (TickListenerConfiguration) ili iz RingBufferTickTransport-a,
+     * u oba slucaja jedna particija po niti, pa su tick-ovi jednog simbola u redosledu.
+     * Forex nema volumen, pa je kolicina dostupna na kotaciji neogranicena, a kod akcija je to dnevni volumen.
+     * Vraceni future se zavrsava kada je tick obradjen na traci simbola.
+     */
+    public CompletableFuture<Void> receiveTick(Tick tick) {
+        return receiveQuote(tick.getListingType(), tick.getSymbol(), tick.getQuote());
     }
 
-    private void receive(ListingType listingType, String symbol){
-        List<Order> notDoneOrders = orderRepository
-                .findAllByListingTypeAndListingSymbolAndDone(listingType, symbol, false);
-        String token = "Bearer " + jwtUtil.generateToken();
-
-        notDoneOrders.forEach(order -> mockExecutionOfOrder(order, token));
+    public CompletableFuture<Void> receiveQuote(ListingType listingType, String symbol, Quote quote) {
+        long liquidity = quote.getVolume() <= 0 ? Long.MAX_VALUE : quote.getVolume();
+        return receive(listingType, symbol, quote.getAsk(), quote.getBid(), liquidity);
     }
 
-    public void updateBankAccountBalance(String token, String url){
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", token)
-                .header("Content-Type", "application/json")
-                .method("PUT", HttpRequest.BodyPublishers.ofString(""))
-                .build();
-        try {
-            HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+    private CompletableFuture<Void> receive(ListingType listingType, String symbol, Double askPrice, Double bidPrice, long liquidity){
+        if (askPrice == null || bidPrice == null)
+            return CompletableFuture.completedFuture(null);
+        // van radnog vremena trzista se nalozi ne izvrsavaju, pa nema potrebe ni da se proveravaju
+        if (!exchangeCalendar.isOpen(listingType, symbol))
+            return CompletableFuture.completedFuture(null);
+
+        // tick koji jos ceka na traci se zamenjuje novijim, pa se naloge proveravaju samo protiv poslednje kotacije
+        return symbolLanes.executeLatest(listingType, symbol, () -> {
+            List<Fill> fills = matchingEngine.onQuote(listingType, symbol, askPrice, bidPrice, liquidity);
+            recordTriggered(listingType, symbol);
+            if (!fills.isEmpty())
+                settleFills(fills);
+        });
     }
 
     public void rejectOrder(String token, Long orderId) {
         UserDto userDto = getUserDtoFromUserService(token);
         if(userDto.getPosition() == Position.ADMINISTRATOR){
-            Order order = orderRepository.findById(orderId).orElseThrow(() -> new NotFoundExceptions("order not found"));
-            order.setOrderStatus(OrderStatus.REJECTED);
-            orderRepository.save(order);
+            Order order = findOrder(orderId);
+            await(symbolLanes.execute(order.getListingType(), order.getListingSymbol(), () -> {
+                order.setOrderStatus(OrderStatus.REJECTED);
+                orderStateWriter.record(OrderEventType.REJECTED, order);
+                matchingEngine.cancel(order);
+            }));
         }
     }
 
     public void approveOrder(String token, Long orderId) {
         UserDto userDto = getUserDtoFromUserService(token);
         if(userDto.getPosition() == Position.ADMINISTRATOR){
-            Order order = orderRepository.findById(orderId).orElseThrow(() -> new NotFoundExceptions("order not found"));
-            order.setOrderStatus(OrderStatus.APPROVED);
-            orderRepository.save(order);
-            mockExecutionOfOrder(order, token);
+            Order order = findOrder(orderId);
+            await(symbolLanes.execute(order.getListingType(), order.getListingSymbol(), () -> {
+                matchingEngine.load(order.getListingType(), order.getListingSymbol());
+                order.setOrderStatus(OrderStatus.APPROVED);
+                orderStateWriter.record(OrderEventType.APPROVED, order);
+                executeOrder(order);
+            }));
+        }
+    }
+
+    // admin akcija ceka da je traka izvrsi, a greska se vraca pozivaocu kao da je bacena ovde
+    private static void await(CompletableFuture<Void> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            throw e;
         }
     }
 
@@ -336,28 +359,12 @@ public class OrderService {
         return orders;
     }
 
-    public UserListingDto getUserListing(Long userId, ListingType listingType, String symbol, String token) {
-        String url = userServiceUrl + "/user-listings?userId=" + userId;
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", token)
-                .method("GET", HttpRequest.BodyPublishers.noBody())
-                .build();
-
-        UserListingDto userListingDto = null;
-        try {
-            HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
-            UserListingDto[] userListings = objectMapper.readValue(response.body(), UserListingDto[].class);
-
-            userListingDto = Stream.of(userListings)
-                    .filter(ul -> ul.getListingType() == listingType && ul.getSymbol().equals(symbol))
-                    .findFirst()
-                    .orElse(null);
-        }catch (Exception e){
-            e.printStackTrace();
-        }
+    public UserListingDto getUserListing(Long userId, ListingType listingType, String symbol) {
+        return userServiceClient.getPosition(userId, listingType, symbol, serviceToken());
+    }
 
-        return userListingDto;
+    private String serviceToken() {
+        return "Bearer " + jwtUtil.generateToken();
     }
 
     public void placeBet(String token, Long optionId, BetDto bet) {
@@ -421,12 +428,10 @@ public class OrderService {
             Option option = optionRepository.findById(optionBet.getOptionId()).orElseThrow(() -> new NotFoundExceptions("Option not found"));
             String token = generateToken(optionBet.getUserId(), optionBet.getEmail());
             if (option.getOptionType().equals(OptionType.CALL)) {
-                String urlBankAccount = userServiceUrl + "/users/decrease-balance?decreaseAccount=" + option.getPrice();
-                updateBankAccountBalance(token, urlBankAccount);
+                userServiceClient.decreaseBalance(option.getPrice(), token);
                 // skini pare sa racuna
             } else {
-                String urlBankAccount = userServiceUrl + "/users/increase-balance?increaseAccount=" + option.getPrice();
-                updateBankAccountBalance(token, urlBankAccount);
+                userServiceClient.increaseBalance(option.getPrice(), token);
                 //uplati pare
             }
         });
@@ -1,40 +1,41 @@
 package org.banka1.exchangeservice.services;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.databind.json.JsonMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
+import org.banka1.exchangeservice.bars.BarSync;
+import org.banka1.exchangeservice.clients.MarketDataClient;
+import org.banka1.exchangeservice.domains.dtos.listing.ListingFreshnessDto;
 import org.banka1.exchangeservice.domains.dtos.stock.StockDtoFlask;
 import org.banka1.exchangeservice.domains.dtos.stock.StockResponseDtoFlask;
 import org.banka1.exchangeservice.domains.dtos.stock.TimeSeriesStockEnum;
 import org.banka1.exchangeservice.domains.entities.Exchange;
+import org.banka1.exchangeservice.domains.entities.ListingType;
 import org.banka1.exchangeservice.domains.entities.Stock;
 import org.banka1.exchangeservice.domains.exceptions.NotFoundExceptions;
+import org.banka1.exchangeservice.engine.Quote;
+import org.banka1.exchangeservice.engine.QuoteSnapshot;
+import org.banka1.exchangeservice.messaging.TickTransport;
+import org.banka1.exchangeservice.refresh.QuoteRefresher;
+import org.banka1.exchangeservice.refresh.QuoteRevalidator;
+import org.banka1.exchangeservice.refresh.RefreshPriorities;
+import org.banka1.exchangeservice.refresh.RefreshResult;
 import org.banka1.exchangeservice.repositories.ExchangeRepository;
 import org.banka1.exchangeservice.repositories.StockRepository;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.banka1.exchangeservice.stream.QuoteStream;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.ResourceUtils;
 
 import java.io.*;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -43,25 +44,31 @@ public class StockService {
 
     private final ExchangeRepository exchangeRepository;
     private final StockRepository stockRepository;
-    private final ObjectMapper objectMapper;
+    private final QuoteSnapshot quoteSnapshot;
+    private final QuoteRefresher quoteRefresher;
+    private final MarketDataClient marketDataClient;
+    private final QuoteRevalidator quoteRevalidator;
+    private final BarSync barSync;
+    private final QuoteStream quoteStream;
+    private final RefreshPriorities refreshPriorities;
 
-    @Value("${flask.api.stock.timeseries}")
-    private String baseTimeSeriesUrl;
-    @Value("${flask.api.stock.timeseries.intraday}")
-    private String baseTimeSeriesIntraDayUrl;
-
-    private final RabbitTemplate rabbitTemplate;
-    @Value("${rabbitmq.exchange.name}")
-    private String exchange;
-    @Value("${rabbitmq.routing.stock.key}")
-    private String routingKey;
+    private final TickTransport tickTransport;
 
     public StockService(ExchangeRepository exchangeRepository, StockRepository stockRepository,
-                        @Autowired RabbitTemplate rabbitTemplate, @Autowired ObjectMapper objectMapper) {
+                        TickTransport tickTransport, QuoteSnapshot quoteSnapshot,
+                        QuoteRefresher quoteRefresher, MarketDataClient marketDataClient, QuoteRevalidator quoteRevalidator,
+                        BarSync barSync, QuoteStream quoteStream,
+                        RefreshPriorities refreshPriorities) {
         this.exchangeRepository = exchangeRepository;
         this.stockRepository = stockRepository;
-        this.rabbitTemplate = rabbitTemplate;
-        this.objectMapper = objectMapper;
+        this.tickTransport = tickTransport;
+        this.quoteSnapshot = quoteSnapshot;
+        this.quoteRefresher = quoteRefresher;
+        this.marketDataClient = marketDataClient;
+        this.quoteRevalidator = quoteRevalidator;
+        this.barSync = barSync;
+        this.quoteStream = quoteStream;
+        this.refreshPriorities = refreshPriorities;
     }
 
     public void loadStocks() throws IOException, InterruptedException {
@@ -80,10 +87,11 @@ public class StockService {
         Exchange exchange = exchangeRepository.findByExcAcronym("NASDAQ");
         List<Stock> stocksToSave = new ArrayList<>();
 
-        for(CSVRecord record: csvRecords) {
-            String symbol = record.get("symbol");
+        List<String> symbols = csvRecords.stream().map(record -> record.get("symbol")).toList();
+        Map<String, StockResponseDtoFlask> quotes = marketDataClient.getStockQuotes(symbols);
 
-            StockResponseDtoFlask stockResponseDtoFlask = getStockFromFlask(symbol, TimeSeriesStockEnum.DAILY);
+        for(String symbol: symbols) {
+            StockResponseDtoFlask stockResponseDtoFlask = quotes.get(symbol);
             if (stockResponseDtoFlask == null)
                 continue;
 
@@ -94,50 +102,60 @@ public class StockService {
             stocksToSave.add(stock);
         }
         stockRepository.saveAll(stocksToSave);
+        stocksToSave.forEach(quoteSnapshot::update);
     }
 
-    public void updateStocks(List<Stock> stocksToCheckForUpdate) {
-        LocalDateTime now = LocalDateTime.now();
-
-        List<Stock> stocks = new ArrayList<>();
-        for (Stock stock : stocksToCheckForUpdate){
-            Duration duration = Duration.between(stock.getLastRefresh(), now);
-            if(duration.toMinutes() > 15){
-                try {
-                    StockResponseDtoFlask stockResponseDtoFlask = getStockFromFlask(stock.getSymbol(), TimeSeriesStockEnum.DAILY);
-                    if(stockResponseDtoFlask != null) {
-                        updateStockFromFlask(stock,stockResponseDtoFlask);
-                        stocks.add(stock);
-                    }
-                } catch (IOException | InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
-            }
-        }
+    /**
+     * Osvezava kotacije datih simbola; koje simbole i kada odlucuje RefreshScheduler.
+     */
+    public void refreshStockData(Collection<String> symbols) {
+        refreshStockData(symbols, false);
+    }
 
-        if(!stocks.isEmpty()) stockRepository.saveAll(stocks);
+    /**
+     * Osvezava zastarele redove iz liste. Ako je osvezavanje u toku, revalidacija ga ceka umesto da se preskoci,
+     * jer su simboli vec zakazani i niko drugi ih nece osveziti.
+     */
+    void revalidateStocks(List<String> symbols) {
+        refreshStockData(symbols, true);
     }
 
-    @Scheduled(cron = "0 0/1 * * * *")
-    public void refreshStockData() {
-        List<Stock> stocks = stockRepository.findAll();
-
-        stocks.forEach(stock -> {
-            try {
-                StockResponseDtoFlask stockResponseDtoFlask = getStockFromFlask(stock.getSymbol(), TimeSeriesStockEnum.DAILY);
-                if(stockResponseDtoFlask != null) {
-                    stock.setLastRefresh(LocalDateTime.now());
-                    updateStockFromFlask(stock,stockResponseDtoFlask);
-                    stockRepository.save(stock);
-                    rabbitTemplate.convertAndSend(exchange, routingKey, stock);
-                }
-            } catch (IOException | InterruptedException e) {
-                throw new RuntimeException(e);
-            }
+    private void refreshStockData(Collection<String> symbols, boolean waitForRunning) {
+        RefreshResult<Stock> result = quoteRefresher.refresh("stock", stockRepository.findAllBySymbolIn(symbols), Stock::getSymbol, this::fingerprint,
+                marketDataClient.getBatchSize(), marketDataClient::fetchStockQuotes, this::updateStockFromFlask, waitForRunning);
+
+        // nepromenjene kotacije se ne cuvaju i ne salju, samo im se pomera vreme osvezavanja
+        if (!result.getUnchanged().isEmpty())
+            stockRepository.touchLastRefresh(result.getUnchanged().stream().map(Stock::getId).toList(), LocalDateTime.now());
+        if (result.getUpdated().isEmpty())
+            return;
+
+        stockRepository.saveAll(result.getUpdated());
+        result.getUpdated().forEach(stock -> {
+            Quote quote = publish(stock);
+            if (quote != null)
+                tickTransport.publish(ListingType.STOCK, stock.getSymbol(), quote);
         });
+        // tick-ovi ovog osvezavanja se salju odmah, bez cekanja sledeceg flush-a
+        tickTransport.flush();
     }
 
-    public Page<Stock> getStocks(Integer page, Integer size, String symbol){
+    private Quote publish(Stock stock) {
+        Quote quote = quoteSnapshot.update(stock);
+        if (quote == null)
+            return null;
+        refreshPriorities.recordPrice(ListingType.STOCK, stock.getSymbol(), quote.getLast());
+        quoteStream.publish(ListingType.STOCK, stock.getSymbol(), quote);
+        return quote;
+    }
+
+    private double[] fingerprint(Stock stock) {
+        return new double[] { QuoteRefresher.value(stock.getPrice()), QuoteRefresher.value(stock.getOpen()),
+                QuoteRefresher.value(stock.getHigh()), QuoteRefresher.value(stock.getLow()),
+                QuoteRefresher.value(stock.getClose()), QuoteRefresher.value(stock.getVolume()) };
+    }
+
+    public Page<ListingFreshnessDto<Stock>> getStocks(Integer page, Integer size, String symbol){
         Page<Stock> stocks;
         if (symbol == null) {
             stocks = stockRepository.findAll(PageRequest.of(page, size));
@@ -145,8 +163,11 @@ public class StockService {
             stocks = stockRepository.getAllBySymbolContainsIgnoreCase(symbol, PageRequest.of(page, size, Sort.by("symbol").ascending()));
         }
 
-        updateStocks(stocks.getContent());
-        return stocks;
+        // odgovor se ne ceka na flask, zastareli redovi se osvezavaju u pozadini
+        stocks.forEach(stock -> refreshPriorities.recordView(ListingType.STOCK, stock.getSymbol()));
+        List<Stock> staleStocks = stocks.getContent().stream().filter(stock -> quoteRevalidator.isStale(stock.getLastRefresh())).toList();
+        quoteRevalidator.revalidate("stock", staleStocks, Stock::getSymbol, this::revalidateStocks);
+        return stocks.map(stock -> new ListingFreshnessDto<>(stock, stock.getLastRefresh(), quoteRevalidator.isStale(stock.getLastRefresh())));
     }
 
     public Optional<Stock> getStockById(Long id){
@@ -159,8 +180,10 @@ public class StockService {
     }
 
     public Stock getStockBySymbol(String symbol){
-        if(stockRepository.existsStockBySymbol(symbol))
+        if(stockRepository.existsStockBySymbol(symbol)) {
+            refreshPriorities.recordView(ListingType.STOCK, symbol);
             return stockRepository.findBySymbol(symbol);
+        }
         else
             throw new NotFoundExceptions("Stock with the symbol " + symbol + " has not been found.");
     }
@@ -177,27 +200,6 @@ public class StockService {
         return symbols;
     }
 
-    private StockResponseDtoFlask getStockFromFlask(String symbol, TimeSeriesStockEnum timeSeries) throws IOException, InterruptedException {
-        String url = switch (timeSeries) {
-            case HOUR, FIVE_MIN ->
-                    baseTimeSeriesIntraDayUrl + "?symbol=" + symbol + "&interval=" + timeSeries.getValue();
-            case DAILY, WEEKLY, MONTHLY ->
-                    baseTimeSeriesUrl + "?symbol=" + symbol + "&time_series=" + timeSeries.getValue();
-        };
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .method("GET", HttpRequest.BodyPublishers.noBody())
-                .build();
-        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() != 200)
-            return null;
-
-        String jsonStock = response.body();
-        return objectMapper.readValue(jsonStock, StockResponseDtoFlask.class);
-    }
-
     private void updateStockFromFlask(Stock stock, StockResponseDtoFlask stockResponseDtoFlask){
         StockDtoFlask stockDtoFlask = stockResponseDtoFlask.getTimeSeries().get(0);
         StockDtoFlask stockDtoFlask2 = stockResponseDtoFlask.getTimeSeries().get(1);
@@ -214,8 +216,10 @@ public class StockService {
     }
 
     public StockResponseDtoFlask getStockTimeSeries(String symbol, TimeSeriesStockEnum timeSeries) {
+        refreshPriorities.recordView(ListingType.STOCK, symbol);
         try {
-            return getStockFromFlask(symbol, timeSeries);
+            // serija se sinhronizuje sa flask-om najvise jednom po intervalu perioda, a uvek se cita iz lokalnog skladista
+            return barSync.stockTimeSeries(symbol, timeSeries);
         } catch (IOException | InterruptedException e) {
             throw new RuntimeException(e);
         }
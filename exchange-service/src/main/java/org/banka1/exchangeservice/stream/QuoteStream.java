@@ -0,0 +1,173 @@
+package org.banka1.exchangeservice.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.banka1.exchangeservice.domains.dtos.stream.QuoteUpdateDto;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.domains.exceptions.NotFoundExceptions;
+import org.banka1.exchangeservice.engine.Quote;
+import org.banka1.exchangeservice.engine.QuoteSnapshot;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Raspodela kotacija iz osvezavanja pretplacenim websocket klijentima. Kotacija se serijalizuje jednom
+ * i ista poruka ide svim pretplatnicima simbola; svaki pretplatnik je dalje salje svojim tempom.
+ * Broj pretplata po konekciji je ogranicen sa market.stream.max-subscriptions.
+ */
+@Component
+@Slf4j
+public class QuoteStream {
+
+    private final QuoteSnapshot quoteSnapshot;
+    private final ObjectMapper objectMapper;
+    private final Executor streamExecutor;
+    private final MeterRegistry meterRegistry;
+    private final int maxSubscriptions;
+    private final Map<String, Set<QuoteSubscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, QuoteSubscriber> connections = new ConcurrentHashMap<>();
+
+    public QuoteStream(QuoteSnapshot quoteSnapshot, ObjectMapper objectMapper, @Qualifier("streamExecutor") Executor streamExecutor,
+                       MeterRegistry meterRegistry, @Value("${market.stream.max-subscriptions:50}") int maxSubscriptions) {
+        this.quoteSnapshot = quoteSnapshot;
+        this.objectMapper = objectMapper;
+        this.streamExecutor = streamExecutor;
+        this.meterRegistry = meterRegistry;
+        this.maxSubscriptions = maxSubscriptions;
+        Gauge.builder("market.stream.connections", connections, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Salje kotaciju svim pretplatnicima simbola; bez pretplatnika se poruka ni ne pravi.
+     */
+    public void publish(ListingType listingType, String symbol, Quote quote) {
+        if (quote == null)
+            return;
+
+        String key = key(listingType, symbol);
+        Set<QuoteSubscriber> symbolSubscribers = subscribers.get(key);
+        if (symbolSubscribers == null || symbolSubscribers.isEmpty())
+            return;
+
+        TextMessage message = message(listingType, symbol, quote);
+        int conflated = 0;
+        for (QuoteSubscriber subscriber : symbolSubscribers) {
+            if (subscriber.offer(key, message))
+                conflated++;
+        }
+        if (conflated > 0)
+            meterRegistry.counter("market.stream.conflated").increment(conflated);
+    }
+
+    public int subscribers(ListingType listingType, String symbol) {
+        Set<QuoteSubscriber> symbolSubscribers = subscribers.get(key(listingType, symbol));
+        return symbolSubscribers == null ? 0 : symbolSubscribers.size();
+    }
+
+    QuoteSubscriber connect(WebSocketSession session) {
+        QuoteSubscriber subscriber = new QuoteSubscriber(session, streamExecutor);
+        connections.put(subscriber.getId(), subscriber);
+        return subscriber;
+    }
+
+    void disconnect(QuoteSubscriber subscriber) {
+        connections.remove(subscriber.getId());
+        synchronized (subscriber) {
+            subscriber.getSubscriptions().forEach(key -> removeSubscriber(key, subscriber));
+            subscriber.getSubscriptions().clear();
+        }
+    }
+
+    /**
+     * Pretplacuje konekciju na simbole i vraca prihvacene; novi simbol odmah dobija trenutnu kotaciju.
+     * Nepoznati simboli i simboli preko limita se ne prihvataju.
+     */
+    List<String> subscribe(QuoteSubscriber subscriber, ListingType listingType, Collection<String> symbols) {
+        List<String> accepted = new ArrayList<>();
+        synchronized (subscriber) {
+            for (String symbol : symbols) {
+                String key = key(listingType, symbol);
+                if (subscriber.getSubscriptions().contains(key)) {
+                    accepted.add(symbol);
+                    continue;
+                }
+                if (subscriber.getSubscriptions().size() >= maxSubscriptions) {
+                    meterRegistry.counter("market.stream.rejected", "reason", "limit").increment();
+                    continue;
+                }
+
+                Quote quote;
+                try {
+                    quote = quoteSnapshot.get(listingType, symbol);
+                } catch (NotFoundExceptions e) {
+                    meterRegistry.counter("market.stream.rejected", "reason", "unknown").increment();
+                    continue;
+                }
+
+                subscriber.getSubscriptions().add(key);
+                addSubscriber(key, subscriber);
+                subscriber.offer(key, message(listingType, symbol, quote));
+                accepted.add(symbol);
+            }
+        }
+        return accepted;
+    }
+
+    List<String> unsubscribe(QuoteSubscriber subscriber, ListingType listingType, Collection<String> symbols) {
+        List<String> removed = new ArrayList<>();
+        synchronized (subscriber) {
+            for (String symbol : symbols) {
+                String key = key(listingType, symbol);
+                if (subscriber.getSubscriptions().remove(key)) {
+                    removeSubscriber(key, subscriber);
+                    removed.add(symbol);
+                }
+            }
+        }
+        return removed;
+    }
+
+    // dodavanje i uklanjanje idu kroz compute, pa se skup ne moze ukloniti dok mu se dodaje pretplatnik
+    private void addSubscriber(String key, QuoteSubscriber subscriber) {
+        subscribers.compute(key, (k, symbolSubscribers) -> {
+            Set<QuoteSubscriber> updated = symbolSubscribers == null ? ConcurrentHashMap.newKeySet() : symbolSubscribers;
+            updated.add(subscriber);
+            return updated;
+        });
+    }
+
+    private void removeSubscriber(String key, QuoteSubscriber subscriber) {
+        subscribers.computeIfPresent(key, (k, symbolSubscribers) -> {
+            symbolSubscribers.remove(subscriber);
+            return symbolSubscribers.isEmpty() ? null : symbolSubscribers;
+        });
+    }
+
+    private TextMessage message(ListingType listingType, String symbol, Quote quote) {
+        QuoteUpdateDto update = new QuoteUpdateDto(listingType, symbol, quote.getLast(), quote.getBid(), quote.getAsk(),
+                quote.getVolume(), quote.getTimestamp());
+        try {
+            return new TextMessage(objectMapper.writeValueAsString(update));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String key(ListingType listingType, String symbol) {
+        return listingType.name() + ":" + symbol;
+    }
+}
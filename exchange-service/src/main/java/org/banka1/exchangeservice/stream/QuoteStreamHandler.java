@@ -0,0 +1,95 @@
+package org.banka1.exchangeservice.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.banka1.exchangeservice.domains.dtos.stream.QuoteSubscriptionRequest;
+import org.banka1.exchangeservice.domains.dtos.stream.QuoteSubscriptionResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Websocket endpoint /ws/quotes. Klijent salje subscribe/unsubscribe poruke sa listom simbola, a dobija
+ * odgovor sa prihvacenim i odbijenim simbolima i zatim kotacije pretplacenih simbola kako se osvezavaju.
+ * Svaka konekcija ima svoj bafer za slanje (market.stream.buffer-size-limit); konekcija koja ga prekoraci
+ * ili ne primi poruku za market.stream.send-time-limit se zatvara.
+ */
+@Component
+@Slf4j
+public class QuoteStreamHandler extends TextWebSocketHandler {
+
+    private static final String SUBSCRIBER = "quoteSubscriber";
+
+    private final QuoteStream quoteStream;
+    private final ObjectMapper objectMapper;
+    private final Duration sendTimeLimit;
+    private final int bufferSizeLimit;
+
+    public QuoteStreamHandler(QuoteStream quoteStream, ObjectMapper objectMapper,
+                              @Value("${market.stream.send-time-limit:10s}") Duration sendTimeLimit,
+                              @Value("${market.stream.buffer-size-limit:65536}") int bufferSizeLimit) {
+        this.quoteStream = quoteStream;
+        this.objectMapper = objectMapper;
+        this.sendTimeLimit = sendTimeLimit;
+        this.bufferSizeLimit = bufferSizeLimit;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        WebSocketSession buffered = new ConcurrentWebSocketSessionDecorator(session, (int) sendTimeLimit.toMillis(), bufferSizeLimit);
+        session.getAttributes().put(SUBSCRIBER, quoteStream.connect(buffered));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        QuoteSubscriber subscriber = (QuoteSubscriber) session.getAttributes().get(SUBSCRIBER);
+        QuoteSubscriptionRequest request;
+        try {
+            request = objectMapper.readValue(message.getPayload(), QuoteSubscriptionRequest.class);
+        } catch (JsonProcessingException e) {
+            reply(subscriber, new QuoteSubscriptionResponse(null, null, List.of(), List.of(), "malformed message"));
+            return;
+        }
+
+        List<String> symbols = request.getSymbols() == null ? List.of() : request.getSymbols();
+        if (request.getListingType() == null) {
+            reply(subscriber, new QuoteSubscriptionResponse(request.getAction(), null, List.of(), symbols, "listingType is required"));
+            return;
+        }
+
+        List<String> accepted;
+        if ("subscribe".equals(request.getAction()))
+            accepted = quoteStream.subscribe(subscriber, request.getListingType(), symbols);
+        else if ("unsubscribe".equals(request.getAction()))
+            accepted = quoteStream.unsubscribe(subscriber, request.getListingType(), symbols);
+        else {
+            reply(subscriber, new QuoteSubscriptionResponse(request.getAction(), request.getListingType(), List.of(), symbols, "unknown action"));
+            return;
+        }
+
+        List<String> rejected = new ArrayList<>(symbols);
+        rejected.removeAll(accepted);
+        reply(subscriber, new QuoteSubscriptionResponse(request.getAction(), request.getListingType(), accepted, rejected,
+                rejected.isEmpty() ? null : "unknown symbols or subscription limit reached"));
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        QuoteSubscriber subscriber = (QuoteSubscriber) session.getAttributes().remove(SUBSCRIBER);
+        if (subscriber != null)
+            quoteStream.disconnect(subscriber);
+    }
+
+    private void reply(QuoteSubscriber subscriber, QuoteSubscriptionResponse response) throws JsonProcessingException {
+        subscriber.send(new TextMessage(objectMapper.writeValueAsString(response)));
+    }
+}
@@ -0,0 +1,102 @@
+package org.banka1.exchangeservice.stream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Jedna websocket konekcija. Za svaki simbol se cuva samo poslednja neposlata kotacija, pa spor klijent
+ * ne gomila zaostatak: dok se jedna poruka salje, nove kotacije istog simbola zamenjuju prethodnu.
+ * Slanje radi najvise jedan zadatak po konekciji, a sesija je vec omotana baferom sa ogranicenjima.
+ */
+@Slf4j
+class QuoteSubscriber {
+
+    private final WebSocketSession session;
+    private final Executor executor;
+    private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Map<String, TextMessage> latest = new ConcurrentHashMap<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    QuoteSubscriber(WebSocketSession session, Executor executor) {
+        this.session = session;
+        this.executor = executor;
+    }
+
+    String getId() {
+        return session.getId();
+    }
+
+    Set<String> getSubscriptions() {
+        return subscriptions;
+    }
+
+    /**
+     * Upisuje kotaciju za slanje i vraca true ako je zamenila kotaciju istog simbola koja jos nije poslata.
+     */
+    boolean offer(String key, TextMessage message) {
+        boolean conflated = latest.put(key, message) != null;
+        schedule();
+        return conflated;
+    }
+
+    /**
+     * Direktno slanje (odgovori na poruke klijenta), mimo konflacije.
+     */
+    void send(TextMessage message) {
+        try {
+            session.sendMessage(message);
+        } catch (IOException | RuntimeException e) {
+            close(e);
+        }
+    }
+
+    private void schedule() {
+        if (!draining.compareAndSet(false, true))
+            return;
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            draining.set(false);
+            log.warn("Quote stream for session {} could not be scheduled", getId());
+        }
+    }
+
+    private void drain() {
+        try {
+            for (String key : latest.keySet()) {
+                TextMessage message = latest.remove(key);
+                if (message != null && session.isOpen())
+                    session.sendMessage(message);
+            }
+        } catch (IOException | RuntimeException e) {
+            // ukljucuje i prekoracenje vremena slanja ili velicine bafera u ConcurrentWebSocketSessionDecorator-u
+            latest.clear();
+            close(e);
+        } finally {
+            draining.set(false);
+        }
+
+        // kotacija koja je stigla posle praznjenja, a pre oslobadjanja zastavice, ne sme da ostane neposlata
+        if (!latest.isEmpty() && session.isOpen())
+            schedule();
+    }
+
+    private void close(Exception e) {
+        log.warn("Closing quote stream session {}: {}", getId(), e.getMessage());
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException ignored) {
+            // sesija je vec zatvorena
+        }
+    }
+}
@@ -2,12 +2,19 @@ package org.banka1.exchangeservice;
 
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.banka1.exchangeservice.calendar.ExchangeCalendar;
+import org.banka1.exchangeservice.clients.UserServiceClient;
 import org.banka1.exchangeservice.domains.dtos.order.OrderFilterRequest;
 import org.banka1.exchangeservice.domains.dtos.order.OrderRequest;
 import org.banka1.exchangeservice.domains.dtos.user.UserDto;
 
 import org.banka1.exchangeservice.domains.entities.*;
 import org.banka1.exchangeservice.domains.exceptions.NotFoundExceptions;
+import org.banka1.exchangeservice.engine.MatchingEngine;
+import org.banka1.exchangeservice.engine.QuoteSnapshot;
+import org.banka1.exchangeservice.engine.SymbolLanes;
+import org.banka1.exchangeservice.journal.OrderStateWriter;
 import org.banka1.exchangeservice.repositories.*;
 import org.banka1.exchangeservice.services.ForexService;
 import org.banka1.exchangeservice.services.OrderService;
@@ -50,8 +57,9 @@ public class OrderServiceTest extends IntegrationTest {
         this.stockRepository = mock(StockRepository.class);
         this.forexService = mock(ForexService.class);
         this.stockService = mock(StockService.class);
-        this.orderService = new OrderService(orderRepository, forexRepository, stockRepository,
-                optionBetRepository, optionRepository, forexService, stockService, new JwtUtil());
+        this.orderService = new OrderService(orderRepository,
+                optionBetRepository, optionRepository, forexService, stockService, new MatchingEngine(orderRepository), new QuoteSnapshot(stockRepository, forexRepository),
+                new SymbolLanes(1, 100, new SimpleMeterRegistry()), mock(OrderStateWriter.class), Runnable::run, mock(UserServiceClient.class), mock(ExchangeCalendar.class), new JwtUtil());
     }
 
     @Test
@@ -0,0 +1,52 @@
+package org.banka1.exchangeservice.bars;
+
+import org.banka1.exchangeservice.domains.dtos.stock.TimeSeriesStockEnum;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BarStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void newerBarsAreAppendedAndLastBarIsReplacedTest() {
+        BarSeries series = new BarSeries();
+        for (int i = 1; i <= 40; i++)
+            series.append(i * 1000L, i, i + 1, i - 1, i, i * 10L);
+
+        assertFalse(series.append(40_000L, 40, 41, 39, 40, 400L));
+        assertTrue(series.append(40_000L, 40, 42, 39, 41, 450L));
+        assertFalse(series.append(5_000L, 1, 1, 1, 1, 1));
+        assertEquals(40, series.size());
+        assertEquals(List.of(40_000L, 39_000L), series.newestFirst(Integer.MAX_VALUE, (time, open, high, low, close, volume) -> time).subList(0, 2));
+        assertEquals(41D, series.newestFirst(Integer.MAX_VALUE, (time, open, high, low, close, volume) -> close).get(0));
+    }
+
+    @Test
+    void checkpointedSeriesSurvivesRestartTest() throws IOException {
+        BarStore barStore = new BarStore(directory.toString());
+        BarSeries series = barStore.series("forex", "EUR/USD", TimeSeriesStockEnum.DAILY);
+        series.append(1000L, 1.1, 1.2, 1.0, 1.15, 0);
+        series.append(2000L, 1.15, 1.3, 1.1, 1.25, 0);
+        series.setSyncedAt(42L);
+        barStore.checkpoint("forex", "EUR/USD", TimeSeriesStockEnum.DAILY);
+
+        BarSeries restored = new BarStore(directory.toString()).series("forex", "EUR/USD", TimeSeriesStockEnum.DAILY);
+
+        assertEquals(2, restored.size());
+        assertEquals(2000L, restored.lastTime());
+        assertEquals(42L, restored.getSyncedAt());
+        assertEquals(List.of(1.25, 1.15), restored.newestFirst(Integer.MAX_VALUE, (time, open, high, low, close, volume) -> close));
+        assertNull(new BarStore(directory.toString()).series("forex", "EUR/USD", TimeSeriesStockEnum.WEEKLY).lastTime());
+    }
+}
@@ -0,0 +1,131 @@
+package org.banka1.exchangeservice.bars;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.banka1.exchangeservice.clients.MarketDataClient;
+import org.banka1.exchangeservice.domains.dtos.forex.ForexResponseTimeSeriesFlask;
+import org.banka1.exchangeservice.domains.dtos.forex.TimeSeriesForexEnum;
+import org.banka1.exchangeservice.domains.dtos.stock.StockResponseDtoFlask;
+import org.banka1.exchangeservice.domains.dtos.stock.TimeSeriesStockEnum;
+import org.banka1.exchangeservice.repositories.ForexRepository;
+import org.banka1.exchangeservice.repositories.StockRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+public class BarSyncTest {
+
+    @TempDir
+    Path directory;
+
+    private HttpServer server;
+    private BarSync barSync;
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // stub flask servisa: bez since vraca tri dana, sa since jedan noviji dan i zavrsen bar na since
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/stocks/time-series", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            queries.add(query);
+            respond(exchange, query.contains("since=") ? "{\"symbol\":\"AAPL\",\"time_series\":[" + bar("2023-04-17", 14) + "," + bar("2023-04-14", 13.5) + "]}"
+                    : "{\"symbol\":\"AAPL\",\"last_refreshed\":\"2023-04-14\",\"time_series\":["
+                    + bar("2023-04-14", 13) + "," + bar("2023-04-13", 12) + "," + bar("2023-04-12", 11) + "]}");
+        });
+        server.createContext("/forex/time-series/intraday", exchange -> {
+            queries.add(exchange.getRequestURI().getQuery());
+            respond(exchange, "{\"from_currency\":\"EUR\",\"to_currency\":\"USD\",\"time_series\":["
+                    + "{\"date\":\"2023-04-14 10:05:00\",\"open\":\"1.1\",\"high\":\"1.2\",\"low\":\"1.0\",\"close\":\"1.15\"},"
+                    + "{\"date\":\"2023-04-14 10:00:00\",\"open\":\"1.0\",\"high\":\"1.1\",\"low\":\"0.9\",\"close\":\"1.1\"}]}");
+        });
+        server.start();
+
+        String url = "http://localhost:" + server.getAddress().getPort();
+        MarketDataClient marketDataClient = new MarketDataClient(url + "/stocks/quotes", url + "/forex/exchange/batch",
+                url + "/stocks/time-series", url + "/stocks/time-series/intraday", url + "/forex/time-series",
+                url + "/forex/time-series/intraday", 50, Duration.ofSeconds(1), new ObjectMapper());
+        barSync = new BarSync(new BarStore(directory.toString()), mock(StockRepository.class), mock(ForexRepository.class),
+                marketDataClient, new SimpleMeterRegistry(), new MockEnvironment());
+        ReflectionTestUtils.setField(barSync, "responseSize", 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void secondSyncFetchesOnlyNewerBarsTest() throws Exception {
+        assertEquals(3, barSync.syncStock("AAPL", TimeSeriesStockEnum.DAILY));
+        assertEquals(2, barSync.syncStock("AAPL", TimeSeriesStockEnum.DAILY));
+
+        assertEquals("symbol=AAPL&time_series=TIME_SERIES_DAILY&since=2023-04-14", queries.get(1));
+        StockResponseDtoFlask timeSeries = barSync.stockTimeSeries("AAPL", TimeSeriesStockEnum.DAILY);
+        // odgovor je ogranicen na najnovijih response-size barova
+        assertEquals(3, timeSeries.getTimeSeries().size());
+        assertEquals(14D, timeSeries.getTimeSeries().get(0).getClose());
+        assertEquals(13.5D, timeSeries.getTimeSeries().get(1).getClose());
+        assertEquals(12D, timeSeries.getTimeSeries().get(2).getClose());
+    }
+
+    @Test
+    void timeSeriesSyncsAtMostOncePerIntervalTest() throws Exception {
+        barSync.stockTimeSeries("AAPL", TimeSeriesStockEnum.DAILY);
+        barSync.stockTimeSeries("AAPL", TimeSeriesStockEnum.DAILY);
+        assertEquals(1, queries.size());
+
+        barSync.forexTimeSeries("EUR", "USD", TimeSeriesForexEnum.FIVE_MIN);
+        assertEquals(2, queries.size());
+    }
+
+    @Test
+    void storedSeriesIsServedWhenFlaskFailsTest() throws Exception {
+        barSync.syncStock("AAPL", TimeSeriesStockEnum.DAILY);
+        server.stop(0);
+
+        assertEquals(0, barSync.syncStock("AAPL", TimeSeriesStockEnum.DAILY));
+        assertEquals(3, barSync.stockTimeSeries("AAPL", TimeSeriesStockEnum.DAILY).getTimeSeries().size());
+        assertThrows(IOException.class, () -> barSync.syncStock("MSFT", TimeSeriesStockEnum.DAILY));
+    }
+
+    @Test
+    void intradayBarsKeepTheirTimeTest() throws Exception {
+        assertEquals(2, barSync.syncForex("EUR", "USD", TimeSeriesForexEnum.FIVE_MIN));
+
+        ForexResponseTimeSeriesFlask timeSeries = barSync.forexTimeSeries("EUR", "USD", TimeSeriesForexEnum.FIVE_MIN);
+        assertEquals("2023-04-14 10:05:00", timeSeries.getLastRefreshed());
+        assertEquals("2023-04-14 10:00:00", timeSeries.getTimeSeries().get(1).getDate());
+        assertEquals(1.15D, timeSeries.getTimeSeries().get(0).getClose());
+    }
+
+    private static String bar(String date, double close) {
+        return "{\"date\":\"" + date + "\",\"open\":\"10\",\"high\":\"15\",\"low\":\"9\",\"close\":\"" + close + "\",\"volume\":\"100\"}";
+    }
+
+    private void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+}
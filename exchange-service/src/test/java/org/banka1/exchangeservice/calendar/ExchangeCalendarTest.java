@@ -0,0 +1,80 @@
+package org.banka1.exchangeservice.calendar;
+
+import org.banka1.exchangeservice.domains.entities.Exchange;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.domains.entities.Stock;
+import org.banka1.exchangeservice.repositories.StockRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class ExchangeCalendarTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    private StockRepository stockRepository;
+    private ExchangeCalendar exchangeCalendar;
+
+    @BeforeEach
+    void setUp() {
+        stockRepository = mock(StockRepository.class);
+        Exchange nasdaq = Exchange.builder().excId(1L).excMicCode("XNAS").excTimeZone("America/New_York")
+                .excOpenTime(" 09:30").excCloseTime(" 16:00").build();
+        Exchange broken = Exchange.builder().excId(2L).excMicCode("XBAD").excTimeZone("Nowhere/City")
+                .excOpenTime("09:00").excCloseTime("17:00").build();
+        when(stockRepository.findAll()).thenReturn(List.of(stock("AAPL", nasdaq), stock("MSFT", nasdaq), stock("BAD", broken)));
+        exchangeCalendar = new ExchangeCalendar(stockRepository, "America/New_York", "17:00", "17:00");
+    }
+
+    @Test
+    void stockFollowsItsExchangeHoursTest() {
+        // 2023-04-14 je petak, 2023-04-15 subota
+        assertFalse(exchangeCalendar.isOpen(ListingType.STOCK, "AAPL", at(2023, 4, 14, 9, 29)));
+        assertTrue(exchangeCalendar.isOpen(ListingType.STOCK, "AAPL", at(2023, 4, 14, 9, 30)));
+        assertTrue(exchangeCalendar.isOpen(ListingType.STOCK, "AAPL", at(2023, 4, 14, 15, 59)));
+        assertFalse(exchangeCalendar.isOpen(ListingType.STOCK, "AAPL", at(2023, 4, 14, 16, 0)));
+        assertFalse(exchangeCalendar.isOpen(ListingType.STOCK, "AAPL", at(2023, 4, 15, 12, 0)));
+        assertTrue(exchangeCalendar.isOpen(ListingType.STOCK, "AAPL", at(2023, 4, 17, 10, 0)));
+
+        // berza se parsira jednom, a sve akcije se ucitavaju jednim upitom
+        assertSame(exchangeCalendar.hours(ListingType.STOCK, "AAPL"), exchangeCalendar.hours(ListingType.STOCK, "MSFT"));
+        verify(stockRepository, times(1)).findAll();
+        verify(stockRepository, never()).findBySymbol(any());
+    }
+
+    @Test
+    void forexIsClosedOnlyOverTheWeekendTest() {
+        assertTrue(exchangeCalendar.isOpen(ListingType.FOREX, "EUR/USD", at(2023, 4, 14, 16, 59)));
+        assertFalse(exchangeCalendar.isOpen(ListingType.FOREX, "EUR/USD", at(2023, 4, 14, 17, 0)));
+        assertFalse(exchangeCalendar.isOpen(ListingType.FOREX, "EUR/USD", at(2023, 4, 16, 16, 59)));
+        assertTrue(exchangeCalendar.isOpen(ListingType.FOREX, "EUR/USD", at(2023, 4, 16, 17, 0)));
+        assertTrue(exchangeCalendar.isOpen(ListingType.FOREX, "EUR/USD", at(2023, 4, 18, 3, 0)));
+    }
+
+    @Test
+    void unknownOrUnparsableExchangeIsAlwaysOpenTest() {
+        assertTrue(exchangeCalendar.isOpen(ListingType.STOCK, "BAD", at(2023, 4, 15, 12, 0)));
+        assertTrue(exchangeCalendar.isOpen(ListingType.STOCK, "NEW", at(2023, 4, 15, 12, 0)));
+        exchangeCalendar.isOpen(ListingType.STOCK, "NEW", at(2023, 4, 15, 12, 0));
+        verify(stockRepository, times(1)).findBySymbol("NEW");
+    }
+
+    private static long at(int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, NEW_YORK).toInstant().toEpochMilli();
+    }
+
+    private static Stock stock(String symbol, Exchange exchange) {
+        Stock stock = new Stock();
+        stock.setSymbol(symbol);
+        stock.setExchange(exchange);
+        return stock;
+    }
+}
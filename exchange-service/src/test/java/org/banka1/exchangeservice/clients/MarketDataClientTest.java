@@ -0,0 +1,139 @@
+package org.banka1.exchangeservice.clients;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.banka1.exchangeservice.domains.dtos.forex.ForexResponseExchangeFlask;
+import org.banka1.exchangeservice.domains.dtos.stock.StockResponseDtoFlask;
+import org.banka1.exchangeservice.domains.exceptions.InternalServerError;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MarketDataClientTest {
+
+    private HttpServer server;
+    private MarketDataClient marketDataClient;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // stub flask servisa: vraca kotacije za trazene simbole, osim za UNKNOWN; FAIL obara ceo zahtev
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/stocks/quotes", exchange -> {
+            List<String> symbols = parameter(exchange.getRequestURI().getRawQuery(), "symbols");
+            requests.add(String.join(",", symbols));
+            if (symbols.contains("FAIL")) {
+                respond(exchange, 500, "");
+                return;
+            }
+            if (symbols.contains("LONG")) {
+                respond(exchange, 200, longSeries(5000));
+                return;
+            }
+            respond(exchange, 200, symbols.stream()
+                    .filter(symbol -> !symbol.equals("UNKNOWN"))
+                    .map(symbol -> "{\"symbol\":\"" + symbol + "\",\"last_refreshed\":\"2023-04-14\",\"time_series\":["
+                            + "{\"date\":\"2023-04-14\",\"open\":10,\"high\":12,\"low\":9,\"close\":11,\"volume\":100},"
+                            + "{\"date\":\"2023-04-13\",\"open\":9,\"high\":10,\"low\":8,\"close\":10,\"volume\":90}]}")
+                    .collect(Collectors.joining(",", "[", "]")));
+        });
+        server.createContext("/forex/exchange/batch", exchange -> {
+            List<String> pairs = parameter(exchange.getRequestURI().getRawQuery(), "pairs");
+            requests.add(String.join(",", pairs));
+            respond(exchange, 200, pairs.stream()
+                    .map(pair -> pair.split("/"))
+                    .map(pair -> "{\"from_currency\":\"" + pair[0] + "\",\"to_currency\":\"" + pair[1]
+                            + "\",\"exchange_rate\":\"1.1\",\"bid_price\":\"1.09\",\"ask_price\":\"1.11\",\"last_refresh\":\"2023-04-14 10:00:00\"}")
+                    .collect(Collectors.joining(",", "[", "]")));
+        });
+        server.start();
+
+        String url = "http://localhost:" + server.getAddress().getPort();
+        marketDataClient = new MarketDataClient(url + "/stocks/quotes", url + "/forex/exchange/batch",
+                url + "/stocks/time-series", url + "/stocks/time-series/intraday", url + "/forex/time-series",
+                url + "/forex/time-series/intraday", 2,
+                Duration.ofSeconds(1), new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void symbolsAreFetchedInBatchesTest() throws InterruptedException {
+        Map<String, StockResponseDtoFlask> quotes = marketDataClient.getStockQuotes(List.of("AAPL", "MSFT", "UNKNOWN"));
+
+        assertEquals(List.of("AAPL,MSFT", "UNKNOWN"), requests);
+        assertEquals(2, quotes.size());
+        assertEquals(2, quotes.get("AAPL").getTimeSeries().size());
+        assertEquals(12D, quotes.get("MSFT").getTimeSeries().get(0).getHigh());
+    }
+
+    @Test
+    void failedBatchIsSkippedOnlyForItsSymbolsTest() throws InterruptedException {
+        Map<String, StockResponseDtoFlask> quotes = marketDataClient.getStockQuotes(List.of("AAPL", "FAIL", "MSFT"));
+
+        assertEquals(List.of("MSFT"), List.copyOf(quotes.keySet()));
+        assertThrows(InternalServerError.class, () -> marketDataClient.fetchStockQuotes(List.of("FAIL")));
+    }
+
+    @Test
+    void onlyLatestBarsOfLongSeriesAreBoundTest() throws Exception {
+        Map<String, StockResponseDtoFlask> quotes = marketDataClient.fetchStockQuotes(List.of("LONG"));
+
+        assertEquals(2, quotes.get("LONG").getTimeSeries().size());
+        assertEquals(5000L, quotes.get("LONG").getTimeSeries().get(0).getVolume());
+        assertEquals(4999L, quotes.get("LONG").getTimeSeries().get(1).getVolume());
+        assertEquals(List.of("LONG"), List.copyOf(quotes.keySet()));
+    }
+
+    @Test
+    void forexQuotesAreKeyedByPairTest() throws InterruptedException {
+        Map<String, ForexResponseExchangeFlask> quotes = marketDataClient.getForexQuotes(List.of("EUR/USD", "USD/JPY"));
+
+        assertEquals(List.of("EUR/USD,USD/JPY"), requests);
+        assertEquals(1.09D, quotes.get("EUR/USD").getBidPrice());
+        assertEquals("JPY", quotes.get("USD/JPY").getToCurrency());
+    }
+
+    private static String longSeries(int days) {
+        StringBuilder body = new StringBuilder("[{\"symbol\":\"LONG\",\"meta\":{\"source\":[1,2]},\"time_series\":[");
+        for (int i = days; i > 0; i--) {
+            body.append("{\"date\":\"2023-04-14\",\"open\":\"10.5\",\"high\":\"12\",\"low\":\"9\",\"close\":\"11\",\"volume\":\"")
+                    .append(i).append("\"}");
+            if (i > 1)
+                body.append(',');
+        }
+        return body.append("]},{\"symbol\":\"AFTER\",\"time_series\":[]}]").toString();
+    }
+
+    private static List<String> parameter(String query, String name) {
+        String value = URLDecoder.decode(query.substring(name.length() + 1), StandardCharsets.UTF_8);
+        return List.of(value.split(","));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.banka1.exchangeservice.clients;
+
+import org.banka1.exchangeservice.domains.dtos.user.BankAccountDto;
+import org.banka1.exchangeservice.domains.dtos.user.UserDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class UserProfileCacheTest {
+
+    @Test
+    void expiredProfileIsNotReturnedTest() {
+        Clock clock = Clock.fixed(Instant.parse("2023-04-01T10:00:00Z"), ZoneOffset.UTC);
+        UserProfileCache cache = new UserProfileCache(1000, 10, clock);
+        UserProfileCache expired = new UserProfileCache(0, 10, clock);
+        cache.put("a@a.com", createUser(1L, 1L));
+        expired.put("a@a.com", createUser(1L, 1L));
+
+        assertEquals(1L, cache.get("a@a.com").getId());
+        assertNull(expired.get("a@a.com"));
+        assertEquals(0, expired.size());
+    }
+
+    @Test
+    void leastRecentlyUsedProfileIsEvictedTest() {
+        UserProfileCache cache = new UserProfileCache(60_000, 2, Clock.systemUTC());
+        cache.put("a@a.com", createUser(1L, 1L));
+        cache.put("b@b.com", createUser(2L, 1L));
+        cache.get("a@a.com");
+        cache.put("c@c.com", createUser(3L, 1L));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b@b.com"));
+        assertEquals(1L, cache.get("a@a.com").getId());
+    }
+
+    @Test
+    void balanceChangeEvictsEveryProfileOfTheAccountTest() {
+        UserProfileCache cache = new UserProfileCache(60_000, 10, Clock.systemUTC());
+        cache.put("a@a.com", createUser(1L, 1L));
+        cache.put("b@b.com", createUser(2L, 1L));
+        cache.put("c@c.com", createUser(3L, 2L));
+
+        cache.evictAccountOf(userDto -> userDto.getId() == 1L);
+
+        assertNull(cache.get("a@a.com"));
+        assertNull(cache.get("b@b.com"));
+        assertEquals(3L, cache.get("c@c.com").getId());
+    }
+
+    @Test
+    void balanceChangeOfUncachedUserKeepsOtherProfilesTest() {
+        UserProfileCache cache = new UserProfileCache(60_000, 10, Clock.systemUTC());
+        cache.put("a@a.com", createUser(1L, 1L));
+        cache.put("b@b.com", createUser(2L, null));
+        cache.put("c@c.com", createUser(3L, null));
+
+        cache.evictAccountOf(userDto -> userDto.getId() == 4L);
+        cache.evictAccountOf(userDto -> userDto.getId() == 2L);
+
+        assertEquals(1L, cache.get("a@a.com").getId());
+        assertNull(cache.get("b@b.com"));
+        assertEquals(3L, cache.get("c@c.com").getId());
+    }
+
+    private UserDto createUser(Long id, Long bankAccountId) {
+        UserDto userDto = new UserDto();
+        userDto.setId(id);
+        userDto.setBankAccount(new BankAccountDto(bankAccountId, "USD", 1000D, null));
+        return userDto;
+    }
+}
@@ -0,0 +1,123 @@
+package org.banka1.exchangeservice.clients;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.banka1.exchangeservice.domains.dtos.user.UserDto;
+import org.banka1.exchangeservice.domains.dtos.user.UserListingDto;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.domains.exceptions.InternalServerError;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class UserServiceClientTest {
+
+    private static final String SECRET = "test-secret";
+
+    private HttpServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private UserServiceClient userServiceClient;
+    private final AtomicInteger profileRequests = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        respond("/api/users/my-profile", 200, "{\"id\":1,\"email\":\"admin@admin.com\",\"dailyLimit\":1000.0,\"unknown\":true}");
+        respond("/api/user-listings", 200, "[{\"id\":3,\"listingType\":\"STOCK\",\"symbol\":\"AAPL\",\"quantity\":10}]");
+        respond("/api/users/reduce-daily-limit", 500, "");
+        respond("/api/users/decrease-balance", 200, "");
+        respond("/api/user-listings/position", 404, "{\"message\":\"listing not found\"}");
+        server.start();
+
+        meterRegistry = new SimpleMeterRegistry();
+        userServiceClient = new UserServiceClient("http://localhost:" + server.getAddress().getPort() + "/api",
+                Duration.ofSeconds(1), 4, Duration.ofMinutes(1), 10, SECRET, new MockEnvironment(), new ObjectMapper(), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void typedResponsesAreParsedAndTimedTest() {
+        UserDto userDto = userServiceClient.getMyProfile("Bearer token");
+        List<UserListingDto> userListings = userServiceClient.getUserListings(1L, "Bearer token");
+
+        assertEquals(1L, userDto.getId());
+        assertEquals(1000D, userDto.getDailyLimit());
+        assertEquals(ListingType.STOCK, userListings.get(0).getListingType());
+        assertEquals(10, userListings.get(0).getQuantity());
+        assertEquals(1, meterRegistry.get("user.service.client.requests")
+                .tags("endpoint", "my-profile", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void errorStatusThrowsAndIsCountedTest() {
+        assertThrows(InternalServerError.class, () -> userServiceClient.reduceDailyLimit(1L, 10D, "Bearer token"));
+
+        assertEquals(1D, meterRegistry.get("user.service.client.errors")
+                .tags("endpoint", "reduce-daily-limit", "outcome", "status_500").counter().count());
+        assertEquals(0D, meterRegistry.get("user.service.client.in.flight").gauge().value());
+    }
+
+    @Test
+    void missingPositionIsReturnedAsNullTest() {
+        assertNull(userServiceClient.getPosition(1L, ListingType.FOREX, "EUR/USD", "Bearer token"));
+        assertEquals(1, meterRegistry.get("user.service.client.requests")
+                .tags("endpoint", "position", "outcome", "not_found").timer().count());
+    }
+
+    @Test
+    void profileIsCachedUntilBalanceChangesTest() {
+        String token = "Bearer " + Jwts.builder()
+                .setSubject("admin@admin.com")
+                .signWith(SignatureAlgorithm.HS512, SECRET.getBytes(StandardCharsets.UTF_8))
+                .compact();
+
+        userServiceClient.getMyProfile(token);
+        userServiceClient.getMyProfile(token);
+        assertEquals(1, profileRequests.get());
+
+        userServiceClient.decreaseBalance(10D, token);
+        userServiceClient.getMyProfile(token);
+        assertEquals(2, profileRequests.get());
+    }
+
+    @Test
+    void profileIsNotCachedForUnverifiedTokenTest() {
+        userServiceClient.getMyProfile("Bearer token");
+        userServiceClient.getMyProfile("Bearer token");
+
+        assertEquals(2, profileRequests.get());
+    }
+
+    private void respond(String path, int status, String body) {
+        server.createContext(path, exchange -> {
+            if (path.endsWith("my-profile"))
+                profileRequests.incrementAndGet();
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        });
+    }
+}
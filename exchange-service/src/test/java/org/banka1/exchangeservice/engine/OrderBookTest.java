@@ -0,0 +1,162 @@
+package org.banka1.exchangeservice.engine;
+
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.domains.entities.Order;
+import org.banka1.exchangeservice.domains.entities.OrderAction;
+import org.banka1.exchangeservice.domains.entities.OrderType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderBookTest {
+
+    private OrderBook orderBook;
+
+    @BeforeEach
+    void setUp() {
+        orderBook = new OrderBook(ListingType.STOCK, "AAPL");
+    }
+
+    @Test
+    void limitOrderRestsUntilQuoteCrossesTest() {
+        Order order = createOrder(1L, OrderAction.BUY, OrderType.LIMIT_ORDER, 10, 100D, null);
+
+        List<Fill> fills = orderBook.submit(order, 105D, 105D, Long.MAX_VALUE);
+        assertTrue(fills.isEmpty());
+        assertTrue(orderBook.contains(1L));
+
+        fills = orderBook.match(99D, 99D, Long.MAX_VALUE);
+        assertEquals(1, fills.size());
+        assertEquals(10, fills.get(0).getQuantity());
+        assertEquals(99D, fills.get(0).getPrice());
+        orderBook.apply(fills);
+        assertTrue(order.getDone());
+        assertFalse(orderBook.contains(1L));
+    }
+
+    @Test
+    void betterPriceThenEarlierOrderIsFilledFirstTest() {
+        Order early = createOrder(1L, OrderAction.BUY, OrderType.LIMIT_ORDER, 5, 100D, null);
+        Order late = createOrder(2L, OrderAction.BUY, OrderType.LIMIT_ORDER, 5, 100D, null);
+        Order best = createOrder(3L, OrderAction.BUY, OrderType.LIMIT_ORDER, 5, 101D, null);
+        orderBook.restore(early);
+        orderBook.restore(late);
+        orderBook.restore(best);
+
+        List<Fill> fills = orderBook.match(100D, 100D, 8);
+
+        assertEquals(2, fills.size());
+        assertEquals(best, fills.get(0).getOrder());
+        assertEquals(5, fills.get(0).getQuantity());
+        assertEquals(early, fills.get(1).getOrder());
+        assertEquals(3, fills.get(1).getQuantity());
+        orderBook.apply(fills);
+        assertEquals(2, early.getRemainingQuantity());
+        assertEquals(5, late.getRemainingQuantity());
+        assertEquals(2, orderBook.size());
+    }
+
+    @Test
+    void fillsAreNotAppliedUntilSettledTest() {
+        Order order = createOrder(1L, OrderAction.BUY, OrderType.MARKET_ORDER, 10, null, null);
+
+        List<Fill> fills = orderBook.submit(order, 100D, 100D, Long.MAX_VALUE);
+        assertEquals(1, fills.size());
+        assertEquals(10, order.getRemainingQuantity());
+        assertTrue(orderBook.contains(1L));
+
+        // poravnanje nije uspelo, pa sledeca kotacija ponovo izvrsava isti nalog
+        fills = orderBook.match(101D, 101D, Long.MAX_VALUE);
+        assertEquals(1, fills.size());
+        assertEquals(10, fills.get(0).getQuantity());
+
+        orderBook.apply(fills);
+        assertTrue(order.getDone());
+        assertFalse(orderBook.contains(1L));
+        assertTrue(orderBook.match(101D, 101D, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void allOrNoneOrderIsSkippedWhenLiquidityIsShortTest() {
+        Order allOrNone = createOrder(1L, OrderAction.SELL, OrderType.LIMIT_ORDER, 10, 50D, null);
+        allOrNone.setAllOrNone(true);
+        Order regular = createOrder(2L, OrderAction.SELL, OrderType.LIMIT_ORDER, 4, 50D, null);
+        orderBook.restore(allOrNone);
+        orderBook.restore(regular);
+
+        List<Fill> fills = orderBook.match(55D, 55D, 6);
+
+        assertEquals(1, fills.size());
+        assertEquals(regular, fills.get(0).getOrder());
+        assertEquals(10, allOrNone.getRemainingQuantity());
+    }
+
+    @Test
+    void triggeredStopOrderExecutesAsMarketOrderTest() {
+        Order order = createOrder(1L, OrderAction.BUY, OrderType.STOP_ORDER, 3, null, 120D);
+
+        assertTrue(orderBook.submit(order, 110D, 110D, Long.MAX_VALUE).isEmpty());
+        assertTrue(orderBook.takeTriggered().isEmpty());
+
+        List<Fill> fills = orderBook.match(121D, 121D, Long.MAX_VALUE);
+        assertEquals(1, fills.size());
+        assertEquals(121D, fills.get(0).getPrice());
+        assertEquals(OrderType.STOP_ORDER, order.getOrderType());
+        assertTrue(order.getTriggered());
+        assertEquals(List.of(order), orderBook.takeTriggered());
+        assertTrue(orderBook.takeTriggered().isEmpty());
+    }
+
+    @Test
+    void restoredTriggeredStopLimitOrderRestsOnItsLimitTest() {
+        Order order = createOrder(1L, OrderAction.BUY, OrderType.STOP_LIMIT_ORDER, 3, 100D, 120D);
+        order.setTriggered(true);
+
+        orderBook.restore(order);
+
+        assertEquals(0, orderBook.pendingStops());
+        List<Fill> fills = orderBook.match(99D, 99D, Long.MAX_VALUE);
+        assertEquals(1, fills.size());
+        assertEquals(99D, fills.get(0).getPrice());
+    }
+
+    @Test
+    void restoredUntriggeredStopOrderWaitsForStopPriceTest() {
+        Order order = createOrder(1L, OrderAction.BUY, OrderType.STOP_ORDER, 3, null, 120D);
+
+        orderBook.restore(order);
+
+        assertEquals(1, orderBook.pendingStops());
+        assertTrue(orderBook.match(110D, 110D, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void cancelledOrderIsNotFilledTest() {
+        Order order = createOrder(1L, OrderAction.SELL, OrderType.LIMIT_ORDER, 10, 80D, null);
+        orderBook.restore(order);
+
+        assertTrue(orderBook.cancel(1L));
+        assertTrue(orderBook.match(90D, 90D, Long.MAX_VALUE).isEmpty());
+        assertEquals(0, orderBook.size());
+    }
+
+    private Order createOrder(Long id, OrderAction orderAction, OrderType orderType, int quantity, Double limitValue, Double stopValue) {
+        return Order.builder()
+                .id(id)
+                .listingType(ListingType.STOCK)
+                .listingSymbol("AAPL")
+                .orderAction(orderAction)
+                .orderType(orderType)
+                .quantity(quantity)
+                .remainingQuantity(quantity)
+                .limitValue(limitValue)
+                .stopValue(stopValue)
+                .done(false)
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package org.banka1.exchangeservice.engine;
+
+import org.banka1.exchangeservice.domains.entities.Forex;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.domains.entities.Stock;
+import org.banka1.exchangeservice.domains.exceptions.NotFoundExceptions;
+import org.banka1.exchangeservice.repositories.ForexRepository;
+import org.banka1.exchangeservice.repositories.StockRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+public class QuoteSnapshotTest {
+
+    private StockRepository stockRepository;
+    private ForexRepository forexRepository;
+    private QuoteSnapshot quoteSnapshot;
+
+    @BeforeEach
+    void setUp() {
+        stockRepository = mock(StockRepository.class);
+        forexRepository = mock(ForexRepository.class);
+        quoteSnapshot = new QuoteSnapshot(stockRepository, forexRepository);
+    }
+
+    @Test
+    void refreshedQuoteIsReadWithoutDatabaseTest() {
+        Forex forex = new Forex();
+        forex.setSymbol("EUR/USD");
+        forex.setExchangeRate(1.1);
+        forex.setBidPrice(1.09);
+        forex.setAskPrice(1.11);
+        quoteSnapshot.update(forex);
+
+        Quote quote = quoteSnapshot.get(ListingType.FOREX, "EUR/USD");
+
+        assertEquals(1.1, quote.getLast());
+        assertEquals(1.09, quote.getBid());
+        assertEquals(1.11, quote.getAsk());
+        verifyNoInteractions(forexRepository, stockRepository);
+    }
+
+    @Test
+    void missingQuoteIsLoadedFromDatabaseOnceTest() {
+        Stock stock = new Stock();
+        stock.setSymbol("AAPL");
+        stock.setPrice(150D);
+        stock.setVolume(1000L);
+        when(stockRepository.findBySymbol("AAPL")).thenReturn(stock);
+
+        quoteSnapshot.get(ListingType.STOCK, "AAPL");
+        Quote quote = quoteSnapshot.get(ListingType.STOCK, "AAPL");
+
+        assertEquals(150D, quote.getLast());
+        assertEquals(1000L, quote.getVolume());
+        verify(stockRepository, times(1)).findBySymbol("AAPL");
+    }
+
+    @Test
+    void unknownSymbolThrowsTest() {
+        assertThrows(NotFoundExceptions.class, () -> quoteSnapshot.get(ListingType.STOCK, "NONE"));
+    }
+}
@@ -0,0 +1,112 @@
+package org.banka1.exchangeservice.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SymbolLanesTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SymbolLanes symbolLanes;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        symbolLanes = new SymbolLanes(4, 2, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        symbolLanes.shutdown();
+    }
+
+    @Test
+    void tasksOfOneSymbolRunInSubmissionOrderTest() {
+        List<Integer> executed = new ArrayList<>();
+        List<String> threads = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int task = i;
+            futures.add(symbolLanes.execute(ListingType.STOCK, "AAPL", () -> {
+                executed.add(task);
+                threads.add(Thread.currentThread().getName());
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        for (int i = 0; i < 100; i++)
+            assertEquals(i, executed.get(i));
+        assertEquals(1, threads.stream().distinct().count());
+        assertTrue(threads.get(0).startsWith("OrderLane-"));
+    }
+
+    @Test
+    void waitingTickIsReplacedByNewerTickTest() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        symbolLanes.execute(ListingType.STOCK, "AAPL", () -> await(release));
+
+        List<Integer> executed = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int tick = i;
+            futures.add(symbolLanes.executeLatest(ListingType.STOCK, "AAPL", () -> executed.add(tick)));
+        }
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        assertEquals(List.of(99), executed);
+        assertEquals(99D, meterRegistry.counter("order.lanes.conflated").count());
+
+        // posle izvrsavanja sledeci tick ponovo dobija svoj posao
+        symbolLanes.executeLatest(ListingType.STOCK, "AAPL", () -> executed.add(100)).join();
+        assertEquals(List.of(99, 100), executed);
+    }
+
+    @Test
+    void fullLaneMakesCallerWaitTest() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        symbolLanes.execute(ListingType.STOCK, "AAPL", () -> await(release));
+        symbolLanes.execute(ListingType.STOCK, "AAPL", () -> { });
+        symbolLanes.execute(ListingType.STOCK, "AAPL", () -> { });
+
+        List<Integer> executed = new ArrayList<>();
+        Thread caller = new Thread(() -> symbolLanes.execute(ListingType.STOCK, "AAPL", () -> executed.add(1)).join());
+        caller.start();
+        caller.join(300);
+
+        assertTrue(caller.isAlive());
+        assertEquals(1D, meterRegistry.counter("order.lanes.blocked").count());
+
+        release.countDown();
+        caller.join(5000);
+        assertFalse(caller.isAlive());
+        assertEquals(List.of(1), executed);
+    }
+
+    @Test
+    void lanesAreExposedAsMetricsTest() {
+        assertEquals(4, symbolLanes.laneCount());
+        assertEquals(4D, meterRegistry.get("order.lanes.count").gauge().value());
+        assertEquals(4, meterRegistry.get("order.lanes.queue.depth").gauges().size());
+        assertEquals(symbolLanes.laneOf(ListingType.FOREX, "EUR/USD"), symbolLanes.laneOf(ListingType.FOREX, "EUR/USD"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
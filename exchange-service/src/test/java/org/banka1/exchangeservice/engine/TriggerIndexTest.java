@@ -0,0 +1,72 @@
+package org.banka1.exchangeservice.engine;
+
+import org.banka1.exchangeservice.domains.entities.Order;
+import org.banka1.exchangeservice.domains.entities.OrderAction;
+import org.banka1.exchangeservice.domains.entities.OrderType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TriggerIndexTest {
+
+    private TriggerIndex triggerIndex;
+
+    @BeforeEach
+    void setUp() {
+        triggerIndex = new TriggerIndex();
+    }
+
+    @Test
+    void onlyCrossedStopsAreTriggeredTest() {
+        Order buyLow = createOrder(1L, OrderAction.BUY, 100D);
+        Order buyHigh = createOrder(2L, OrderAction.BUY, 110D);
+        Order sellHigh = createOrder(3L, OrderAction.SELL, 95D);
+        Order sellLow = createOrder(4L, OrderAction.SELL, 80D);
+        triggerIndex.add(buyLow);
+        triggerIndex.add(buyHigh);
+        triggerIndex.add(sellHigh);
+        triggerIndex.add(sellLow);
+
+        List<Order> triggered = triggerIndex.trigger(105D, 90D);
+
+        assertEquals(List.of(buyLow, sellHigh), triggered);
+        assertEquals(2, triggerIndex.size());
+        assertTrue(triggerIndex.trigger(105D, 90D).isEmpty());
+    }
+
+    @Test
+    void stopAtExactPriceIsNotTriggeredTest() {
+        triggerIndex.add(createOrder(1L, OrderAction.BUY, 100D));
+        triggerIndex.add(createOrder(2L, OrderAction.SELL, 100D));
+
+        assertTrue(triggerIndex.trigger(100D, 100D).isEmpty());
+        assertEquals(2, triggerIndex.size());
+    }
+
+    @Test
+    void removedStopIsNotTriggeredTest() {
+        Order order = createOrder(1L, OrderAction.SELL, 50D);
+        triggerIndex.add(order);
+
+        assertTrue(triggerIndex.remove(order));
+        assertFalse(triggerIndex.remove(order));
+        assertTrue(triggerIndex.trigger(40D, 40D).isEmpty());
+        assertEquals(0, triggerIndex.size());
+    }
+
+    private Order createOrder(Long id, OrderAction orderAction, Double stopValue) {
+        return Order.builder()
+                .id(id)
+                .orderAction(orderAction)
+                .orderType(OrderType.STOP_ORDER)
+                .quantity(1)
+                .remainingQuantity(1)
+                .stopValue(stopValue)
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package org.banka1.exchangeservice.journal;
+
+import org.banka1.exchangeservice.domains.entities.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayReturnsLatestStateOfEveryOrderTest() throws IOException {
+        OrderJournal orderJournal = new OrderJournal(directory.toString(), 4096);
+        orderJournal.append(new OrderEvent(OrderEventType.PLACED, 1L, OrderStatus.PENDING, 10, false, false, 1L));
+        orderJournal.append(new OrderEvent(OrderEventType.APPROVED, 1L, OrderStatus.APPROVED, 10, false, false, 2L));
+        orderJournal.append(new OrderEvent(OrderEventType.PLACED, 2L, OrderStatus.PENDING, 5, false, false, 3L));
+        orderJournal.append(new OrderEvent(OrderEventType.PARTIALLY_FILLED, 1L, OrderStatus.APPROVED, 4, false, false, 4L));
+        orderJournal.close();
+
+        Map<Long, OrderEvent> latest = new OrderJournal(directory.toString(), 4096).replay();
+
+        assertEquals(2, latest.size());
+        assertEquals(OrderEventType.PARTIALLY_FILLED, latest.get(1L).getType());
+        assertEquals(4, latest.get(1L).getRemainingQuantity());
+        assertEquals(OrderStatus.PENDING, latest.get(2L).getOrderStatus());
+    }
+
+    @Test
+    void reopenedJournalAppendsAfterLastRecordTest() throws IOException {
+        OrderJournal orderJournal = new OrderJournal(directory.toString(), 4096);
+        orderJournal.append(new OrderEvent(OrderEventType.PLACED, 1L, OrderStatus.PENDING, 10, false, false, 1L));
+        orderJournal.close();
+
+        OrderJournal reopened = new OrderJournal(directory.toString(), 4096);
+        reopened.append(new OrderEvent(OrderEventType.DONE, 1L, OrderStatus.APPROVED, 0, true, false, 2L));
+
+        List<OrderEvent> events = new ArrayList<>();
+        reopened.forEach(events::add);
+        assertEquals(2, events.size());
+        assertTrue(events.get(1).isDone());
+    }
+
+    @Test
+    void triggeredFlagSurvivesReplayTest() throws IOException {
+        OrderJournal orderJournal = new OrderJournal(directory.toString(), 4096);
+        orderJournal.append(new OrderEvent(OrderEventType.TRIGGERED, 1L, OrderStatus.APPROVED, 10, false, true, 1L));
+        orderJournal.append(new OrderEvent(OrderEventType.DONE, 2L, OrderStatus.APPROVED, 0, true, true, 2L));
+        orderJournal.close();
+
+        Map<Long, OrderEvent> latest = new OrderJournal(directory.toString(), 4096).replay();
+
+        assertTrue(latest.get(1L).isTriggered());
+        assertFalse(latest.get(1L).isDone());
+        assertTrue(latest.get(2L).isTriggered());
+        assertTrue(latest.get(2L).isDone());
+    }
+
+    @Test
+    void replayStartsAtCheckpointAndOldSegmentsAreArchivedTest() throws IOException {
+        int segmentSize = OrderJournal.RECORD_SIZE * 3;
+        OrderJournal orderJournal = new OrderJournal(directory.toString(), segmentSize);
+        for (long id = 1; id <= 5; id++)
+            orderJournal.append(new OrderEvent(OrderEventType.PLACED, id, OrderStatus.PENDING, 1, false, false, id));
+        orderJournal.checkpoint(orderJournal.position());
+        orderJournal.append(new OrderEvent(OrderEventType.APPROVED, 6L, OrderStatus.APPROVED, 1, false, false, 6L));
+        orderJournal.close();
+
+        assertTrue(Files.exists(directory.resolve("archive").resolve("orders-00000001.journal")));
+        assertFalse(Files.exists(directory.resolve("orders-00000001.journal")));
+        Map<Long, OrderEvent> latest = new OrderJournal(directory.toString(), segmentSize).replay();
+        assertEquals(Set.of(6L), latest.keySet());
+    }
+
+    @Test
+    void fullSegmentRollsToNextFileTest() throws IOException {
+        int segmentSize = OrderJournal.RECORD_SIZE * 3;
+        OrderJournal orderJournal = new OrderJournal(directory.toString(), segmentSize);
+        for (long id = 1; id <= 10; id++)
+            orderJournal.append(new OrderEvent(OrderEventType.PLACED, id, OrderStatus.PENDING, 1, false, false, id));
+        orderJournal.close();
+
+        try (var files = Files.list(directory)) {
+            assertTrue(files.count() > 1);
+        }
+        Map<Long, OrderEvent> latest = new OrderJournal(directory.toString(), segmentSize).replay();
+        assertEquals(10, latest.size());
+        assertFalse(latest.get(10L).isDone());
+    }
+}
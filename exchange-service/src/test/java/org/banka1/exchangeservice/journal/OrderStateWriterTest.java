@@ -0,0 +1,112 @@
+package org.banka1.exchangeservice.journal;
+
+import org.banka1.exchangeservice.domains.entities.Order;
+import org.banka1.exchangeservice.domains.entities.OrderStatus;
+import org.banka1.exchangeservice.repositories.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class OrderStateWriterTest {
+
+    @TempDir
+    Path directory;
+
+    private OrderJournal orderJournal;
+    private OrderRepository orderRepository;
+    private OrderStateWriter orderStateWriter;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        orderJournal = new OrderJournal(directory.toString(), 4096);
+        orderRepository = mock(OrderRepository.class);
+        orderStateWriter = new OrderStateWriter(orderJournal, orderRepository);
+    }
+
+    @Test
+    void transitionsAreCoalescedIntoOneSaveTest() {
+        Order order = createOrder(1L, OrderStatus.APPROVED, 10);
+        Order row = createOrder(1L, OrderStatus.PENDING, 10);
+        when(orderRepository.findAllById(Set.of(1L))).thenReturn(List.of(row));
+        orderStateWriter.record(OrderEventType.APPROVED, order);
+        order.setRemainingQuantity(0);
+        order.setDone(true);
+        orderStateWriter.recordFill(order);
+        assertSame(order, orderStateWriter.pending(1L));
+
+        orderStateWriter.flush();
+
+        verify(orderRepository, times(1)).saveAll(List.of(row));
+        assertEquals(OrderStatus.APPROVED, row.getOrderStatus());
+        assertEquals(0, row.getRemainingQuantity());
+        assertTrue(row.getDone());
+        assertNull(orderStateWriter.pending(1L));
+        // sve sto je u bazi je iza checkpoint-a, pa ga replay ne prolazi ponovo
+        assertTrue(orderJournal.replay().isEmpty());
+    }
+
+    @Test
+    void flushSavesStateFromTimeOfTransitionTest() {
+        Order order = createOrder(1L, OrderStatus.APPROVED, 10);
+        Order row = createOrder(1L, OrderStatus.PENDING, 10);
+        when(orderRepository.findAllById(Set.of(1L))).thenReturn(List.of(row));
+        orderStateWriter.record(OrderEventType.APPROVED, order);
+        // traka menja nalog posle upisa u journal, a pre nego sto je izmena zabelezena
+        order.setRemainingQuantity(4);
+
+        orderStateWriter.flush();
+
+        assertEquals(10, row.getRemainingQuantity());
+        assertEquals(4, order.getRemainingQuantity());
+    }
+
+    @Test
+    void failedFlushKeepsJournalForReplayTest() {
+        Order order = createOrder(1L, OrderStatus.APPROVED, 10);
+        when(orderRepository.findAllById(Set.of(1L))).thenReturn(List.of(createOrder(1L, OrderStatus.PENDING, 10)));
+        when(orderRepository.saveAll(any())).thenThrow(new IllegalStateException("database unavailable"));
+        orderStateWriter.record(OrderEventType.APPROVED, order);
+
+        assertThrows(IllegalStateException.class, () -> orderStateWriter.flush());
+
+        assertSame(order, orderStateWriter.pending(1L));
+        assertEquals(OrderEventType.APPROVED, orderJournal.replay().get(1L).getType());
+    }
+
+    @Test
+    void recoverAppliesJournalToStaleRowsTest() {
+        Order journaled = createOrder(1L, OrderStatus.APPROVED, 3);
+        orderJournal.append(OrderEvent.of(OrderEventType.PARTIALLY_FILLED, journaled));
+        Order stale = createOrder(1L, OrderStatus.PENDING, 10);
+        when(orderRepository.findAllById(Set.of(1L))).thenReturn(List.of(stale));
+
+        orderStateWriter.recover();
+
+        assertEquals(OrderStatus.APPROVED, stale.getOrderStatus());
+        assertEquals(3, stale.getRemainingQuantity());
+        verify(orderRepository, times(1)).saveAll(List.of(stale));
+        assertTrue(orderJournal.replay().isEmpty());
+    }
+
+    private Order createOrder(Long id, OrderStatus orderStatus, int remainingQuantity) {
+        return Order.builder()
+                .id(id)
+                .orderStatus(orderStatus)
+                .quantity(10)
+                .remainingQuantity(remainingQuantity)
+                .done(false)
+                .build();
+    }
+}
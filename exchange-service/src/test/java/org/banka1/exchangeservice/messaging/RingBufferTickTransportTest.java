@@ -0,0 +1,118 @@
+package org.banka1.exchangeservice.messaging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.engine.Quote;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RingBufferTickTransportTest {
+
+    private final TickPartitions tickPartitions = new TickPartitions(2, "stock_queue", "forex_queue",
+            "stock_routing_key", "forex_routing_key");
+    private SimpleMeterRegistry meterRegistry;
+    private RingBufferTickTransport ringBufferTickTransport;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ringBufferTickTransport.stop();
+    }
+
+    @Test
+    void ticksOfOneSymbolArriveInOrderOnOneThreadTest() throws InterruptedException {
+        ringBufferTickTransport = new RingBufferTickTransport(tickPartitions, meterRegistry, 8);
+        Map<String, List<Double>> prices = new ConcurrentHashMap<>();
+        Map<String, Set<String>> threads = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(1000);
+        ringBufferTickTransport.start((listingType, symbol, quote) -> {
+            prices.computeIfAbsent(symbol, s -> new ArrayList<>()).add(quote.getLast());
+            threads.computeIfAbsent(symbol, s -> ConcurrentHashMap.newKeySet()).add(Thread.currentThread().getName());
+            latch.countDown();
+        });
+
+        // prsten od 8 slotova se pri 1000 tick-ova vise puta okrene
+        for (int i = 0; i < 1000; i++)
+            ringBufferTickTransport.publish(ListingType.STOCK, "S" + (i % 10), quote(i));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(10, prices.size());
+        prices.forEach((symbol, received) -> {
+            assertEquals(100, received.size());
+            for (int i = 1; i < received.size(); i++)
+                assertTrue(received.get(i - 1) < received.get(i));
+        });
+        threads.values().forEach(names -> assertEquals(1, names.size()));
+        assertEquals(1000D, meterRegistry.counter("market.ticks.received", "type", "stock").count());
+    }
+
+    @Test
+    void writerWaitsForSlowConsumerTest() throws InterruptedException {
+        ringBufferTickTransport = new RingBufferTickTransport(tickPartitions, meterRegistry, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch received = new CountDownLatch(6);
+        ringBufferTickTransport.start((listingType, symbol, quote) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.countDown();
+        });
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 6; i++)
+                ringBufferTickTransport.publish(ListingType.FOREX, "EUR/USD", quote(i));
+        });
+        writer.start();
+        writer.join(300);
+
+        assertTrue(writer.isAlive());
+        assertTrue(meterRegistry.counter("market.ticks.ring.stalls").count() >= 1);
+
+        release.countDown();
+        writer.join(5000);
+        assertFalse(writer.isAlive());
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failedTickDoesNotStopTheConsumerTest() throws InterruptedException {
+        ringBufferTickTransport = new RingBufferTickTransport(tickPartitions, meterRegistry, 8);
+        CountDownLatch latch = new CountDownLatch(1);
+        ringBufferTickTransport.start((listingType, symbol, quote) -> {
+            if (symbol.equals("FAIL"))
+                throw new IllegalStateException("boom");
+            latch.countDown();
+        });
+
+        ringBufferTickTransport.publish(ListingType.STOCK, "FAIL", quote(1));
+        ringBufferTickTransport.publish(ListingType.STOCK, "FAIL", quote(2));
+        ringBufferTickTransport.publish(ListingType.STOCK, "AAPL", quote(3));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertThrows(IllegalStateException.class, () -> ringBufferTickTransport.start((listingType, symbol, quote) -> { }));
+    }
+
+    private static Quote quote(double price) {
+        return new Quote(price, price, price, 10, System.currentTimeMillis());
+    }
+}
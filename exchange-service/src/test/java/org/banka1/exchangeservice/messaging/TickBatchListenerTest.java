@@ -0,0 +1,86 @@
+package org.banka1.exchangeservice.messaging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.engine.Quote;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TickBatchListenerTest {
+
+    private final TickMessageConverter tickMessageConverter = new TickMessageConverter();
+    private final List<Tick> received = new ArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private TickBatchListener tickBatchListener;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        tickBatchListener = new TickBatchListener(ListingType.STOCK, tick -> {
+            received.add(tick);
+            return CompletableFuture.completedFuture(null);
+        }, tickMessageConverter, meterRegistry);
+    }
+
+    @Test
+    void eachSymbolIsEvaluatedOnceWithItsLatestTickTest() {
+        long now = System.currentTimeMillis();
+        tickBatchListener.onMessageBatch(List.of(message("AAPL", 100, now - 2000), message("MSFT", 200, now),
+                message("AAPL", 101, now), message("AAPL", 102, now)));
+
+        assertEquals(2, received.size());
+        assertEquals("AAPL", received.get(0).getSymbol());
+        assertEquals(102D, received.get(0).getQuote().getLast());
+        assertEquals(200D, received.get(1).getQuote().getLast());
+
+        assertEquals(4D, meterRegistry.counter("market.ticks.received", "type", "stock").count());
+        assertEquals(2D, meterRegistry.counter("market.ticks.conflated", "type", "stock").count());
+        assertTrue(meterRegistry.timer("market.ticks.lag", "type", "stock").max(TimeUnit.MILLISECONDS) >= 2000);
+    }
+
+    @Test
+    void unreadableMessageIsSkippedWithoutDroppingTheBatchTest() {
+        // stara JSON poruka zaostala u redu
+        Message broken = new Message("{\"symbol\":\"AAPL\"}".getBytes(StandardCharsets.UTF_8), new MessageProperties());
+        broken.getMessageProperties().setContentType(MessageProperties.CONTENT_TYPE_JSON);
+
+        tickBatchListener.onMessageBatch(List.of(broken, message("AAPL", 100, System.currentTimeMillis())));
+
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    void batchIsAcknowledgedOnlyAfterTicksAreProcessedTest() throws InterruptedException {
+        CompletableFuture<Void> processing = new CompletableFuture<>();
+        TickBatchListener listener = new TickBatchListener(ListingType.STOCK, tick -> processing, tickMessageConverter, meterRegistry);
+
+        Thread consumer = new Thread(() -> listener.onMessageBatch(List.of(message("AAPL", 100, System.currentTimeMillis()))));
+        consumer.start();
+        consumer.join(300);
+        assertTrue(consumer.isAlive());
+
+        processing.completeExceptionally(new IllegalStateException("settlement failed"));
+        consumer.join(5000);
+        assertFalse(consumer.isAlive());
+    }
+
+    private Message message(String symbol, double price, long timestamp) {
+        MessageProperties properties = new MessageProperties();
+        properties.setTimestamp(new Date(timestamp));
+        return tickMessageConverter.toMessage(new Tick(ListingType.STOCK, symbol, new Quote(price, price, price, 10, timestamp)),
+                properties);
+    }
+}
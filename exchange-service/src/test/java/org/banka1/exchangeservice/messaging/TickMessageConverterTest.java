@@ -0,0 +1,70 @@
+package org.banka1.exchangeservice.messaging;
+
+import org.banka1.exchangeservice.domains.entities.Currency;
+import org.banka1.exchangeservice.domains.entities.Forex;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.engine.Quote;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TickMessageConverterTest {
+
+    private final TickMessageConverter tickMessageConverter = new TickMessageConverter();
+
+    @Test
+    void tickSurvivesRoundTripTest() {
+        Tick forex = tickMessageConverter.fromMessage(message(ListingType.FOREX, "EUR/USD"));
+        Tick stock = tickMessageConverter.fromMessage(message(ListingType.STOCK, "AAPL"));
+
+        assertEquals(ListingType.FOREX, forex.getListingType());
+        assertEquals("EUR/USD", forex.getSymbol());
+        assertEquals(1.1D, forex.getQuote().getLast());
+        assertEquals(1.09D, forex.getQuote().getBid());
+        assertEquals(1.11D, forex.getQuote().getAsk());
+        assertEquals(500L, forex.getQuote().getVolume());
+        assertEquals(1681466400000L, forex.getQuote().getTimestamp());
+        assertEquals(ListingType.STOCK, stock.getListingType());
+        assertEquals("AAPL", stock.getSymbol());
+    }
+
+    @Test
+    void tickIsMuchSmallerThanEntityJsonTest() {
+        Currency euro = new Currency(1L, "Euro", "EUR", "€", "European Union");
+        Currency dollar = new Currency(2L, "United States Dollar", "USD", "$", "United States");
+        Forex forex = new Forex(1L, null, euro, dollar, 1.1, "EUR/USD", 1.09, 1.11);
+        int json = new Jackson2JsonMessageConverter().toMessage(forex, new MessageProperties()).getBody().length;
+        int binary = message(ListingType.FOREX, "EUR/USD").getBody().length;
+
+        assertEquals(50, binary);
+        assertTrue(json >= 5 * binary, "json " + json + " bytes, binary " + binary + " bytes");
+    }
+
+    @Test
+    void malformedTickIsRejectedTest() {
+        Message message = message(ListingType.STOCK, "AAPL");
+        Message truncated = new Message(Arrays.copyOf(message.getBody(), 20), message.getMessageProperties());
+        Message unknownVersion = message(ListingType.STOCK, "AAPL");
+        unknownVersion.getBody()[0] = 9;
+        Message json = new Message("{}".getBytes(), new MessageProperties());
+        json.getMessageProperties().setContentType(MessageProperties.CONTENT_TYPE_JSON);
+
+        assertThrows(MessageConversionException.class, () -> tickMessageConverter.fromMessage(truncated));
+        assertThrows(MessageConversionException.class, () -> tickMessageConverter.fromMessage(unknownVersion));
+        assertThrows(MessageConversionException.class, () -> tickMessageConverter.fromMessage(json));
+        assertThrows(MessageConversionException.class, () -> tickMessageConverter.toMessage("AAPL", new MessageProperties()));
+    }
+
+    private Message message(ListingType listingType, String symbol) {
+        Tick tick = new Tick(listingType, symbol, new Quote(1.1, 1.09, 1.11, 500, 1681466400000L));
+        return tickMessageConverter.toMessage(tick, new MessageProperties());
+    }
+}
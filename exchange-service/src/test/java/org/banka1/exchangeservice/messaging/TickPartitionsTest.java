@@ -0,0 +1,35 @@
+package org.banka1.exchangeservice.messaging;
+
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TickPartitionsTest {
+
+    private final TickPartitions tickPartitions = new TickPartitions(4, "stock_queue", "forex_queue",
+            "stock_routing_key", "forex_routing_key");
+
+    @Test
+    void symbolAlwaysGoesToTheSamePartitionTest() {
+        int partition = tickPartitions.partitionOf("AAPL");
+
+        assertEquals(partition, tickPartitions.partitionOf("AAPL"));
+        assertEquals("stock_routing_key." + partition, tickPartitions.routingKey(ListingType.STOCK, "AAPL"));
+        assertEquals("forex_queue.3", tickPartitions.queue(ListingType.FOREX, 3));
+    }
+
+    @Test
+    void symbolsAreSpreadOverAllPartitionsTest() {
+        Set<Integer> partitions = new HashSet<>();
+        IntStream.range(0, 100).forEach(i -> partitions.add(tickPartitions.partitionOf("S" + i)));
+
+        assertEquals(Set.of(0, 1, 2, 3), partitions);
+        assertThrows(IllegalArgumentException.class, () -> new TickPartitions(0, "s", "f", "sk", "fk"));
+    }
+}
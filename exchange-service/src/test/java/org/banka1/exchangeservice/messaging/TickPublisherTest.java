@@ -0,0 +1,163 @@
+package org.banka1.exchangeservice.messaging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.engine.Quote;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.batch.SimpleBatchingStrategy;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class TickPublisherTest {
+
+    private final TickMessageConverter tickMessageConverter = new TickMessageConverter();
+    private final TickPartitions tickPartitions = new TickPartitions(1, "stock_queue", "forex_queue",
+            "stock_routing_key", "forex_routing_key");
+    private RabbitTemplate rabbitTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private TickPublisher tickPublisher;
+    private RabbitTemplate.ConfirmCallback confirmCallback;
+
+    @BeforeEach
+    void setUp() {
+        rabbitTemplate = mock(RabbitTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        tickPublisher = new TickPublisher(rabbitTemplate, tickPartitions, tickMessageConverter, meterRegistry,
+                "order_exchange", 2, 5000, 2);
+
+        ArgumentCaptor<RabbitTemplate.ConfirmCallback> captor = ArgumentCaptor.forClass(RabbitTemplate.ConfirmCallback.class);
+        verify(rabbitTemplate).setConfirmCallback(captor.capture());
+        confirmCallback = captor.getValue();
+    }
+
+    @Test
+    void ticksAreSentInBatchesPerPartitionTest() {
+        tickPublisher.publish(ListingType.STOCK, "AAPL", quote(100));
+        tickPublisher.publish(ListingType.STOCK, "AAPL", quote(101));
+        tickPublisher.publish(ListingType.STOCK, "MSFT", quote(200));
+        tickPublisher.publish(ListingType.STOCK, "IBM", quote(300));
+        tickPublisher.publish(ListingType.FOREX, "EUR/USD", quote(1.1));
+        tickPublisher.flush();
+
+        List<Sent> sent = sent(3);
+        List<Tick> stocks = new ArrayList<>();
+        sent.stream().filter(message -> message.routingKey.equals("stock_routing_key.0"))
+                .forEach(message -> stocks.addAll(ticks(message.message)));
+
+        // AAPL 100 je zamenjen novijim tick-om pre slanja, a tri akcije ne staju u jedan paket od dva tick-a
+        assertEquals(3, stocks.size());
+        assertEquals(101D, stocks.stream().filter(tick -> tick.getSymbol().equals("AAPL")).findFirst().orElseThrow().getQuote().getLast());
+        assertEquals(1, sent.stream().filter(message -> message.routingKey.equals("forex_routing_key.0")).count());
+        assertEquals(3D, meterRegistry.get("market.ticks.publish.unconfirmed").gauge().value());
+
+        sent.forEach(message -> confirmCallback.confirm(message.correlationData, true, null));
+
+        assertEquals(0D, meterRegistry.get("market.ticks.publish.unconfirmed").gauge().value());
+        assertEquals(3D, meterRegistry.counter("market.ticks.publish.batches", "result", "confirmed").count());
+        assertEquals(3L, meterRegistry.timer("market.ticks.publish.confirm").count());
+    }
+
+    @Test
+    void nackedBatchIsRetriedUntilMaxAttemptsTest() {
+        tickPublisher.publish(ListingType.STOCK, "AAPL", quote(100));
+        tickPublisher.flush();
+        confirmCallback.confirm(sent(1).get(0).correlationData, false, "channel closed");
+
+        clearInvocations(rabbitTemplate);
+        tickPublisher.flush();
+        Sent retried = sent(1).get(0);
+        assertEquals(100D, ticks(retried.message).get(0).getQuote().getLast());
+
+        confirmCallback.confirm(retried.correlationData, false, "channel closed");
+        clearInvocations(rabbitTemplate);
+        tickPublisher.flush();
+
+        verify(rabbitTemplate, never()).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        assertEquals(2D, meterRegistry.counter("market.ticks.publish.batches", "result", "nacked").count());
+        assertEquals(1D, meterRegistry.counter("market.ticks.publish.dropped").count());
+    }
+
+    @Test
+    void retryDoesNotOverwriteNewerTickTest() {
+        tickPublisher.publish(ListingType.STOCK, "AAPL", quote(100));
+        tickPublisher.flush();
+        CorrelationData first = sent(1).get(0).correlationData;
+        tickPublisher.publish(ListingType.STOCK, "AAPL", quote(101));
+        confirmCallback.confirm(first, false, "channel closed");
+
+        clearInvocations(rabbitTemplate);
+        tickPublisher.flush();
+
+        List<Tick> ticks = ticks(sent(1).get(0).message);
+        assertEquals(1, ticks.size());
+        assertEquals(101D, ticks.get(0).getQuote().getLast());
+    }
+
+    @Test
+    void unconfirmedBatchIsRetriedAfterTimeoutTest() {
+        tickPublisher = new TickPublisher(rabbitTemplate, tickPartitions, tickMessageConverter, new SimpleMeterRegistry(),
+                "order_exchange", 2, -1, 2);
+        tickPublisher.publish(ListingType.STOCK, "AAPL", quote(100));
+        tickPublisher.flush();
+        clearInvocations(rabbitTemplate);
+
+        tickPublisher.flush();
+
+        assertEquals(100D, ticks(sent(1).get(0).message).get(0).getQuote().getLast());
+    }
+
+    private List<Sent> sent(int count) {
+        ArgumentCaptor<String> routingKeys = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Message> messages = ArgumentCaptor.forClass(Message.class);
+        ArgumentCaptor<CorrelationData> correlations = ArgumentCaptor.forClass(CorrelationData.class);
+        verify(rabbitTemplate, times(count)).send(anyString(), routingKeys.capture(), messages.capture(), correlations.capture());
+
+        List<Sent> sent = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            sent.add(new Sent(routingKeys.getAllValues().get(i), messages.getAllValues().get(i), correlations.getAllValues().get(i)));
+        return sent;
+    }
+
+    // potrosac dobija pojedinacne tick-ove, kao kad kontejner raspakuje paket
+    private List<Tick> ticks(Message message) {
+        List<Tick> ticks = new ArrayList<>();
+        SimpleBatchingStrategy batchingStrategy = new SimpleBatchingStrategy(0, 0, 0);
+        if (batchingStrategy.canDebatch(message.getMessageProperties()))
+            batchingStrategy.deBatch(message, fragment -> ticks.add(tickMessageConverter.fromMessage(fragment)));
+        else
+            ticks.add(tickMessageConverter.fromMessage(message));
+        return ticks;
+    }
+
+    private static Quote quote(double price) {
+        return new Quote(price, price, price, 10, System.currentTimeMillis());
+    }
+
+    private static class Sent {
+
+        private final String routingKey;
+        private final Message message;
+        private final CorrelationData correlationData;
+
+        private Sent(String routingKey, Message message, CorrelationData correlationData) {
+            this.routingKey = routingKey;
+            this.message = message;
+            this.correlationData = correlationData;
+        }
+    }
+}
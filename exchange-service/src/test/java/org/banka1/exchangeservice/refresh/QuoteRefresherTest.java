@@ -0,0 +1,212 @@
+package org.banka1.exchangeservice.refresh;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QuoteRefresherTest {
+
+    private ExecutorService executor;
+    private SimpleMeterRegistry meterRegistry;
+    private QuoteRefresher quoteRefresher;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(3);
+        meterRegistry = new SimpleMeterRegistry();
+        quoteRefresher = new QuoteRefresher(executor, meterRegistry, Duration.ofSeconds(5), 0.0001);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void failureOfOneSymbolDoesNotAbortOthersTest() {
+        Price aapl = new Price("AAPL", 100);
+        Price fail = new Price("FAIL", 100);
+        Price msft = new Price("MSFT", 100);
+
+        RefreshResult<Price> result = refresh(List.of(aapl, fail, msft), 1, symbols -> {
+            if (symbols.contains("FAIL"))
+                throw new IOException("flask is down");
+            return quotes(symbols, 101);
+        });
+
+        assertEquals(List.of(aapl, msft), result.getUpdated());
+        assertEquals(1D, meterRegistry.get("market.refresh.symbols").tags("outcome", "failed").counter().count());
+    }
+
+    @Test
+    void changesWithinEpsilonAreSuppressedTest() {
+        Price same = new Price("SAME", 100);
+        Price tiny = new Price("TINY", 100);
+        Price moved = new Price("MOVED", 100);
+
+        RefreshResult<Price> result = refresh(List.of(same, tiny, moved), 3,
+                symbols -> Map.of("SAME", 100D, "TINY", 100.001, "MOVED", 100.1));
+
+        assertEquals(List.of(moved), result.getUpdated());
+        assertEquals(List.of(same, tiny), result.getUnchanged());
+        assertEquals(2D, meterRegistry.get("market.refresh.suppressed").counter().count());
+    }
+
+    @Test
+    void missingValueIsDifferentFromAnyValueTest() {
+        assertTrue(quoteRefresher.changed(new double[] { Double.NaN }, new double[] { 1 }));
+        assertFalse(quoteRefresher.changed(new double[] { Double.NaN }, new double[] { Double.NaN }));
+    }
+
+    @Test
+    void concurrencyIsBoundedByExecutorTest() {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        List<Price> prices = List.of(new Price("A", 1), new Price("B", 1), new Price("C", 1), new Price("D", 1),
+                new Price("E", 1), new Price("F", 1), new Price("G", 1));
+
+        RefreshResult<Price> result = refresh(prices, 1, symbols -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            active.decrementAndGet();
+            return quotes(symbols, 2);
+        });
+
+        assertEquals(7, result.getUpdated().size());
+        assertTrue(maxActive.get() <= 3);
+    }
+
+    @Test
+    void overlappingRunIsSkippedTest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<RefreshResult<Price>> first = caller.submit(() -> refresh(List.of(new Price("AAPL", 1)), 1, symbols -> {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return quotes(symbols, 2);
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            RefreshResult<Price> second = refresh(List.of(new Price("MSFT", 1)), 1, symbols -> quotes(symbols, 2));
+            release.countDown();
+
+            assertTrue(second.getUpdated().isEmpty());
+            assertEquals(1, first.get(5, TimeUnit.SECONDS).getUpdated().size());
+            assertEquals(1D, meterRegistry.get("market.refresh.skipped").counter().count());
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    void timedOutRunHoldsGuardUntilItsBatchesFinishTest() throws Exception {
+        quoteRefresher = new QuoteRefresher(executor, meterRegistry, Duration.ofMillis(100), 0.0001);
+        CountDownLatch release = new CountDownLatch(1);
+        Price slow = new Price("SLOW", 1);
+
+        RefreshResult<Price> first = refresh(List.of(slow), 1, symbols -> {
+            release.await(5, TimeUnit.SECONDS);
+            return quotes(symbols, 2);
+        });
+        assertTrue(first.getUpdated().isEmpty());
+        assertEquals(1D, meterRegistry.get("market.refresh.symbols").tags("outcome", "timed_out").counter().count());
+
+        // deo kome je isteklo vreme jos radi, pa se novo pokretanje preskace
+        assertTrue(refresh(List.of(new Price("MSFT", 1)), 1, symbols -> quotes(symbols, 2)).getUpdated().isEmpty());
+        assertEquals(1D, meterRegistry.get("market.refresh.skipped").counter().count());
+
+        release.countDown();
+        RefreshResult<Price> next = RefreshResult.empty();
+        for (int i = 0; i < 50 && next.getUpdated().isEmpty(); i++) {
+            Thread.sleep(20);
+            next = refresh(List.of(new Price("MSFT", 1)), 1, symbols -> quotes(symbols, 2));
+        }
+        assertEquals(1, next.getUpdated().size());
+        // kasni odgovor ne menja stavku pokretanja kome je isteklo vreme
+        assertEquals(1D, slow.value);
+    }
+
+    @Test
+    void waitingRunStartsAfterRunningOneTest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService caller = Executors.newFixedThreadPool(2);
+        try {
+            Future<RefreshResult<Price>> first = caller.submit(() -> refresh(List.of(new Price("AAPL", 1)), 1, symbols -> {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return quotes(symbols, 2);
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Future<RefreshResult<Price>> waiting = caller.submit(() -> quoteRefresher.refresh("stock", List.of(new Price("MSFT", 1)),
+                    price -> price.symbol, price -> new double[] { price.value }, 1, symbols -> quotes(symbols, 2),
+                    (price, quote) -> price.value = quote, true));
+            Thread.sleep(100);
+            assertFalse(waiting.isDone());
+
+            release.countDown();
+            assertEquals(1, first.get(5, TimeUnit.SECONDS).getUpdated().size());
+            assertEquals(1, waiting.get(5, TimeUnit.SECONDS).getUpdated().size());
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    void batchFetchIsCalledOncePerBatchTest() {
+        AtomicInteger fetches = new AtomicInteger();
+        List<Price> prices = List.of(new Price("AAPL", 1), new Price("MSFT", 1), new Price("FAIL", 1),
+                new Price("GONE", 1), new Price("TSLA", 1));
+
+        RefreshResult<Price> result = refresh(prices, 2, symbols -> {
+            fetches.incrementAndGet();
+            if (symbols.contains("FAIL"))
+                throw new IOException("flask is down");
+            return quotes(symbols.stream().filter(symbol -> !symbol.equals("GONE")).toList(), 2);
+        });
+
+        assertEquals(3, fetches.get());
+        assertEquals(List.of(prices.get(0), prices.get(1), prices.get(4)), result.getUpdated());
+        assertEquals(2D, meterRegistry.get("market.refresh.symbols").tags("outcome", "failed").counter().count());
+    }
+
+    private RefreshResult<Price> refresh(List<Price> prices, int batchSize, BatchFetch<Double> fetch) {
+        return quoteRefresher.refresh("stock", prices, price -> price.symbol, price -> new double[] { price.value },
+                batchSize, fetch, (price, quote) -> price.value = quote, false);
+    }
+
+    private static Map<String, Double> quotes(List<String> symbols, double value) {
+        return symbols.stream().collect(Collectors.toMap(symbol -> symbol, symbol -> value));
+    }
+
+    private static class Price {
+
+        private final String symbol;
+        private volatile double value;
+
+        private Price(String symbol, double value) {
+            this.symbol = symbol;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.banka1.exchangeservice.refresh;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QuoteRevalidatorTest {
+
+    private final List<Runnable> queued = new ArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private QuoteRevalidator quoteRevalidator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        quoteRevalidator = new QuoteRevalidator(queued::add, meterRegistry, Duration.ofMinutes(15));
+    }
+
+    @Test
+    void symbolIsQueuedOnceUntilRefreshFinishesTest() {
+        List<List<String>> refreshed = new ArrayList<>();
+
+        assertEquals(2, quoteRevalidator.revalidate("stock", List.of("AAPL", "MSFT"), symbol -> symbol, refreshed::add));
+        assertEquals(1, quoteRevalidator.revalidate("stock", List.of("AAPL", "TSLA"), symbol -> symbol, refreshed::add));
+        assertEquals(0, quoteRevalidator.revalidate("stock", List.of("MSFT"), symbol -> symbol, refreshed::add));
+        assertEquals(2, queued.size());
+
+        queued.forEach(Runnable::run);
+
+        assertEquals(List.of(List.of("AAPL", "MSFT"), List.of("TSLA")), refreshed);
+        assertEquals(2D, meterRegistry.get("market.revalidate.deduplicated").counter().count());
+        assertEquals(1, quoteRevalidator.revalidate("stock", List.of("AAPL"), symbol -> symbol, refreshed::add));
+    }
+
+    @Test
+    void failedRefreshReleasesSymbolsTest() {
+        quoteRevalidator.revalidate("forex", List.of("EUR/USD"), symbol -> symbol, symbols -> {
+            throw new IllegalStateException("flask is down");
+        });
+        queued.forEach(Runnable::run);
+
+        assertEquals(0D, meterRegistry.get("market.revalidate.pending").gauge().value());
+    }
+
+    @Test
+    void missingOrOldRefreshIsStaleTest() {
+        assertTrue(quoteRevalidator.isStale(null));
+        assertTrue(quoteRevalidator.isStale(LocalDateTime.now().minusMinutes(16)));
+        assertFalse(quoteRevalidator.isStale(LocalDateTime.now().minusMinutes(1)));
+    }
+}
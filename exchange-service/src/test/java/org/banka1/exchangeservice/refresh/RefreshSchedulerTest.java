@@ -0,0 +1,151 @@
+package org.banka1.exchangeservice.refresh;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.banka1.exchangeservice.calendar.ExchangeCalendar;
+import org.banka1.exchangeservice.domains.dtos.listing.RefreshCadenceDto;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.repositories.ForexRepository;
+import org.banka1.exchangeservice.repositories.OrderRepository;
+import org.banka1.exchangeservice.repositories.StockRepository;
+import org.banka1.exchangeservice.services.ForexService;
+import org.banka1.exchangeservice.services.StockService;
+import org.banka1.exchangeservice.stream.QuoteStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class RefreshSchedulerTest {
+
+    private static final long TICK = 5_000;
+
+    private StockService stockService;
+    private StockRepository stockRepository;
+    private OrderRepository orderRepository;
+    private QuoteStream quoteStream;
+    private RefreshPriorities refreshPriorities;
+    private ExchangeCalendar exchangeCalendar;
+    private RefreshScheduler refreshScheduler;
+    private final List<List<String>> refreshed = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        stockService = mock(StockService.class);
+        stockRepository = mock(StockRepository.class);
+        ForexRepository forexRepository = mock(ForexRepository.class);
+        orderRepository = mock(OrderRepository.class);
+        quoteStream = mock(QuoteStream.class);
+        refreshPriorities = new RefreshPriorities(Duration.ofMinutes(10), 0.5);
+        exchangeCalendar = mock(ExchangeCalendar.class);
+        refreshScheduler = new RefreshScheduler(stockService, mock(ForexService.class), stockRepository, forexRepository,
+                orderRepository, quoteStream, refreshPriorities, exchangeCalendar, new SimpleMeterRegistry(), Duration.ofSeconds(10),
+                Duration.ofSeconds(60), 5, 20, 0.01);
+
+        doAnswer(invocation -> refreshed.add(List.copyOf(invocation.getArgument(0)))).when(stockService).refreshStockData(any());
+        when(forexRepository.findAllSymbols()).thenReturn(List.of());
+        when(orderRepository.countOpenOrdersBySymbol(any())).thenReturn(List.of());
+        when(exchangeCalendar.isOpen(any(), any(), anyLong())).thenReturn(true);
+    }
+
+    @Test
+    void refreshesAreSpreadAcrossTheIntervalTest() {
+        List<String> symbols = IntStream.range(0, 120).mapToObj(i -> "S" + i).toList();
+        when(stockRepository.findAllSymbols()).thenReturn(symbols);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (long now = 0; now <= 60_000; now += TICK)
+            refreshScheduler.tick(1_000_000 + now);
+
+        refreshed.forEach(batch -> batch.forEach(symbol -> counts.merge(symbol, 1, Integer::sum)));
+        // svaki simbol jednom u intervalu, a nijedan tick ne osvezava vise od cetvrtine simbola
+        assertEquals(120, counts.size());
+        assertTrue(counts.values().stream().allMatch(count -> count == 1));
+        assertTrue(refreshed.size() >= 8);
+        assertTrue(refreshed.stream().allMatch(batch -> batch.size() <= 30));
+    }
+
+    @Test
+    void busySymbolsGetShorterIntervalsTest() {
+        when(stockRepository.findAllSymbols()).thenReturn(List.of("IDLE", "ORDERS", "VIEWED", "WATCHED"));
+        when(orderRepository.countOpenOrdersBySymbol(ListingType.STOCK)).thenReturn(List.of(openOrders("ORDERS", 5)));
+        IntStream.range(0, 10).forEach(i -> refreshPriorities.recordView(ListingType.STOCK, "VIEWED"));
+        when(quoteStream.subscribers(eq(ListingType.STOCK), eq("WATCHED"))).thenReturn(1);
+
+        refreshScheduler.tick(1_000_000);
+
+        Map<String, RefreshCadenceDto> cadences = new HashMap<>();
+        refreshScheduler.cadences().forEach(cadence -> cadences.put(cadence.getSymbol(), cadence));
+        assertEquals(60, cadences.get("IDLE").getIntervalSeconds());
+        assertEquals(10, cadences.get("ORDERS").getIntervalSeconds());
+        assertEquals(0.5, cadences.get("VIEWED").getPriority(), 0.001);
+        assertEquals(35, cadences.get("VIEWED").getIntervalSeconds());
+        assertEquals(10, cadences.get("WATCHED").getIntervalSeconds());
+        assertEquals("IDLE", refreshScheduler.cadences().get(3).getSymbol());
+    }
+
+    @Test
+    void volatileSymbolIsRefreshedMoreOftenAndRemovedSymbolIsDroppedTest() {
+        when(stockRepository.findAllSymbols()).thenReturn(List.of("CALM", "JUMPY"));
+        refreshPriorities.recordPrice(ListingType.STOCK, "JUMPY", 100);
+        refreshPriorities.recordPrice(ListingType.STOCK, "JUMPY", 104);
+
+        for (long now = 0; now < 120_000; now += TICK)
+            refreshScheduler.tick(1_000_000 + now);
+
+        long jumpy = refreshed.stream().filter(batch -> batch.contains("JUMPY")).count();
+        long calm = refreshed.stream().filter(batch -> batch.contains("CALM")).count();
+        assertTrue(jumpy >= 10);
+        assertTrue(calm <= 2);
+
+        when(stockRepository.findAllSymbols()).thenReturn(List.of("CALM"));
+        refreshScheduler.tick(1_200_000);
+        assertEquals(List.of("CALM"), refreshScheduler.cadences().stream().map(RefreshCadenceDto::getSymbol).toList());
+    }
+
+    @Test
+    void closedMarketIsSkippedAndCaughtUpOnceAtOpenTest() {
+        when(stockRepository.findAllSymbols()).thenReturn(List.of("AAPL"));
+        when(exchangeCalendar.isOpen(eq(ListingType.STOCK), eq("AAPL"), anyLong())).thenReturn(false);
+
+        for (long now = 0; now < 300_000; now += TICK)
+            refreshScheduler.tick(1_000_000 + now);
+        assertTrue(refreshed.isEmpty());
+        assertFalse(refreshScheduler.cadences().get(0).isMarketOpen());
+
+        when(exchangeCalendar.isOpen(eq(ListingType.STOCK), eq("AAPL"), anyLong())).thenReturn(true);
+        refreshScheduler.tick(1_300_000);
+        refreshScheduler.tick(1_305_000);
+        refreshScheduler.tick(1_310_000);
+        assertEquals(List.of(List.of("AAPL")), refreshed);
+
+        refreshScheduler.tick(1_360_000);
+        assertEquals(2, refreshed.size());
+    }
+
+    private static OrderRepository.OpenOrderCount openOrders(String symbol, long count) {
+        return new OrderRepository.OpenOrderCount() {
+            @Override
+            public String getSymbol() {
+                return symbol;
+            }
+
+            @Override
+            public long getCount() {
+                return count;
+            }
+        };
+    }
+}
@@ -6,6 +6,8 @@ import org.banka1.exchangeservice.domains.entities.Option;
 import org.banka1.exchangeservice.domains.entities.OptionType;
 import org.banka1.exchangeservice.domains.entities.Stock;
 import org.banka1.exchangeservice.domains.mappers.OptionMapper;
+import org.banka1.exchangeservice.engine.QuoteSnapshot;
+import org.banka1.exchangeservice.repositories.ForexRepository;
 import org.banka1.exchangeservice.repositories.OptionRepository;
 import org.banka1.exchangeservice.repositories.StockRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -29,7 +31,7 @@ public class OptionServiceTest {
     public void setUp(){
         stockRepository = mock(StockRepository.class);
         optionRepository = mock(OptionRepository.class);
-        optionService = new OptionService(optionRepository, stockRepository);
+        optionService = new OptionService(optionRepository, stockRepository, new QuoteSnapshot(stockRepository, mock(ForexRepository.class)));
     }
 
     @Test
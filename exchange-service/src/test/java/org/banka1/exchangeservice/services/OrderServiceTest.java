@@ -1,24 +1,58 @@
 package org.banka1.exchangeservice.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.banka1.exchangeservice.calendar.ExchangeCalendar;
+import org.banka1.exchangeservice.clients.UserServiceClient;
+import org.banka1.exchangeservice.domains.dtos.order.OrderRequest;
+import org.banka1.exchangeservice.domains.dtos.order.OrderStatusDto;
+import org.banka1.exchangeservice.domains.dtos.user.BankAccountDto;
+import org.banka1.exchangeservice.domains.dtos.user.FillSettlementDto;
+import org.banka1.exchangeservice.domains.dtos.user.FillSettlementResultDto;
 import org.banka1.exchangeservice.domains.dtos.user.UserDto;
+import org.banka1.exchangeservice.domains.entities.ListingType;
 import org.banka1.exchangeservice.domains.entities.Option;
 import org.banka1.exchangeservice.domains.entities.OptionBet;
+import org.banka1.exchangeservice.domains.entities.Order;
+import org.banka1.exchangeservice.domains.entities.OrderAction;
+import org.banka1.exchangeservice.domains.entities.OrderStatus;
+import org.banka1.exchangeservice.domains.entities.OrderType;
+import org.banka1.exchangeservice.domains.entities.Stock;
+import org.banka1.exchangeservice.domains.exceptions.ForbiddenException;
+import org.banka1.exchangeservice.domains.exceptions.InternalServerError;
+import org.banka1.exchangeservice.engine.MatchingEngine;
+import org.banka1.exchangeservice.engine.Quote;
+import org.banka1.exchangeservice.engine.QuoteSnapshot;
+import org.banka1.exchangeservice.engine.SymbolLanes;
+import org.banka1.exchangeservice.journal.OrderEventType;
+import org.banka1.exchangeservice.journal.OrderStateWriter;
 import org.banka1.exchangeservice.repositories.ForexRepository;
 import org.banka1.exchangeservice.repositories.OptionBetRepository;
 import org.banka1.exchangeservice.repositories.OptionRepository;
 import org.banka1.exchangeservice.repositories.OrderRepository;
 import org.banka1.exchangeservice.repositories.StockRepository;
 import org.banka1.exchangeservice.utils.JwtUtil;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.data.domain.Sort;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -35,6 +69,11 @@ public class OrderServiceTest {
     private OrderService orderService;
     private ForexService forexService;
     private StockService stockService;
+    private QuoteSnapshot quoteSnapshot;
+    private SymbolLanes symbolLanes;
+    private OrderStateWriter orderStateWriter;
+    private UserServiceClient userServiceClient;
+    private ExchangeCalendar exchangeCalendar;
 
     @BeforeEach
     void setUp() {
@@ -45,8 +84,20 @@ public class OrderServiceTest {
         this.forexRepository = mock(ForexRepository.class);
         this.forexService = mock(ForexService.class);
         this.stockService = mock(StockService.class);
-        this.orderService = new OrderService(orderRepository, forexRepository, stockRepository, optionBetRepository,
-                optionRepository, forexService, stockService, new JwtUtil());
+        this.quoteSnapshot = new QuoteSnapshot(stockRepository, forexRepository);
+        this.symbolLanes = new SymbolLanes(1, 100, new SimpleMeterRegistry());
+        this.orderStateWriter = mock(OrderStateWriter.class);
+        this.userServiceClient = mock(UserServiceClient.class);
+        this.exchangeCalendar = mock(ExchangeCalendar.class);
+        this.orderService = new OrderService(orderRepository, optionBetRepository,
+                optionRepository, forexService, stockService, new MatchingEngine(orderRepository), quoteSnapshot,
+                symbolLanes, orderStateWriter, Runnable::run, userServiceClient, exchangeCalendar, mock(JwtUtil.class));
+        when(userServiceClient.settleFills(any(), any())).thenAnswer(invocation -> settleAll(invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        symbolLanes.shutdown();
     }
 
    @Test
@@ -67,4 +118,247 @@ public class OrderServiceTest {
        verifyNoMoreInteractions(optionRepository);
     }
 
+    @Test
+    void getOrderStatusTest() {
+        Order order = Order.builder()
+                .id(1L)
+                .userId(5L)
+                .orderStatus(OrderStatus.PENDING)
+                .remainingQuantity(10)
+                .done(false)
+                .build();
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+
+        OrderStatusDto result = orderService.getOrderStatus(1L, 5L);
+
+        assertEquals(1L, result.getId());
+        assertEquals(OrderStatus.PENDING, result.getOrderStatus());
+        assertEquals(10, result.getRemainingQuantity());
+    }
+
+    @Test
+    void approvedOrderIsExecutedWhenBookIsLoadedFromDatabaseTest() {
+        Stock stock = new Stock();
+        stock.setSymbol("AAPL");
+        stock.setPrice(100D);
+        stock.setVolume(1000L);
+        quoteSnapshot.update(stock);
+        when(exchangeCalendar.isOpen(any(), any())).thenReturn(true);
+        when(userServiceClient.getMyProfile("token")).thenReturn(user());
+
+        // baza vraca nalog tek kada je upisan kao APPROVED, kao kada write-behind stigne pre ucitavanja knjige
+        AtomicBoolean approved = new AtomicBoolean();
+        doAnswer(invocation -> {
+            invocation.<Order>getArgument(0).setId(1L);
+            return null;
+        }).when(orderStateWriter).place(any());
+        doAnswer(invocation -> {
+            approved.set(approved.get() || invocation.getArgument(0) == OrderEventType.APPROVED);
+            return null;
+        }).when(orderStateWriter).record(any(), any());
+        when(orderRepository.findAllByListingTypeAndListingSymbolAndDone(ListingType.STOCK, "AAPL", false))
+                .thenAnswer(invocation -> approved.get() ? List.of(databaseCopy()) : List.of());
+
+        orderService.makeOrder(new OrderRequest("AAPL", ListingType.STOCK, 10, OrderAction.BUY, OrderType.MARKET_ORDER,
+                null, null, false, false), 5L, "user@banka1.rs", "token");
+        symbolLanes.execute(ListingType.STOCK, "AAPL", () -> { }).join();
+
+        ArgumentCaptor<Order> filled = ArgumentCaptor.forClass(Order.class);
+        verify(orderStateWriter).recordFill(filled.capture());
+        assertEquals(0, filled.getValue().getRemainingQuantity());
+        assertTrue(filled.getValue().getDone());
+    }
+
+    @Test
+    void failedSettlementLeavesOrderInBookUntilNextQuoteTest() {
+        Stock stock = new Stock();
+        stock.setSymbol("AAPL");
+        stock.setPrice(100D);
+        stock.setVolume(1000L);
+        quoteSnapshot.update(stock);
+        when(exchangeCalendar.isOpen(any(), any())).thenReturn(true);
+        when(userServiceClient.getMyProfile("token")).thenReturn(user());
+        doAnswer(invocation -> {
+            invocation.<Order>getArgument(0).setId(1L);
+            return null;
+        }).when(orderStateWriter).place(any());
+        doThrow(new InternalServerError("user service unavailable"))
+                .doAnswer(invocation -> settleAll(invocation.getArgument(0)))
+                .when(userServiceClient).settleFills(any(), any());
+
+        orderService.makeOrder(new OrderRequest("AAPL", ListingType.STOCK, 10, OrderAction.BUY, OrderType.MARKET_ORDER,
+                null, null, false, false), 5L, "user@banka1.rs", "token");
+        symbolLanes.execute(ListingType.STOCK, "AAPL", () -> { }).join();
+
+        verify(orderStateWriter, never()).recordFill(any());
+        verify(orderStateWriter, never()).record(eq(OrderEventType.REJECTED), any());
+
+        orderService.receiveQuote(ListingType.STOCK, "AAPL", new Quote(100D, 100D, 100D, 1000L, System.currentTimeMillis()));
+        symbolLanes.execute(ListingType.STOCK, "AAPL", () -> { }).join();
+
+        ArgumentCaptor<Order> filled = ArgumentCaptor.forClass(Order.class);
+        verify(orderStateWriter).recordFill(filled.capture());
+        assertEquals(0, filled.getValue().getRemainingQuantity());
+        assertTrue(filled.getValue().getDone());
+
+        // ponovljeno poravnanje istog fill-a nosi isti id, pa ga user servis ne knjizi dvaput
+        ArgumentCaptor<List<FillSettlementDto>> settlements = ArgumentCaptor.forClass(List.class);
+        verify(userServiceClient, times(2)).settleFills(settlements.capture(), any());
+        assertEquals("1:0", settlements.getAllValues().get(0).get(0).getSettlementId());
+        assertEquals("1:0", settlements.getAllValues().get(1).get(0).getSettlementId());
+    }
+
+    @Test
+    void fillRejectedByUserServiceStaysInBookTest() {
+        Stock stock = new Stock();
+        stock.setSymbol("AAPL");
+        stock.setPrice(100D);
+        stock.setVolume(1000L);
+        quoteSnapshot.update(stock);
+        when(exchangeCalendar.isOpen(any(), any())).thenReturn(true);
+        when(userServiceClient.getMyProfile("token")).thenReturn(user());
+        doAnswer(invocation -> {
+            invocation.<Order>getArgument(0).setId(1L);
+            return null;
+        }).when(orderStateWriter).place(any());
+        doReturn(List.of(new FillSettlementResultDto("1:0", false, 0))).when(userServiceClient).settleFills(any(), any());
+
+        orderService.makeOrder(new OrderRequest("AAPL", ListingType.STOCK, 10, OrderAction.BUY, OrderType.MARKET_ORDER,
+                null, null, false, false), 5L, "user@banka1.rs", "token");
+        symbolLanes.execute(ListingType.STOCK, "AAPL", () -> { }).join();
+
+        verify(userServiceClient).settleFills(any(), any());
+        verify(orderStateWriter, never()).recordFill(any());
+    }
+
+    @Test
+    void previouslySettledQuantityIsAppliedTest() {
+        Stock stock = new Stock();
+        stock.setSymbol("AAPL");
+        stock.setPrice(100D);
+        stock.setVolume(1000L);
+        quoteSnapshot.update(stock);
+        when(exchangeCalendar.isOpen(any(), any())).thenReturn(true);
+        when(userServiceClient.getMyProfile("token")).thenReturn(user());
+        doAnswer(invocation -> {
+            invocation.<Order>getArgument(0).setId(1L);
+            return null;
+        }).when(orderStateWriter).place(any());
+        // user servis je ovaj fill vec poravnao ranije, sa kolicinom 4
+        doReturn(List.of(new FillSettlementResultDto("1:0", true, 4))).when(userServiceClient).settleFills(any(), any());
+
+        orderService.makeOrder(new OrderRequest("AAPL", ListingType.STOCK, 10, OrderAction.BUY, OrderType.MARKET_ORDER,
+                null, null, false, false), 5L, "user@banka1.rs", "token");
+        symbolLanes.execute(ListingType.STOCK, "AAPL", () -> { }).join();
+
+        ArgumentCaptor<Order> filled = ArgumentCaptor.forClass(Order.class);
+        verify(orderStateWriter).recordFill(filled.capture());
+        assertEquals(6, filled.getValue().getRemainingQuantity());
+    }
+
+    @Test
+    void orderIsNotRejectedWhenFailureComesAfterExecutionTest() {
+        Stock stock = new Stock();
+        stock.setSymbol("AAPL");
+        stock.setPrice(100D);
+        stock.setVolume(1000L);
+        quoteSnapshot.update(stock);
+        when(exchangeCalendar.isOpen(any(), any())).thenReturn(true);
+        when(userServiceClient.getMyProfile("token")).thenReturn(user());
+        doAnswer(invocation -> {
+            invocation.<Order>getArgument(0).setId(1L);
+            return null;
+        }).when(orderStateWriter).place(any());
+        doThrow(new IllegalStateException("journal unavailable")).when(orderStateWriter).recordFill(any());
+
+        orderService.makeOrder(new OrderRequest("AAPL", ListingType.STOCK, 10, OrderAction.BUY, OrderType.MARKET_ORDER,
+                null, null, false, false), 5L, "user@banka1.rs", "token");
+        symbolLanes.execute(ListingType.STOCK, "AAPL", () -> { }).join();
+
+        verify(orderStateWriter).record(eq(OrderEventType.APPROVED), any());
+        verify(orderStateWriter, never()).record(eq(OrderEventType.REJECTED), any());
+    }
+
+    @Test
+    void orderIsRejectedWhenFailureComesBeforeExecutionTest() {
+        when(userServiceClient.getMyProfile("token")).thenThrow(new InternalServerError("user service unavailable"));
+        Stock stock = new Stock();
+        stock.setSymbol("AAPL");
+        stock.setPrice(100D);
+        quoteSnapshot.update(stock);
+
+        orderService.makeOrder(new OrderRequest("AAPL", ListingType.STOCK, 10, OrderAction.BUY, OrderType.MARKET_ORDER,
+                null, null, false, false), 5L, "user@banka1.rs", "token");
+
+        verify(orderStateWriter).record(eq(OrderEventType.REJECTED), any());
+    }
+
+    @Test
+    void marketOrderWaitsInBookWhileMarketIsClosedTest() {
+        Stock stock = new Stock();
+        stock.setSymbol("AAPL");
+        stock.setPrice(100D);
+        stock.setVolume(1000L);
+        quoteSnapshot.update(stock);
+        when(exchangeCalendar.isOpen(any(), any())).thenReturn(false);
+        when(userServiceClient.getMyProfile("token")).thenReturn(user());
+        doAnswer(invocation -> {
+            invocation.<Order>getArgument(0).setId(1L);
+            return null;
+        }).when(orderStateWriter).place(any());
+
+        orderService.makeOrder(new OrderRequest("AAPL", ListingType.STOCK, 10, OrderAction.BUY, OrderType.MARKET_ORDER,
+                null, null, false, false), 5L, "user@banka1.rs", "token");
+        symbolLanes.execute(ListingType.STOCK, "AAPL", () -> { }).join();
+
+        verify(userServiceClient, never()).settleFills(any(), any());
+        verify(orderStateWriter, never()).recordFill(any());
+        verify(orderStateWriter, never()).record(eq(OrderEventType.REJECTED), any());
+
+        when(exchangeCalendar.isOpen(any(), any())).thenReturn(true);
+        orderService.receiveQuote(ListingType.STOCK, "AAPL", new Quote(100D, 100D, 100D, 1000L, System.currentTimeMillis()));
+        symbolLanes.execute(ListingType.STOCK, "AAPL", () -> { }).join();
+
+        ArgumentCaptor<Order> filled = ArgumentCaptor.forClass(Order.class);
+        verify(orderStateWriter).recordFill(filled.capture());
+        assertTrue(filled.getValue().getDone());
+    }
+
+    @Test
+    void getOrderStatusOfAnotherUserTest() {
+        Order order = Order.builder().id(1L).userId(5L).build();
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+
+        assertThrows(ForbiddenException.class, () -> orderService.getOrderStatus(1L, 6L));
+    }
+
+    private List<FillSettlementResultDto> settleAll(List<FillSettlementDto> settlements) {
+        return settlements.stream()
+                .map(settlement -> new FillSettlementResultDto(settlement.getSettlementId(), true, settlement.getQuantityDelta()))
+                .collect(Collectors.toList());
+    }
+
+    private UserDto user() {
+        UserDto userDto = new UserDto();
+        userDto.setId(5L);
+        userDto.setDailyLimit(1_000_000D);
+        userDto.setBankAccount(new BankAccountDto(1L, "USD", 1_000_000D, 1_000_000D));
+        return userDto;
+    }
+
+    private Order databaseCopy() {
+        return Order.builder()
+                .id(1L)
+                .userId(5L)
+                .listingType(ListingType.STOCK)
+                .listingSymbol("AAPL")
+                .orderAction(OrderAction.BUY)
+                .orderType(OrderType.MARKET_ORDER)
+                .orderStatus(OrderStatus.APPROVED)
+                .quantity(10)
+                .remainingQuantity(10)
+                .done(false)
+                .build();
+    }
+
 }
@@ -0,0 +1,110 @@
+package org.banka1.exchangeservice.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.banka1.exchangeservice.domains.entities.ListingType;
+import org.banka1.exchangeservice.domains.entities.Stock;
+import org.banka1.exchangeservice.engine.Quote;
+import org.banka1.exchangeservice.engine.QuoteSnapshot;
+import org.banka1.exchangeservice.repositories.ForexRepository;
+import org.banka1.exchangeservice.repositories.StockRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class QuoteStreamTest {
+
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private QuoteSnapshot quoteSnapshot;
+    private QuoteStream quoteStream;
+    private QuoteSubscriber subscriber;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        quoteSnapshot = new QuoteSnapshot(mock(StockRepository.class), mock(ForexRepository.class));
+        List.of("AAPL", "MSFT", "TSLA").forEach(symbol -> quoteSnapshot.update(stock(symbol, 100)));
+
+        // zadaci slanja se izvrsavaju tek kada test to trazi, kao kod klijenta koji sporo prima poruke
+        quoteStream = new QuoteStream(quoteSnapshot, new ObjectMapper(), tasks::add, meterRegistry, 2);
+
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("session-1");
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> sent.add(((TextMessage) invocation.getArgument(0)).getPayload()))
+                .when(session).sendMessage(any());
+        subscriber = quoteStream.connect(session);
+    }
+
+    @Test
+    void slowSubscriberReceivesOnlyLatestQuoteTest() {
+        quoteStream.subscribe(subscriber, ListingType.STOCK, List.of("AAPL"));
+        for (int price = 101; price <= 110; price++)
+            quoteStream.publish(ListingType.STOCK, "AAPL", quote(price));
+
+        assertEquals(1, tasks.size());
+        runTasks();
+
+        assertEquals(1, sent.size());
+        assertTrue(sent.get(0).contains("\"last\":110.0"));
+        assertEquals(10D, meterRegistry.counter("market.stream.conflated").count());
+    }
+
+    @Test
+    void subscriptionsAreCappedPerConnectionTest() {
+        List<String> accepted = quoteStream.subscribe(subscriber, ListingType.STOCK, List.of("AAPL", "UNKNOWN", "MSFT", "TSLA"));
+        runTasks();
+
+        assertEquals(List.of("AAPL", "MSFT"), accepted);
+        // trenutne kotacije prihvacenih simbola stizu odmah po pretplati
+        assertEquals(2, sent.size());
+        assertEquals(1D, meterRegistry.counter("market.stream.rejected", "reason", "limit").count());
+        assertEquals(1D, meterRegistry.counter("market.stream.rejected", "reason", "unknown").count());
+    }
+
+    @Test
+    void unsubscribedAndDisconnectedSymbolsAreNotSentTest() {
+        quoteStream.subscribe(subscriber, ListingType.STOCK, List.of("AAPL", "MSFT"));
+        runTasks();
+        sent.clear();
+
+        quoteStream.unsubscribe(subscriber, ListingType.STOCK, List.of("AAPL"));
+        quoteStream.publish(ListingType.STOCK, "AAPL", quote(120));
+        quoteStream.publish(ListingType.STOCK, "MSFT", quote(130));
+        runTasks();
+        assertEquals(1, sent.size());
+        assertTrue(sent.get(0).contains("\"symbol\":\"MSFT\""));
+
+        quoteStream.disconnect(subscriber);
+        quoteStream.publish(ListingType.STOCK, "MSFT", quote(140));
+        assertTrue(tasks.isEmpty());
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty())
+            tasks.remove(0).run();
+    }
+
+    private static Quote quote(double price) {
+        return new Quote(price, price, price, 10, 0);
+    }
+
+    private static Stock stock(String symbol, double price) {
+        Stock stock = new Stock();
+        stock.setSymbol(symbol);
+        stock.setPrice(price);
+        return stock;
+    }
+}
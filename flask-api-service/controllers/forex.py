@@ -28,6 +28,34 @@ def get_exchange_rate():
         return bad_request()
 
 
+@forex_controller.route('/exchange/batch')
+def get_exchange_rates():
+    request_args = request.args
+    pairs = request_args.get("pairs")
+
+    if pairs is None:
+        return bad_request()
+
+    rates = []
+    for pair in filter(None, pairs.split(',')):
+        currencies = pair.split('/')
+        if len(currencies) != 2:
+            return bad_request()
+
+        try:
+            rates.append(fix_exchange_data(get_alpha_vantage_rate(currencies[0], currencies[1])))
+        except (KeyError, ValueError):
+            print("skipping " + pair + "...")
+
+    response = current_app.response_class(
+        response=json.dumps(rates),
+        status=200,
+        mimetype='application/json'
+    )
+
+    return response
+
+
 @forex_controller.route('/time-series')
 def get_time_series():
     request_args = request.args
@@ -52,6 +80,10 @@ def get_time_series():
             print("getting from cache...")
             response_data = cache.cache.get(cache_key)
 
+        since = request_args.get("since")
+        if since is not None:
+            response_data = filter_since(response_data, since)
+
         response = current_app.response_class(
             response=json.dumps(response_data),
             status=200,
@@ -87,6 +119,10 @@ def get_time_series_intraday():
             print("getting from cache...")
             response_data = cache.cache.get(cache_key)
 
+        since = request_args.get("since")
+        if since is not None:
+            response_data = filter_since(response_data, since)
+
         response = current_app.response_class(
             response=json.dumps(response_data),
             status=200,
@@ -174,6 +210,14 @@ def fix_exchange_data(data_to_fix):
     return fixed_data
 
 
+def filter_since(response_data, since):
+    # datumi su u ISO formatu, pa poredjenje stringova daje barove od since na dalje; bar na since se vraca
+    # ponovo jer je mozda bio nezavrsen kada je poslednji put procitan
+    filtered_data = dict(response_data)
+    filtered_data["time_series"] = [ts for ts in response_data["time_series"] if ts["date"] >= since]
+    return filtered_data
+
+
 def bad_request():
     response = current_app.response_class(
         response=json.dumps({
@@ -30,6 +30,10 @@ def get_time_series():
             print("getting from cache...")
             response_data = cache.cache.get(cache_key)
 
+        since = request_args.get("since")
+        if since is not None:
+            response_data = filter_since(response_data, since)
+
         response = current_app.response_class(
             response=json.dumps(response_data),
             status=200,
@@ -64,6 +68,10 @@ def get_time_series_intraday():
             print("getting from cache...")
             response_data = cache.cache.get(cache_key)
 
+        since = request_args.get("since")
+        if since is not None:
+            response_data = filter_since(response_data, since)
+
         response = current_app.response_class(
             response=json.dumps(response_data),
             status=200,
@@ -75,6 +83,43 @@ def get_time_series_intraday():
         return bad_request()
 
 
+@stocks_controller.route('/quotes')
+def get_quotes():
+    request_args = request.args
+    symbols = request_args.get("symbols")
+
+    if symbols is None:
+        return bad_request()
+
+    # za svaki simbol se vracaju samo dva poslednja dana, dovoljno za cenu i promenu cene
+    quotes = []
+    for symbol in filter(None, symbols.split(',')):
+        cache_key = symbol + "TIME_SERIES_DAILY"
+        response_data = cache.cache.get(cache_key)
+
+        if response_data is None:
+            try:
+                response_data = fix_data(get_alpha_vantage(symbol, "TIME_SERIES_DAILY"))
+            except (KeyError, ValueError):
+                print("skipping " + symbol + "...")
+                continue
+            cache.cache.set(cache_key, response_data)
+
+        quotes.append({
+            "symbol": response_data["symbol"],
+            "last_refreshed": response_data["last_refreshed"],
+            "time_series": response_data["time_series"][:2]
+        })
+
+    response = current_app.response_class(
+        response=json.dumps(quotes),
+        status=200,
+        mimetype='application/json'
+    )
+
+    return response
+
+
 def get_alpha_vantage(symbol, ts_function):
     api_key = os.getenv('API_KEY')
 
@@ -122,6 +167,14 @@ def fix_data(data_to_fix):
     return fixed_data
 
 
+def filter_since(response_data, since):
+    # datumi su u ISO formatu, pa poredjenje stringova daje barove od since na dalje; bar na since se vraca
+    # ponovo jer je mozda bio nezavrsen kada je poslednji put procitan
+    filtered_data = dict(response_data)
+    filtered_data["time_series"] = [ts for ts in response_data["time_series"] if ts["date"] >= since]
+    return filtered_data
+
+
 def bad_request():
     response = current_app.response_class(
         response=json.dumps({
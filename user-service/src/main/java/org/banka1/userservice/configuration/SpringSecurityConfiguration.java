@@ -1,6 +1,7 @@
 package org.banka1.userservice.configuration;
 
 import lombok.AllArgsConstructor;
+import org.banka1.userservice.domains.entities.User;
 import org.banka1.userservice.filters.JwtFilter;
 import org.banka1.userservice.services.UserService;
 import org.springframework.context.annotation.Bean;
@@ -40,6 +41,9 @@ public class SpringSecurityConfiguration extends WebSecurityConfigurerAdapter {
                 .antMatchers("/api/users/forgot-password/**").permitAll()
                 .antMatchers("/swagger-ui/**").permitAll()
                 .antMatchers("/v3/**").permitAll()
+                // poravnanje i citanje pozicija su servisni pozivi iz exchange servisa i traze admin token
+                .antMatchers("/api/user-listings/settle", "/api/user-listings/position", "/api/user-listings/positions")
+                .hasAuthority(User.USER_ADMIN)
                 .antMatchers("/api/user-listings/**").permitAll()
                 .anyRequest().authenticated()
                 .and().sessionManagement()
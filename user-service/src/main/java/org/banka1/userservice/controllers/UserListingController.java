@@ -1,11 +1,18 @@
 package org.banka1.userservice.controllers;
 
 import lombok.AllArgsConstructor;
+import org.banka1.userservice.domains.dtos.user.listing.FillSettlementDto;
 import org.banka1.userservice.domains.dtos.user.listing.UserListingCreateDto;
+import org.banka1.userservice.domains.dtos.user.listing.UserListingKeyDto;
+import org.banka1.userservice.domains.entities.ListingType;
+import org.banka1.userservice.services.FillSettlementService;
 import org.banka1.userservice.services.UserListingService;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping(path = "/api/user-listings")
 @AllArgsConstructor
@@ -13,12 +20,25 @@ import org.springframework.web.bind.annotation.*;
 public class UserListingController {
 
     private final UserListingService userListingService;
+    private final FillSettlementService fillSettlementService;
 
     @GetMapping
     public ResponseEntity<?> getListingByUser(@RequestParam Long userId) {
         return ResponseEntity.ok(userListingService.getListingsByUser(userId));
     }
 
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/position")
+    public ResponseEntity<?> getPosition(@RequestParam Long userId, @RequestParam ListingType listingType, @RequestParam String symbol) {
+        return ResponseEntity.ok(userListingService.getPosition(userId, listingType, symbol));
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/positions")
+    public ResponseEntity<?> getPositions(@RequestBody List<UserListingKeyDto> keys) {
+        return ResponseEntity.ok(userListingService.getPositions(keys));
+    }
+
     @PostMapping("/create")
     public ResponseEntity<?> createUserListing(@RequestParam Long userId, @RequestBody UserListingCreateDto userListingCreateDto) {
         return ResponseEntity.ok(userListingService.createUserListing(userId, userListingCreateDto));
@@ -29,4 +49,10 @@ public class UserListingController {
         return ResponseEntity.ok(userListingService.updateUserListing(id, newQuantity));
     }
 
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/settle")
+    public ResponseEntity<?> settleFills(@RequestBody List<FillSettlementDto> fills) {
+        return ResponseEntity.ok(fillSettlementService.settleFills(fills));
+    }
+
 }
@@ -0,0 +1,21 @@
+package org.banka1.userservice.domains.dtos.user.listing;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.banka1.userservice.domains.entities.ListingType;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FillSettlementDto {
+
+    // id naloga i kolicina izvrsena pre ovog fill-a; isti fill uvek dobija isti id
+    private String settlementId;
+    private Long userId;
+    private ListingType listingType;
+    private String symbol;
+    private int quantityDelta;
+    private double cashDelta;
+
+}
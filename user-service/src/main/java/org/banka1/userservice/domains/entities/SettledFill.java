@@ -0,0 +1,27 @@
+package org.banka1.userservice.domains.entities;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Poravnati fill; kljuc je id poravnanja koji salje exchange servis, pa se ponovljeno poravnanje preskace.
+ */
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Table(name = "settled_fills")
+public class SettledFill {
+
+    @Id
+    private String settlementId;
+
+    private Long userId;
+    private int quantityDelta;
+    private double cashDelta;
+    private Date settledAt;
+}
@@ -12,7 +12,8 @@ import javax.persistence.*;
 @Getter
 @Setter
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
-@Table(name = "user_listings")
+@Table(name = "user_listings",
+        uniqueConstraints = { @UniqueConstraint(name = "user_listing_position_unique", columnNames = { "user_id", "listingType", "symbol" }) })
 public class UserListing {
 
     @Id
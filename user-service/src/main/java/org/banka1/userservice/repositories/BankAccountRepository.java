@@ -2,9 +2,17 @@ package org.banka1.userservice.repositories;
 
 import org.banka1.userservice.domains.entities.BankAccount;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface BankAccountRepository extends JpaRepository<BankAccount, Long> {
 
+    @Modifying
+    @Query("update BankAccount ba set ba.accountBalance = ba.accountBalance + :cashDelta " +
+            "where ba.id = (select u.bankAccount.id from User u where u.id = :userId)")
+    int addBalanceForUser(@Param("userId") Long userId, @Param("cashDelta") double cashDelta);
+
 }
@@ -0,0 +1,9 @@
+package org.banka1.userservice.repositories;
+
+import org.banka1.userservice.domains.entities.SettledFill;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SettledFillRepository extends JpaRepository<SettledFill, String> {
+}
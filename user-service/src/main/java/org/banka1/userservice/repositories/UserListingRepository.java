@@ -1,14 +1,65 @@
 package org.banka1.userservice.repositories;
 
+import org.banka1.userservice.domains.dtos.user.listing.UserListingKeyDto;
+import org.banka1.userservice.domains.dtos.user.listing.UserListingPositionDto;
+import org.banka1.userservice.domains.entities.ListingType;
 import org.banka1.userservice.domains.entities.UserListing;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Repository
 public interface UserListingRepository extends JpaRepository<UserListing, Long> {
 
     List<UserListing> findByUser_Id(Long id);
 
+    @Query("select new org.banka1.userservice.domains.dtos.user.listing.UserListingPositionDto(ul.user.id, ul.id, ul.listingType, ul.symbol, ul.quantity) " +
+            "from UserListing ul where ul.user.id = :userId and ul.listingType = :listingType and ul.symbol = :symbol")
+    Optional<UserListingPositionDto> findPosition(@Param("userId") Long userId, @Param("listingType") ListingType listingType,
+                                                  @Param("symbol") String symbol);
+
+    /**
+     * Pozicije za tacno date kljuceve (korisnik, vrsta, simbol); kljucevi bez pozicije se preskacu.
+     */
+    default List<UserListingPositionDto> findPositions(Collection<UserListingKeyDto> keys) {
+        if (keys.isEmpty())
+            return List.of();
+
+        Set<UserListingKeyDto> requested = new HashSet<>(keys);
+        Set<Long> userIds = new HashSet<>();
+        Set<ListingType> listingTypes = new HashSet<>();
+        Set<String> symbols = new HashSet<>();
+        keys.forEach(key -> {
+            userIds.add(key.getUserId());
+            listingTypes.add(key.getListingType());
+            symbols.add(key.getSymbol());
+        });
+
+        // upit po kolonama vraca nadskup (sve kombinacije), pa ostaju samo trazeni kljucevi
+        return findPositionCandidates(userIds, listingTypes, symbols).stream()
+                .filter(position -> requested.contains(new UserListingKeyDto(position.getUserId(), position.getListingType(), position.getSymbol())))
+                .collect(Collectors.toList());
+    }
+
+    @Query("select new org.banka1.userservice.domains.dtos.user.listing.UserListingPositionDto(ul.user.id, ul.id, ul.listingType, ul.symbol, ul.quantity) " +
+            "from UserListing ul where ul.user.id in :userIds and ul.listingType in :listingTypes and ul.symbol in :symbols")
+    List<UserListingPositionDto> findPositionCandidates(@Param("userIds") Collection<Long> userIds,
+                                                        @Param("listingTypes") Collection<ListingType> listingTypes,
+                                                        @Param("symbols") Collection<String> symbols);
+
+    @Modifying
+    @Query("update UserListing ul set ul.quantity = ul.quantity + :quantityDelta " +
+            "where ul.user.id = :userId and ul.listingType = :listingType and ul.symbol = :symbol")
+    int addQuantity(@Param("userId") Long userId, @Param("listingType") ListingType listingType,
+                    @Param("symbol") String symbol, @Param("quantityDelta") int quantityDelta);
+
 }
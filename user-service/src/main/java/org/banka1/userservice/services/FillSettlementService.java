@@ -0,0 +1,43 @@
+package org.banka1.userservice.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.banka1.userservice.domains.dtos.user.listing.FillSettlementDto;
+import org.banka1.userservice.domains.dtos.user.listing.FillSettlementResultDto;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class FillSettlementService {
+
+    private final UserListingService userListingService;
+
+    public FillSettlementService(UserListingService userListingService) {
+        this.userListingService = userListingService;
+    }
+
+    /**
+     * Svaki korisnik se poravnava u svojoj transakciji, pa greska jednog korisnika (npr. nema racun)
+     * ne blokira fill-ove ostalih; njegovi fill-ovi se vracaju kao neporavnati.
+     */
+    public List<FillSettlementResultDto> settleFills(List<FillSettlementDto> fills) {
+        Map<Long, List<FillSettlementDto>> fillsByUser = fills.stream()
+                .collect(Collectors.groupingBy(FillSettlementDto::getUserId, LinkedHashMap::new, Collectors.toList()));
+
+        List<FillSettlementResultDto> results = new ArrayList<>();
+        fillsByUser.forEach((userId, userFills) -> {
+            try {
+                results.addAll(userListingService.settleUserFills(userFills));
+            } catch (RuntimeException e) {
+                log.warn("Settlement of {} fills for user {} failed: {}", userFills.size(), userId, e.getMessage());
+                userFills.forEach(fill -> results.add(new FillSettlementResultDto(fill.getSettlementId(), false, 0)));
+            }
+        });
+        return results;
+    }
+}
@@ -0,0 +1,36 @@
+package org.banka1.userservice.services;
+
+import org.banka1.userservice.domains.entities.ListingType;
+import org.banka1.userservice.domains.entities.UserListing;
+import org.banka1.userservice.repositories.UserListingRepository;
+import org.banka1.userservice.repositories.UserRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class UserListingPositionService {
+
+    private final UserListingRepository userListingRepository;
+    private final UserRepository userRepository;
+
+    public UserListingPositionService(UserListingRepository userListingRepository, UserRepository userRepository) {
+        this.userListingRepository = userListingRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Upisuje praznu poziciju u zasebnoj transakciji, pa paralelni upis iste pozicije pada na
+     * jedinstvenom kljucu (DataIntegrityViolationException) ne ponistavajuci transakciju poravnanja.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void createEmptyPosition(Long userId, ListingType listingType, String symbol) {
+        UserListing userListing = UserListing.builder()
+                .user(userRepository.getReferenceById(userId))
+                .listingType(listingType)
+                .symbol(symbol)
+                .quantity(0)
+                .build();
+        userListingRepository.saveAndFlush(userListing);
+    }
+}
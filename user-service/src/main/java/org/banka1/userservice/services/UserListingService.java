@@ -1,18 +1,34 @@
 package org.banka1.userservice.services;
 
 import lombok.extern.slf4j.Slf4j;
+import org.banka1.userservice.domains.dtos.user.listing.FillSettlementDto;
+import org.banka1.userservice.domains.dtos.user.listing.FillSettlementResultDto;
 import org.banka1.userservice.domains.dtos.user.listing.UserListingCreateDto;
 import org.banka1.userservice.domains.dtos.user.listing.UserListingDto;
+import org.banka1.userservice.domains.dtos.user.listing.UserListingKeyDto;
+import org.banka1.userservice.domains.dtos.user.listing.UserListingPositionDto;
+import org.banka1.userservice.domains.entities.ListingType;
+import org.banka1.userservice.domains.entities.SettledFill;
 import org.banka1.userservice.domains.entities.User;
 import org.banka1.userservice.domains.entities.UserListing;
 import org.banka1.userservice.domains.exceptions.NotFoundExceptions;
 import org.banka1.userservice.domains.mappers.UserListingMapper;
 import org.banka1.userservice.domains.mappers.UserMapper;
+import org.banka1.userservice.repositories.BankAccountRepository;
+import org.banka1.userservice.repositories.SettledFillRepository;
 import org.banka1.userservice.repositories.UserListingRepository;
 import org.banka1.userservice.repositories.UserRepository;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,16 +37,35 @@ public class UserListingService {
 
     private final UserListingRepository userListingRepository;
     private final UserRepository userRepository;
+    private final BankAccountRepository bankAccountRepository;
+    private final UserListingPositionService userListingPositionService;
+    private final SettledFillRepository settledFillRepository;
 
-    public UserListingService(UserListingRepository userListingRepository, UserRepository userRepository) {
+    public UserListingService(UserListingRepository userListingRepository, UserRepository userRepository,
+                              BankAccountRepository bankAccountRepository, UserListingPositionService userListingPositionService,
+                              SettledFillRepository settledFillRepository) {
         this.userListingRepository = userListingRepository;
         this.userRepository = userRepository;
+        this.bankAccountRepository = bankAccountRepository;
+        this.userListingPositionService = userListingPositionService;
+        this.settledFillRepository = settledFillRepository;
     }
 
     public List<UserListingDto> getListingsByUser(Long userId) {
         return userListingRepository.findByUser_Id(userId).stream().map(UserListingMapper.INSTANCE::userListingToUserListingDto).collect(Collectors.toList());
     }
 
+    public UserListingPositionDto getPosition(Long userId, ListingType listingType, String symbol) {
+        return userListingRepository.findPosition(userId, listingType, symbol).orElseThrow(() -> new NotFoundExceptions("listing not found"));
+    }
+
+    /**
+     * Vraca pozicije za vise kljuceva jednim upitom; kljucevi bez pozicije se preskacu.
+     */
+    public List<UserListingPositionDto> getPositions(List<UserListingKeyDto> keys) {
+        return userListingRepository.findPositions(keys);
+    }
+
     public UserListingDto createUserListing(Long userId, UserListingCreateDto userListingCreateDto) {
         UserListing userListing = UserListingMapper.INSTANCE.userListingCreateDtoToUserListing(userListingCreateDto);
         User user = userRepository.findById(userId).orElseThrow(() -> new NotFoundExceptions("user not found"));
@@ -47,4 +82,79 @@ public class UserListingService {
         userListing = userListingRepository.save(userListing);
         return UserListingMapper.INSTANCE.userListingToUserListingDto(userListing);
     }
+
+    /**
+     * Poravnava fill-ove jednog korisnika u jednoj transakciji. Fill-ovi ciji je id vec poravnat se preskacu
+     * i vracaju sa kolicinom iz ranijeg poravnanja, pa ponovljen zahtev (npr. posle timeout-a) ne knjizi dvaput.
+     * Izmene kolicine i stanja su atomicni UPDATE-i (quantity = quantity + delta), pa je podrazumevana izolacija dovoljna.
+     */
+    @Transactional
+    public List<FillSettlementResultDto> settleUserFills(List<FillSettlementDto> fills) {
+        Map<String, FillSettlementDto> byId = new LinkedHashMap<>();
+        fills.forEach(fill -> byId.putIfAbsent(fill.getSettlementId(), fill));
+        Map<String, SettledFill> alreadySettled = settledFillRepository.findAllById(byId.keySet()).stream()
+                .collect(Collectors.toMap(SettledFill::getSettlementId, Function.identity()));
+
+        List<FillSettlementResultDto> results = new ArrayList<>();
+        List<FillSettlementDto> unsettled = new ArrayList<>();
+        for (FillSettlementDto fill : byId.values()) {
+            SettledFill settled = alreadySettled.get(fill.getSettlementId());
+            if (settled != null) {
+                results.add(new FillSettlementResultDto(fill.getSettlementId(), true, settled.getQuantityDelta()));
+                continue;
+            }
+            results.add(new FillSettlementResultDto(fill.getSettlementId(), true, fill.getQuantityDelta()));
+            unsettled.add(fill);
+        }
+        if (unsettled.isEmpty())
+            return results;
+
+        // id-jevi se upisuju prvi, pa paralelno poravnanje istog fill-a pada na primarnom kljucu
+        Date now = new Date();
+        settledFillRepository.saveAllAndFlush(unsettled.stream()
+                .map(fill -> SettledFill.builder()
+                        .settlementId(fill.getSettlementId())
+                        .userId(fill.getUserId())
+                        .quantityDelta(fill.getQuantityDelta())
+                        .cashDelta(fill.getCashDelta())
+                        .settledAt(now)
+                        .build())
+                .collect(Collectors.toList()));
+
+        // vise fill-ova iste pozicije i istog korisnika se sabira, pa se svaki red azurira samo jednom
+        Map<String, FillSettlementDto> positions = new LinkedHashMap<>();
+        Map<Long, Double> cashDeltas = new LinkedHashMap<>();
+        for (FillSettlementDto fill : unsettled) {
+            positions.merge(fill.getUserId() + ":" + fill.getListingType() + ":" + fill.getSymbol(),
+                    new FillSettlementDto(null, fill.getUserId(), fill.getListingType(), fill.getSymbol(), fill.getQuantityDelta(), 0),
+                    (position, other) -> {
+                        position.setQuantityDelta(position.getQuantityDelta() + other.getQuantityDelta());
+                        return position;
+                    });
+            cashDeltas.merge(fill.getUserId(), fill.getCashDelta(), Double::sum);
+        }
+
+        for (FillSettlementDto position : positions.values()) {
+            int updated = userListingRepository.addQuantity(position.getUserId(), position.getListingType(),
+                    position.getSymbol(), position.getQuantityDelta());
+            if (updated == 0) {
+                if (!userRepository.existsById(position.getUserId()))
+                    throw new NotFoundExceptions("user not found");
+                try {
+                    userListingPositionService.createEmptyPosition(position.getUserId(), position.getListingType(), position.getSymbol());
+                } catch (DataIntegrityViolationException e) {
+                    // poziciju je u medjuvremenu upisalo paralelno poravnanje
+                    log.debug("Position {}:{}:{} already created", position.getUserId(), position.getListingType(), position.getSymbol());
+                }
+                userListingRepository.addQuantity(position.getUserId(), position.getListingType(),
+                        position.getSymbol(), position.getQuantityDelta());
+            }
+        }
+
+        cashDeltas.forEach((userId, cashDelta) -> {
+            if (bankAccountRepository.addBalanceForUser(userId, cashDelta) == 0)
+                throw new NotFoundExceptions("bank account not found");
+        });
+        return results;
+    }
 }
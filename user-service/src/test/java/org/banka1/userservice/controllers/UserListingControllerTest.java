@@ -0,0 +1,51 @@
+package org.banka1.userservice.controllers;
+
+import org.banka1.userservice.IntegrationTest;
+import org.banka1.userservice.domains.dtos.user.listing.FillSettlementDto;
+import org.banka1.userservice.domains.entities.ListingType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class UserListingControllerTest extends IntegrationTest {
+
+    @Test
+    public void settleFillsWithoutTokenIsForbiddenTest() throws Exception {
+        List<FillSettlementDto> fills = List.of(new FillSettlementDto("1:0", 1L, ListingType.STOCK, "AAPL", 10, -1000D));
+
+        mockMvc.perform(post("/api/user-listings/settle")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(fills)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void settleFillsRequiresAdminTest() throws Exception {
+        mockMvc.perform(post("/api/user-listings/settle")
+                        .header("Authorization", "Bearer " + supervisorToken)
+                        .contentType("application/json")
+                        .content("[]"))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(post("/api/user-listings/settle")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType("application/json")
+                        .content("[]"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void positionsWithoutTokenAreForbiddenTest() throws Exception {
+        mockMvc.perform(get("/api/user-listings/position?userId=1&listingType=STOCK&symbol=AAPL"))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(post("/api/user-listings/positions")
+                        .contentType("application/json")
+                        .content("[]"))
+                .andExpect(status().isForbidden());
+    }
+}
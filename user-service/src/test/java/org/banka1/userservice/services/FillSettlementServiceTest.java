@@ -0,0 +1,41 @@
+package org.banka1.userservice.services;
+
+import org.banka1.userservice.domains.dtos.user.listing.FillSettlementDto;
+import org.banka1.userservice.domains.dtos.user.listing.FillSettlementResultDto;
+import org.banka1.userservice.domains.entities.ListingType;
+import org.banka1.userservice.domains.exceptions.NotFoundExceptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FillSettlementServiceTest {
+
+    private UserListingService userListingService;
+    private FillSettlementService fillSettlementService;
+
+    @BeforeEach
+    void setUp() {
+        this.userListingService = mock(UserListingService.class);
+        this.fillSettlementService = new FillSettlementService(userListingService);
+    }
+
+    @Test
+    void settleFillsIsolatesFailingUser() {
+        //given
+        FillSettlementDto failing = new FillSettlementDto("1:0", 1L, ListingType.STOCK, "AAPL", 5, -500D);
+        FillSettlementDto ok = new FillSettlementDto("2:0", 2L, ListingType.STOCK, "AAPL", -5, 500D);
+        when(userListingService.settleUserFills(List.of(failing))).thenThrow(new NotFoundExceptions("bank account not found"));
+        when(userListingService.settleUserFills(List.of(ok))).thenReturn(List.of(new FillSettlementResultDto("2:0", true, -5)));
+
+        //when
+        List<FillSettlementResultDto> results = fillSettlementService.settleFills(List.of(failing, ok));
+
+        //then
+        assertEquals(List.of(new FillSettlementResultDto("1:0", false, 0), new FillSettlementResultDto("2:0", true, -5)), results);
+    }
+}
@@ -0,0 +1,176 @@
+package org.banka1.userservice.services;
+
+import org.banka1.userservice.domains.dtos.user.listing.FillSettlementDto;
+import org.banka1.userservice.domains.dtos.user.listing.FillSettlementResultDto;
+import org.banka1.userservice.domains.dtos.user.listing.UserListingKeyDto;
+import org.banka1.userservice.domains.dtos.user.listing.UserListingPositionDto;
+import org.banka1.userservice.domains.entities.ListingType;
+import org.banka1.userservice.domains.entities.SettledFill;
+import org.banka1.userservice.domains.exceptions.NotFoundExceptions;
+import org.banka1.userservice.repositories.BankAccountRepository;
+import org.banka1.userservice.repositories.SettledFillRepository;
+import org.banka1.userservice.repositories.UserListingRepository;
+import org.banka1.userservice.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.List;
+import java.util.Set;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserListingServiceTest {
+
+    private UserListingRepository userListingRepository;
+    private UserRepository userRepository;
+    private BankAccountRepository bankAccountRepository;
+    private UserListingPositionService userListingPositionService;
+    private SettledFillRepository settledFillRepository;
+    private UserListingService userListingService;
+
+    @BeforeEach
+    void setUp() {
+        this.userListingRepository = mock(UserListingRepository.class);
+        this.userRepository = mock(UserRepository.class);
+        this.bankAccountRepository = mock(BankAccountRepository.class);
+        this.userListingPositionService = mock(UserListingPositionService.class);
+        this.settledFillRepository = mock(SettledFillRepository.class);
+        this.userListingService = new UserListingService(userListingRepository, userRepository, bankAccountRepository,
+                userListingPositionService, settledFillRepository);
+    }
+
+    @Test
+    void settleUserFillsAggregatesDeltasPerPositionAndUser() {
+        //given
+        List<FillSettlementDto> fills = List.of(
+                new FillSettlementDto("1:0", 1L, ListingType.STOCK, "AAPL", 5, -500D),
+                new FillSettlementDto("2:0", 1L, ListingType.STOCK, "AAPL", 3, -300D),
+                new FillSettlementDto("3:0", 1L, ListingType.FOREX, "EUR/USD", -2, 2.5D));
+        when(userListingRepository.addQuantity(any(), any(), any(), any(Integer.class))).thenReturn(1);
+        when(bankAccountRepository.addBalanceForUser(any(), any(Double.class))).thenReturn(1);
+
+        //when
+        userListingService.settleUserFills(fills);
+
+        //then
+        verify(userListingRepository, times(1)).addQuantity(1L, ListingType.STOCK, "AAPL", 8);
+        verify(userListingRepository, times(1)).addQuantity(1L, ListingType.FOREX, "EUR/USD", -2);
+        verify(bankAccountRepository, times(1)).addBalanceForUser(1L, -797.5D);
+        verify(userListingPositionService, never()).createEmptyPosition(any(), any(), any());
+    }
+
+    @Test
+    void settleUserFillsCreatesMissingPosition() {
+        //given
+        when(userListingRepository.addQuantity(2L, ListingType.STOCK, "MSFT", 4)).thenReturn(0, 1);
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(bankAccountRepository.addBalanceForUser(2L, -40D)).thenReturn(1);
+
+        //when
+        userListingService.settleUserFills(List.of(new FillSettlementDto("4:0", 2L, ListingType.STOCK, "MSFT", 4, -40D)));
+
+        //then
+        verify(userListingPositionService, times(1)).createEmptyPosition(2L, ListingType.STOCK, "MSFT");
+        verify(userListingRepository, times(2)).addQuantity(2L, ListingType.STOCK, "MSFT", 4);
+    }
+
+    @Test
+    void settleUserFillsRetriesUpdateWhenPositionWasCreatedConcurrently() {
+        //given
+        when(userListingRepository.addQuantity(2L, ListingType.STOCK, "MSFT", 4)).thenReturn(0, 1);
+        when(userRepository.existsById(2L)).thenReturn(true);
+        doThrow(new DataIntegrityViolationException("user_listing_position_unique"))
+                .when(userListingPositionService).createEmptyPosition(2L, ListingType.STOCK, "MSFT");
+        when(bankAccountRepository.addBalanceForUser(2L, -40D)).thenReturn(1);
+
+        //when
+        userListingService.settleUserFills(List.of(new FillSettlementDto("4:0", 2L, ListingType.STOCK, "MSFT", 4, -40D)));
+
+        //then
+        verify(userListingRepository, times(2)).addQuantity(2L, ListingType.STOCK, "MSFT", 4);
+        verify(bankAccountRepository, times(1)).addBalanceForUser(2L, -40D);
+    }
+
+    @Test
+    void settleUserFillsThrowsWhenUserIsMissing() {
+        //given
+        when(userListingRepository.addQuantity(3L, ListingType.STOCK, "MSFT", 1)).thenReturn(0);
+        when(userRepository.existsById(3L)).thenReturn(false);
+
+        //then
+        assertThrows(NotFoundExceptions.class,
+                () -> userListingService.settleUserFills(List.of(new FillSettlementDto("5:0", 3L, ListingType.STOCK, "MSFT", 1, -10D))));
+        verify(userListingPositionService, never()).createEmptyPosition(any(), any(), any());
+    }
+
+    @Test
+    void settleUserFillsSkipsAlreadySettledFills() {
+        //given
+        when(settledFillRepository.findAllById(any())).thenReturn(List.of(
+                SettledFill.builder().settlementId("7:0").userId(1L).quantityDelta(5).cashDelta(-500D).build()));
+        when(userListingRepository.addQuantity(any(), any(), any(), any(Integer.class))).thenReturn(1);
+        when(bankAccountRepository.addBalanceForUser(any(), any(Double.class))).thenReturn(1);
+
+        //when
+        List<FillSettlementResultDto> results = userListingService.settleUserFills(List.of(
+                new FillSettlementDto("7:0", 1L, ListingType.STOCK, "AAPL", 4, -400D),
+                new FillSettlementDto("7:5", 1L, ListingType.STOCK, "AAPL", 2, -200D)));
+
+        //then
+        assertEquals(List.of(new FillSettlementResultDto("7:0", true, 5), new FillSettlementResultDto("7:5", true, 2)), results);
+        verify(userListingRepository, times(1)).addQuantity(1L, ListingType.STOCK, "AAPL", 2);
+        verify(bankAccountRepository, times(1)).addBalanceForUser(1L, -200D);
+    }
+
+    @Test
+    void settleUserFillsDoesNothingWhenAllFillsAreSettled() {
+        //given
+        when(settledFillRepository.findAllById(any())).thenReturn(List.of(
+                SettledFill.builder().settlementId("7:0").userId(1L).quantityDelta(5).cashDelta(-500D).build()));
+
+        //when
+        userListingService.settleUserFills(List.of(new FillSettlementDto("7:0", 1L, ListingType.STOCK, "AAPL", 5, -500D)));
+
+        //then
+        verify(settledFillRepository, never()).saveAllAndFlush(any());
+        verify(userListingRepository, never()).addQuantity(any(), any(), any(), any(Integer.class));
+        verify(bankAccountRepository, never()).addBalanceForUser(any(), any(Double.class));
+    }
+
+    @Test
+    void getPositionsReturnsOnlyRequestedKeys() {
+        //given
+        UserListingPositionDto requested = new UserListingPositionDto(1L, 10L, ListingType.STOCK, "AAPL", 5);
+        UserListingPositionDto otherUsersSymbol = new UserListingPositionDto(2L, 11L, ListingType.STOCK, "AAPL", 7);
+        UserListingPositionDto otherType = new UserListingPositionDto(1L, 12L, ListingType.FOREX, "AAPL", 1);
+        when(userListingRepository.findPositions(anyCollection())).thenCallRealMethod();
+        when(userListingRepository.findPositionCandidates(Set.of(1L, 2L), Set.of(ListingType.STOCK), Set.of("AAPL", "MSFT")))
+                .thenReturn(List.of(requested, otherUsersSymbol, otherType));
+
+        //when
+        List<UserListingPositionDto> positions = userListingService.getPositions(List.of(
+                new UserListingKeyDto(1L, ListingType.STOCK, "AAPL"),
+                new UserListingKeyDto(2L, ListingType.STOCK, "MSFT")));
+
+        //then
+        assertEquals(List.of(requested), positions);
+    }
+
+    @Test
+    void getPositionThrowsWhenPositionIsMissing() {
+        when(userListingRepository.findPosition(1L, ListingType.STOCK, "AAPL")).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundExceptions.class, () -> userListingService.getPosition(1L, ListingType.STOCK, "AAPL"));
+    }
+}